@@ -145,7 +145,6 @@ public class HttpLogClient {
             }
 
         }
-        return response;
 
     }
 
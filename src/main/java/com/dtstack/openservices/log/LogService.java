@@ -9,12 +9,33 @@ import com.dtstack.openservices.log.request.QueryLogsRequest;
 import com.dtstack.openservices.log.response.QueryLogsResponse;
 import com.dtstack.openservices.log.response.PutLogsResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 
 public interface LogService {
 
 
 	public PutLogsResponse putLogs(PutLogsRequest request) throws LogException;
 
+	/**
+	 * Send logs asynchronously, the default implementation sends on the
+	 * calling thread and returns a completed future
+	 *
+	 * @param request the put logs request
+	 * @return future of the response, failed with {@link LogException}
+	 */
+	public default CompletableFuture<PutLogsResponse> putLogsAsync(PutLogsRequest request) {
+		CompletableFuture<PutLogsResponse> result = new CompletableFuture<PutLogsResponse>();
+		try {
+			result.complete(putLogs(request));
+		} catch (LogException e) {
+			result.completeExceptionally(e);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
 
 	public QueryLogsResponse queryLogs(QueryLogsRequest request) throws LogException;
 
@@ -4,36 +4,59 @@
 package com.dtstack.openservices.log;
 
 import com.dtstack.openservices.log.common.*;
+import com.dtstack.openservices.log.compress.AdaptiveCompressor;
+import com.dtstack.openservices.log.compress.AutoCompressConfig;
+import com.dtstack.openservices.log.compress.CompressedData;
+import com.dtstack.openservices.log.compress.LogCompressor;
+import com.dtstack.openservices.log.consumer.LogPuller;
 import com.dtstack.openservices.log.exception.LogException;
 import com.dtstack.openservices.log.http.client.*;
 import com.dtstack.openservices.log.http.comm.DefaultServiceClient;
+import com.dtstack.openservices.log.http.comm.NioServiceClient;
 import com.dtstack.openservices.log.http.comm.RequestMessage;
 import com.dtstack.openservices.log.http.comm.ResponseMessage;
 import com.dtstack.openservices.log.http.comm.ServiceClient;
 import com.dtstack.openservices.log.http.utils.CodingUtils;
 import com.dtstack.openservices.log.http.utils.DateUtil;
+import com.dtstack.openservices.log.http.utils.RequestSigner;
+import com.dtstack.openservices.log.query.ParallelQueryConfig;
+import com.dtstack.openservices.log.query.QueryLogsIterator;
+import com.dtstack.openservices.log.query.QueryLogsParser;
+import com.dtstack.openservices.log.query.QueriedLogHandler;
+import com.dtstack.openservices.log.query.TimeSlicedQuery;
+import com.dtstack.openservices.log.request.BatchGetLogRequest;
 import com.dtstack.openservices.log.request.QueryLogsRequest;
+import com.dtstack.openservices.log.retry.DefaultRetryPolicy;
+import com.dtstack.openservices.log.retry.ErrorType;
+import com.dtstack.openservices.log.retry.RetryPolicy;
 import com.dtstack.openservices.log.request.PutLogsRequest;
+import com.dtstack.openservices.log.response.BatchGetLogResponse;
 import com.dtstack.openservices.log.response.QueryLogsResponse;
 import com.dtstack.openservices.log.response.PutLogsResponse;
+import com.dtstack.openservices.log.spool.LogSpool;
+import com.dtstack.openservices.log.spool.SpoolConfig;
+import com.dtstack.openservices.log.spool.SpoolRecord;
+import com.dtstack.openservices.log.util.NamedThreadFactory;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
 import net.sf.json.JsonConfig;
-import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.validator.routines.InetAddressValidator;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
-import java.math.BigInteger;
 import java.net.*;
-import java.security.InvalidKeyException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
-import java.util.zip.Deflater;
 
 /**
  * <p>
@@ -42,7 +65,7 @@ import java.util.zip.Deflater;
  * @author qingya@dtstack.com
  * 
  */
-public class ProtoLogClient implements LogService {
+public class ProtoLogClient implements LogService, LogPuller {
 
 	private String httpType;
 	private String hostName;
@@ -53,7 +76,15 @@ public class ProtoLogClient implements LogService {
 	private String realIpForConsole;
 	private Boolean useSSLForConsole;
 	private String userAgent = Consts.CONST_USER_AGENT_VALUE;
+	private volatile Map<String, String> commonHeaders;
+	private volatile ClientConnectionContainer mConnections;
+	private volatile RetryPolicy retryPolicy = new DefaultRetryPolicy();
+	private ScheduledExecutorService retryScheduler;
+	private ExecutorService queryExecutor;
+	private int queryThreadCount;
 	private boolean mUUIDTag = false;
+	private LogSpool logSpool;
+	private AdaptiveCompressor adaptiveCompressor = new AdaptiveCompressor(new AutoCompressConfig());
 
 	/**
 	 * Construct the sls client with accessId, accessKey and server address, all
@@ -104,7 +135,37 @@ public class ProtoLogClient implements LogService {
 						  int connectMaxCount,
 						  int connectTimeout,
 						  int sendTimeout) {
+		this(endpoint, accessId, accessKey, sourceIp,
+				CreateClientConfiguration(connectMaxCount, connectTimeout, sendTimeout));
+	}
+
+	private static ClientConfiguration CreateClientConfiguration(int connectMaxCount,
+																 int connectTimeout,
+																 int sendTimeout) {
+		ClientConfiguration clientConfig = new ClientConfiguration();
+		clientConfig.setMaxConnections(connectMaxCount);
+		clientConfig.setConnectionTimeout(connectTimeout);
+		clientConfig.setSocketTimeout(sendTimeout);
+		return clientConfig;
+	}
+
+	/**
+	 * Construct sls client with a http client configuration, use
+	 * {@link ClientConfiguration#setTransportType(TransportType)} to choose
+	 * between the blocking and the NIO transport
+	 *
+	 * @param endpoint     the log service server address
+	 * @param accessId     aliyun accessId
+	 * @param accessKey    aliyun accessKey
+	 * @param sourceIp     client ip address
+	 * @param clientConfig http client configuration
+	 * @throws NullPointerException     if the input parameter is null
+	 * @throws IllegalArgumentException if the input parameter is empty
+	 */
+	public ProtoLogClient(String endpoint, String accessId, String accessKey,
+						  String sourceIp, ClientConfiguration clientConfig) {
 		CodingUtils.assertStringNotNullOrEmpty(endpoint, "endpoint");
+		CodingUtils.assertParameterNotNull(clientConfig, "clientConfig");
 		CodingUtils.assertStringNotNullOrEmpty(accessId, "accessId");
 		CodingUtils.assertStringNotNullOrEmpty(accessKey, "accessKey");
 
@@ -131,11 +192,12 @@ public class ProtoLogClient implements LogService {
 		if (sourceIp == null || sourceIp.isEmpty()) {
 			this.sourceIp = GetLocalMachineIp();
 		}
-		ClientConfiguration clientConfig = new ClientConfiguration();
-		clientConfig.setMaxConnections(connectMaxCount);
-		clientConfig.setConnectionTimeout(connectTimeout);
-		clientConfig.setSocketTimeout(sendTimeout);
-		this.serviceClient = new DefaultServiceClient(clientConfig);
+		this.queryThreadCount = clientConfig.getQueryThreadCount();
+		if (clientConfig.getTransportType() == TransportType.NIO) {
+			this.serviceClient = new NioServiceClient(clientConfig);
+		} else {
+			this.serviceClient = new DefaultServiceClient(clientConfig);
+		}
 
 	}
 
@@ -162,7 +224,73 @@ public class ProtoLogClient implements LogService {
 
 	@Override
 	public QueryLogsResponse queryLogs(QueryLogsRequest request) throws LogException {
-		return null;
+		return getLogs(request);
+	}
+
+	/**
+	 * Iterate over all logs of a query page by page, the next pages are
+	 * queried in the background while the current one is consumed
+	 *
+	 * @param request       the query, its offset is where the iteration starts
+	 * @param pageSize      lines per page when the request has no line set
+	 * @param prefetchPages max pages queried ahead and held in memory
+	 * @return the iterator, close it once done
+	 */
+	public QueryLogsIterator queryLogsIterator(QueryLogsRequest request, int pageSize, int prefetchPages) {
+		CodingUtils.assertParameterNotNull(request, "request");
+		return new QueryLogsIterator(this, request, pageSize, prefetchPages, GetQueryExecutor());
+	}
+
+	/**
+	 * Iterate over all logs of a query with the default page size and
+	 * prefetch depth
+	 *
+	 * @param request the query, its offset is where the iteration starts
+	 * @return the iterator, close it once done
+	 */
+	public QueryLogsIterator queryLogsIterator(QueryLogsRequest request) {
+		return queryLogsIterator(request, Consts.DEFAULT_QUERY_PAGE_SIZE, Consts.DEFAULT_QUERY_PREFETCH_PAGES);
+	}
+
+	/**
+	 * Split the time range of a query into slices queried concurrently, each
+	 * slice is queried again until complete and the results are merged by time.
+	 * All queries of the client share
+	 * {@link ClientConfiguration#getQueryThreadCount()} threads, slices wait in
+	 * a queue while they are busy
+	 *
+	 * @param request the query
+	 * @param config  slice length, parallelism and incomplete retries
+	 * @return every log of the time range ordered by time
+	 * @throws LogException if a slice fails or stays incomplete
+	 */
+	public QueryLogsResponse queryLogsParallel(QueryLogsRequest request, ParallelQueryConfig config)
+			throws LogException {
+		CodingUtils.assertParameterNotNull(request, "request");
+		CodingUtils.assertParameterNotNull(config, "config");
+		return new TimeSlicedQuery(this, config, GetQueryExecutor()).execute(request);
+	}
+
+	/**
+	 * Query a time range in concurrent slices with the default settings
+	 *
+	 * @param request the query
+	 * @return every log of the time range ordered by time
+	 * @throws LogException if a slice fails or stays incomplete
+	 */
+	public QueryLogsResponse queryLogsParallel(QueryLogsRequest request) throws LogException {
+		return queryLogsParallel(request, new ParallelQueryConfig());
+	}
+
+	private synchronized ExecutorService GetQueryExecutor() {
+		if (this.queryExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(queryThreadCount, queryThreadCount,
+					60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new NamedThreadFactory("log-query"));
+			executor.allowCoreThreadTimeOut(true);
+			this.queryExecutor = executor;
+		}
+		return this.queryExecutor;
 	}
 
 	private URI getHostURIByIp(String ipAddress) throws LogException {
@@ -182,36 +310,55 @@ public class ProtoLogClient implements LogService {
 
 
 	public PutLogsResponse putLogs(String project, String logStore, byte[] logGroupBytes, String compressType) throws LogException {
+		return putLogs(project, logStore, logGroupBytes, compressType, true);
+	}
+
+	private PutLogsResponse putLogs(String project, String logStore, byte[] logGroupBytes, String compressType,
+									boolean spoolOnFailure) throws LogException {
 		CodingUtils.assertStringNotNullOrEmpty(project, "project");
 		CodingUtils.assertStringNotNullOrEmpty(logStore, "logStore");
 		CodingUtils.assertParameterNotNull(logGroupBytes, "logGroupBytes");
 
 		PutLogsRequest request = new PutLogsRequest(logStore, null, null, logGroupBytes);
+		request.SetCompressType(ParseCompressType(compressType));
+		return putLogs(project, request, spoolOnFailure);
+
+	}
+
+	private static Consts.CompressType ParseCompressType(String compressType) {
 		if (compressType.equals(Consts.CONST_LZ4)) {
-			request.SetCompressType(Consts.CompressType.LZ4);
+			return Consts.CompressType.LZ4;
 		} else if (compressType.equals(Consts.CONST_GZIP_ENCODING)) {
-			request.SetCompressType(Consts.CompressType.GZIP);
+			return Consts.CompressType.GZIP;
 		} else if (compressType.isEmpty()) {
-			request.SetCompressType(Consts.CompressType.NONE);
+			return Consts.CompressType.NONE;
+		} else if (compressType.equals(Consts.CompressType.AUTO.toString())) {
+			return Consts.CompressType.AUTO;
 		} else {
-			throw new IllegalArgumentException("invalid CompressType: " + compressType + ", should be (" + Consts.CompressType.NONE + ", " + Consts.CompressType.GZIP + ", " + Consts.CompressType.LZ4 + ")");
+			throw new IllegalArgumentException("invalid CompressType: " + compressType + ", should be (" + Consts.CompressType.NONE + ", " + Consts.CompressType.GZIP + ", " + Consts.CompressType.LZ4 + ", " + Consts.CompressType.AUTO + ")");
 		}
-		return putLogs(request);
-
 	}
 
 
 
-	public PutLogsResponse putLogs(PutLogsRequest request) throws LogException {
+	/**
+	 * <p>
+	 *     序列化并压缩日志，生成发送所需的请求头和参数
+	 * </p>
+	 * @param ownBuffer 为true时日志数据复制到独立的数组，请求可以在其他线程中完成
+	 */
+	private PreparedPutLogs preparePutLogs(String project, PutLogsRequest request, boolean spoolOnFailure,
+										   boolean ownBuffer) throws LogException {
 		CodingUtils.assertParameterNotNull(request, "request");
 		String logStore = request.GetLogStore();
 		CodingUtils.assertStringNotNullOrEmpty(logStore, "logStore");
-		String shardKey = request.GetRouteKey();
 		Consts.CompressType compressType = request.GetCompressType();
 		CodingUtils.assertParameterNotNull(compressType, "compressType");
 
 		byte[] logBytes = request.GetLogGroupBytes();
+		int logLength = 0;
 		if (logBytes != null) {
+			logLength = logBytes.length;
 		} else {
 			List<LogItem> logItems = request.GetLogItems();
 			if (logItems.size() > Consts.CONST_MAX_PUT_LINES) {
@@ -222,45 +369,22 @@ public class ProtoLogClient implements LogService {
 			CodingUtils.assertParameterNotNull(topic, "topic");
 			String source = request.GetSource();
 			if (request.getContentType() != Consts.CONST_SLS_JSON) { // 消息发送格式不是标准的JSON
-				Logs.LogGroup.Builder logs = Logs.LogGroup.newBuilder();
-				if (topic != null) {
-					logs.setTopic(topic);
-				}
 				if (source == null || source.isEmpty()) {
-					logs.setSource(this.sourceIp);
-				} else {
-					logs.setSource(source);
-				}
-				ArrayList<TagContent> tags = request.GetTags();
-				if (tags != null && tags.size() > 0) {
-					for (TagContent tag : tags) {
-						Logs.LogTag.Builder tagBuilder = logs.addLogTagsBuilder();
-						tagBuilder.setKey(tag.getKey());
-						tagBuilder.setValue(tag.getValue());
-					}
+					source = this.sourceIp;
 				}
+				List<TagContent> tags = request.GetTags();
 				if (this.mUUIDTag) {
-					Logs.LogTag.Builder tagBuilder = logs.addLogTagsBuilder();
-					tagBuilder.setKey("__pack_unique_id__");
-					tagBuilder.setValue(UUID.randomUUID().toString() + "-" + String.valueOf(Math.random()));
-				}
-				for (int i = 0; i < logItems.size(); i++) {
-					LogItem item = logItems.get(i);
-					Logs.Log.Builder log = logs.addLogsBuilder();
-					log.setTime(item.mLogTime);
-					for (LogContent content : item.mContents) {
-						CodingUtils.assertStringNotNullOrEmpty(content.mKey, "key");
-						Logs.Log.Content.Builder contentBuilder = log
-								.addContentsBuilder();
-						contentBuilder.setKey(content.mKey);
-						if (content.mValue == null) {
-							contentBuilder.setValue("");
-						} else {
-							contentBuilder.setValue(content.mValue);
-						}
+					List<TagContent> tagsWithId = new ArrayList<TagContent>();
+					if (tags != null) {
+						tagsWithId.addAll(tags);
 					}
+					tagsWithId.add(new TagContent("__pack_unique_id__",
+							UUID.randomUUID().toString() + "-" + String.valueOf(Math.random())));
+					tags = tagsWithId;
 				}
-				logBytes = logs.build().toByteArray();
+				LogGroupEncoder encoder = LogGroupEncoder.get();
+				logLength = encoder.encode(topic, source, tags, logItems);
+				logBytes = ownBuffer ? encoder.toByteArray() : encoder.getBuffer();
 			} else {
 				JSONObject jsonObj = new JSONObject();
 				if (topic != null) {
@@ -297,12 +421,13 @@ public class ProtoLogClient implements LogService {
 				}
 				try {
 					logBytes = jsonObj.toString().getBytes("utf-8");
+					logLength = logBytes.length;
 				} catch (UnsupportedEncodingException e) {
 					throw new LogException("UnsupportedEncoding", e.getMessage(), "");
 				}
 			}
 		}
-		if (logBytes.length > Consts.CONST_MAX_PUT_SIZE) {
+		if (logLength > Consts.CONST_MAX_PUT_SIZE) {
 			throw new LogException("InvalidLogSize",
 					"logItems' size exceeds maximum limitation : "
 							+ String.valueOf(Consts.CONST_MAX_PUT_SIZE)
@@ -311,28 +436,17 @@ public class ProtoLogClient implements LogService {
 
 		Map<String, String> headParameter = defineCommonHeader();
 		headParameter.put(Consts.CONST_CONTENT_TYPE, request.getContentType());
-		long originalSize = logBytes.length;
+		long originalSize = logLength;
 
 		//消息压缩方式
-		if (compressType == Consts.CompressType.LZ4) {
-			logBytes = LZ4Encoder.compressToLhLz4Chunk(logBytes.clone());
-			headParameter.put(Consts.CONST_X_SLS_COMPRESSTYPE,
-					compressType.toString());
-		} else if (compressType == Consts.CompressType.GZIP) {
-			ByteArrayOutputStream out = new ByteArrayOutputStream(
-					logBytes.length);
-
-			Deflater compresser = new Deflater();
-			compresser.setInput(logBytes);
-			compresser.finish();
-
-			byte[] buf = new byte[10240];
-			while (compresser.finished() == false) {
-				int count = compresser.deflate(buf);
-				out.write(buf, 0, count);
-			}
-
-			logBytes = out.toByteArray();
+		CompressedData compressed;
+		if (compressType == Consts.CompressType.AUTO) {
+			compressed = adaptiveCompressor.compress(logStore, logBytes, 0, logLength);
+			compressType = compressed.getCompressType();
+		} else {
+			compressed = LogCompressor.get().compress(compressType, logBytes, 0, logLength);
+		}
+		if (compressType != Consts.CompressType.NONE) {
 			headParameter.put(Consts.CONST_X_SLS_COMPRESSTYPE,
 					compressType.toString());
 		}
@@ -340,63 +454,541 @@ public class ProtoLogClient implements LogService {
 		headParameter.put(Consts.CONST_X_SLS_BODYRAWSIZE,
 				String.valueOf(originalSize));
 
-		String resourceUri = "/logstores/" + logStore;
-		if (shardKey == null || shardKey.length() == 0) {
-			resourceUri += "/shards/lb";
-		} else
-			resourceUri += "/shards/route?key=" + shardKey;
-		Map<String, String> urlParameter = new HashMap<String, String>();
-		urlParameter = request.GetAllParams();
-		long cmp_size = logBytes.length;
+		// the route key set on the request travels as the "key" url parameter
+		Map<String, String> urlParameter = request.GetAllParams();
+		return new PreparedPutLogs(project, logStore, request.getContentType(), compressType, logBytes, logLength,
+				compressed, headParameter, urlParameter, spoolOnFailure);
+	}
 
+	public PutLogsResponse putLogs(PutLogsRequest request) throws LogException {
+		return putLogs(null, request, true);
+	}
+
+	private PutLogsResponse putLogs(String project, PutLogsRequest request, boolean spoolOnFailure) throws LogException {
+		return putLogs(project, request, spoolOnFailure, false);
+	}
 
-		for (int i = 0; i < 2; i++) {
-			String server_ip = null;
+	/**
+	 * @param replay true when a spooled record is sent again, it is sent once
+	 *               without consulting the retry policy, so a drain round
+	 *               neither sleeps between attempts nor draws from the retry
+	 *               budget of the live traffic
+	 */
+	private PutLogsResponse putLogs(String project, PutLogsRequest request, boolean spoolOnFailure,
+									boolean replay) throws LogException {
+		PreparedPutLogs prepared;
+		try {
+			prepared = preparePutLogs(project, request, spoolOnFailure, false);
+		} catch (LogException e) {
+			LogGroupEncoder.get().releaseOversizedBuffer();
+			throw e;
+		}
+		long cmp_size = prepared.compressed.getLength();
+
+		try {
 			ClientConnectionStatus connection_status = null;
-			try {
-				ResponseMessage response = sendData(HttpMethod.POST, urlParameter, headParameter,
-						logBytes, null, server_ip);
-				Map<String, String> resHeaders = response.getHeaders();
-				PutLogsResponse putLogsResponse = new PutLogsResponse(resHeaders);
+			long retry_delay = 0;
+			for (int attempt = 1; ; attempt++) {
+				ClientConnectionContainer connections = this.mConnections;
+				connection_status = connections == null ? null : connections.GetConnection(connection_status);
+				String server_ip = null;
 				if (connection_status != null) {
-					connection_status.AddSendDataSize(cmp_size);
-					connection_status.UpdateLastUsedTime(System.nanoTime());
+					server_ip = connections.GetServerAddress(connection_status);
+					connection_status.BeginSend(cmp_size);
 				}
-				return putLogsResponse;
-			} catch (LogException e) {
-				String request_id = e.GetRequestId();
-				if (i == 1 || request_id != null && request_id.isEmpty() == false) {
-					throw e;
+				try {
+					ResponseMessage response = sendData(HttpMethod.POST, prepared.urlParameter, prepared.headers,
+							prepared.compressed.getBuffer(), prepared.compressed.getLength(), null, server_ip);
+					Map<String, String> resHeaders = response.getHeaders();
+					PutLogsResponse putLogsResponse = new PutLogsResponse(resHeaders);
+					EndSend(connection_status, cmp_size, null);
+					if (!replay) {
+						this.retryPolicy.onSuccess();
+					}
+					return putLogsResponse;
+				} catch (LogException e) {
+					EndSend(connection_status, cmp_size, e);
+					if (replay) {
+						throw e;
+					}
+					retry_delay = this.retryPolicy.nextDelayMs(e, attempt, retry_delay);
+					if (retry_delay < 0) {
+						return onPutLogsFailure(prepared, e);
+					}
+					SleepBeforeRetry(retry_delay, e);
 				}
-				if (connection_status != null) {
-					connection_status.DisableConnection();
+			}
+		} finally {
+			prepared.release();
+			LogGroupEncoder.get().releaseOversizedBuffer();
+		}
+	}
+
+	private static void SleepBeforeRetry(long retry_delay, LogException error) throws LogException {
+		if (retry_delay <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(retry_delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw error;
+		}
+	}
+
+	/**
+	 * Send logs without blocking the calling thread when the client uses the
+	 * NIO transport, with the blocking transport the request completes before
+	 * this method returns. Retries and spooling work as in
+	 * {@link #putLogs(PutLogsRequest)}.
+	 *
+	 * @param request the put logs request
+	 * @return future of the response, failed with {@link LogException}
+	 */
+	@Override
+	public CompletableFuture<PutLogsResponse> putLogsAsync(PutLogsRequest request) {
+		CompletableFuture<PutLogsResponse> result = new CompletableFuture<PutLogsResponse>();
+		PreparedPutLogs prepared;
+		try {
+			prepared = preparePutLogs(null, request, true, true);
+		} catch (LogException e) {
+			result.completeExceptionally(e);
+			return result;
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			return result;
+		} finally {
+			LogGroupEncoder.get().releaseOversizedBuffer();
+		}
+		putLogsAsync(prepared, 1, 0, null, result);
+		return result;
+	}
+
+	private void putLogsAsync(final PreparedPutLogs prepared, final int attempt, final long last_delay,
+							  ClientConnectionStatus failed_status,
+							  final CompletableFuture<PutLogsResponse> result) {
+		ClientConnectionContainer connections = this.mConnections;
+		final ClientConnectionStatus connection_status =
+				connections == null ? null : connections.GetConnection(failed_status);
+		final long cmp_size = prepared.compressed.getLength();
+		String server_ip = null;
+		if (connection_status != null) {
+			server_ip = connections.GetServerAddress(connection_status);
+			connection_status.BeginSend(cmp_size);
+		}
+		sendDataAsync(HttpMethod.POST, prepared.urlParameter, prepared.headers,
+				prepared.compressed.getBuffer(), prepared.compressed.getLength(), server_ip)
+				.whenComplete(new BiConsumer<ResponseMessage, Throwable>() {
+					@Override
+					public void accept(ResponseMessage response, Throwable error) {
+						if (error == null) {
+							EndSend(connection_status, cmp_size, null);
+							retryPolicy.onSuccess();
+							prepared.release();
+							result.complete(new PutLogsResponse(response.getHeaders()));
+							return;
+						}
+						LogException e = ToLogException(error);
+						EndSend(connection_status, cmp_size, e);
+						final long retry_delay = retryPolicy.nextDelayMs(e, attempt, last_delay);
+						if (retry_delay >= 0) {
+							Runnable retry = new Runnable() {
+								@Override
+								public void run() {
+									putLogsAsync(prepared, attempt + 1, retry_delay, connection_status, result);
+								}
+							};
+							if (retry_delay == 0) {
+								retry.run();
+							} else {
+								GetRetryScheduler().schedule(retry, retry_delay, TimeUnit.MILLISECONDS);
+							}
+							return;
+						}
+						if (!prepared.spoolOnFailure || logSpool == null) {
+							completeWithFailure(prepared, e, result);
+							return;
+						}
+						// spooling takes the spool lock and may create a segment file, which would
+						// stall every connection served by this I/O thread
+						final LogException failure = e;
+						try {
+							GetRetryScheduler().execute(new Runnable() {
+								@Override
+								public void run() {
+									completeWithFailure(prepared, failure, result);
+								}
+							});
+						} catch (RejectedExecutionException rejected) {
+							prepared.release();
+							result.completeExceptionally(failure);
+						}
+					}
+				});
+	}
+
+	private void completeWithFailure(PreparedPutLogs prepared, LogException e,
+									 CompletableFuture<PutLogsResponse> result) {
+		try {
+			result.complete(onPutLogsFailure(prepared, e));
+		} catch (LogException failure) {
+			result.completeExceptionally(failure);
+		} finally {
+			prepared.release();
+		}
+	}
+
+	/**
+	 * <p>
+	 *     不再重试时的处理：限流、服务端错误、网络错误和熔断写入spool，其他错误直接抛出
+	 * </p>
+	 * @return spool后的响应
+	 */
+	private PutLogsResponse onPutLogsFailure(PreparedPutLogs prepared, LogException e)
+			throws LogException {
+		if (prepared.spoolOnFailure && this.logSpool != null
+				&& Consts.CONST_PROTO_BUF.equals(prepared.contentType)
+				&& ErrorType.classify(e).isTransient()) {
+			return spool(prepared.project, prepared.logStore, prepared.urlParameter,
+					Arrays.copyOf(prepared.logBytes, prepared.logLength), prepared.compressType, e);
+		}
+		throw e;
+	}
+
+	private synchronized ScheduledExecutorService GetRetryScheduler() {
+		if (this.retryScheduler == null) {
+			this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("log-retry"));
+		}
+		return this.retryScheduler;
+	}
+
+	/**
+	 * Set the policy deciding which failed requests are retried and how long
+	 * to wait before, the default is {@link DefaultRetryPolicy}
+	 *
+	 * @param retryPolicy the retry policy
+	 */
+	public void SetRetryPolicy(RetryPolicy retryPolicy) {
+		CodingUtils.assertParameterNotNull(retryPolicy, "retryPolicy");
+		this.retryPolicy = retryPolicy;
+	}
+
+	public RetryPolicy GetRetryPolicy() {
+		return this.retryPolicy;
+	}
+
+	/**
+	 * <p>
+	 *     直连模式下记录一次发送的结果：成功或服务端返回错误说明ip可用，
+	 *     网络错误累计到{@link ClientConnectionContainer#MAX_ERROR_COUNT}次后禁用该ip
+	 * </p>
+	 */
+	private static void EndSend(ClientConnectionStatus connection_status, long cmp_size, LogException error) {
+		if (connection_status == null) {
+			return;
+		}
+		connection_status.EndSend(cmp_size);
+		if (error == null) {
+			connection_status.AddSendDataSize(cmp_size);
+			connection_status.ResetErrorCount();
+			return;
+		}
+		String request_id = error.GetRequestId();
+		if (request_id != null && request_id.isEmpty() == false) {
+			connection_status.ResetErrorCount();
+		} else {
+			connection_status.AddErrorCount(ClientConnectionContainer.MAX_ERROR_COUNT);
+		}
+	}
+
+	private static LogException ToLogException(Throwable error) {
+		if (error instanceof CompletionException && error.getCause() != null) {
+			error = error.getCause();
+		}
+		if (error instanceof ClientException
+				&& ClientErrorCode.CIRCUIT_OPEN.equals(((ClientException) error).getErrorCode())) {
+			return new LogException(ClientErrorCode.CIRCUIT_OPEN, error.getMessage(), error, "");
+		}
+		if (error instanceof ServiceException || error instanceof ClientException) {
+			return new LogException("RequestError", "Web request failed: "
+					+ error.getMessage(), error, "");
+		}
+		if (error instanceof LogException) {
+			return (LogException) error;
+		}
+		return new LogException("RequestError", "Web request failed: "
+				+ error.getMessage(), error, "");
+	}
+
+	/**
+	 * <p>
+	 *     序列化压缩完成、等待发送的putLogs请求
+	 * </p>
+	 */
+	private static final class PreparedPutLogs {
+		private final String project;
+		private final String logStore;
+		private final String contentType;
+		private final Consts.CompressType compressType;
+		private final byte[] logBytes;
+		private final int logLength;
+		private final CompressedData compressed;
+		private final Map<String, String> headers;
+		private final Map<String, String> urlParameter;
+		private final boolean spoolOnFailure;
+
+		private PreparedPutLogs(String project, String logStore, String contentType,
+								Consts.CompressType compressType, byte[] logBytes, int logLength,
+								CompressedData compressed, Map<String, String> headers,
+								Map<String, String> urlParameter, boolean spoolOnFailure) {
+			this.project = project;
+			this.logStore = logStore;
+			this.contentType = contentType;
+			this.compressType = compressType;
+			this.logBytes = logBytes;
+			this.logLength = logLength;
+			this.compressed = compressed;
+			this.headers = headers;
+			this.urlParameter = urlParameter;
+			this.spoolOnFailure = spoolOnFailure;
+		}
+
+		private void release() {
+			compressed.release();
+		}
+	}
+
+
+
+
+	private PutLogsResponse spool(String project, String logStore, Map<String, String> urlParameter,
+								  byte[] rawLogBytes, Consts.CompressType compressType, LogException cause)
+			throws LogException {
+		try {
+			this.logSpool.append(new SpoolRecord(project, logStore, compressType.toString(), urlParameter,
+					rawLogBytes));
+		} catch (LogException e) {
+			throw cause;
+		}
+		PutLogsResponse putLogsResponse = new PutLogsResponse(new HashMap<String, String>());
+		putLogsResponse.SetSpooled(true);
+		return putLogsResponse;
+	}
+
+	/**
+	 * Write undeliverable logs to a local spool directory instead of failing,
+	 * the spooled logs are sent again in the background once the server is
+	 * reachable
+	 *
+	 * @param spoolConfig spool directory and size limits
+	 * @throws LogException if the spool directory can not be used
+	 */
+	public synchronized void EnableSpool(SpoolConfig spoolConfig) throws LogException {
+		if (this.logSpool != null) {
+			return;
+		}
+		LogSpool spool = new LogSpool(spoolConfig);
+		spool.start(new LogSpool.Replayer() {
+			@Override
+			public void replay(SpoolRecord record) throws LogException {
+				PutLogsRequest request = new PutLogsRequest(record.getLogStore(), null, null,
+						record.getLogGroupBytes());
+				request.SetCompressType(ParseCompressType(record.getCompressType()));
+				// the route key is one of the parameters, the batch goes to the same shard again
+				for (Map.Entry<String, String> parameter : record.getUrlParameters().entrySet()) {
+					request.SetParam(parameter.getKey(), parameter.getValue());
 				}
+				String project = record.getProject();
+				putLogs(project.isEmpty() ? null : project, request, false, true);
 			}
+		});
+		this.logSpool = spool;
+	}
+
+	/**
+	 * Stop spooling undeliverable logs, logs already spooled stay on disk and
+	 * are sent after the spool is enabled again
+	 */
+	public synchronized void DisableSpool() {
+		if (this.logSpool != null) {
+			this.logSpool.close();
+			this.logSpool = null;
+		}
+	}
+
+	public LogSpool GetSpool() {
+		return logSpool;
+	}
+
+	/**
+	 * Send logs straight to the backend ips the endpoint resolves to instead
+	 * of through the load balancer. Each request goes to the usable ip with
+	 * the least bytes in flight, an ip failing
+	 * {@link ClientConnectionContainer#MAX_ERROR_COUNT} times in a row is
+	 * disabled until it accepts connections again. Only http endpoints are
+	 * supported since the server certificate does not match an ip
+	 */
+	public synchronized void EnableDirectMode() {
+		if (this.mConnections != null) {
+			return;
 		}
-		return null;
+		if (!"http://".equals(this.httpType)) {
+			throw new IllegalStateException("Direct mode is only supported for http endpoints");
+		}
+		this.mConnections = new ClientConnectionContainer(this.hostName, 80);
 	}
 
+	/**
+	 * Send logs through the endpoint host again
+	 */
+	public synchronized void DisableDirectMode() {
+		if (this.mConnections != null) {
+			this.mConnections.shutdown();
+			this.mConnections = null;
+		}
+	}
 
+	/**
+	 * @return status of the backend ips in direct mode, empty if direct mode
+	 *         is disabled
+	 */
+	public List<ClientConnectionStatus> GetServerConnections() {
+		ClientConnectionContainer connections = this.mConnections;
+		if (connections == null) {
+			return Collections.emptyList();
+		}
+		return connections.GetAllConnections();
+	}
 
+	/**
+	 * Stop the spool and release the connections and IO threads of the
+	 * client, the client can not be used afterwards
+	 */
+	public void shutdown() {
+		DisableDirectMode();
+		DisableSpool();
+		synchronized (this) {
+			if (this.retryScheduler != null) {
+				this.retryScheduler.shutdownNow();
+				this.retryScheduler = null;
+			}
+			if (this.queryExecutor != null) {
+				this.queryExecutor.shutdownNow();
+				this.queryExecutor = null;
+			}
+		}
+		this.serviceClient.shutdown();
+	}
 
 	public QueryLogsResponse getLogs(QueryLogsRequest request) throws LogException {
 		CodingUtils.assertParameterNotNull(request, "request");
-		Map<String, String> urlParameter = request.GetAllParams();
+		ResponseMessage response = sendDataStreaming(HttpMethod.GET, request.GetAllParams(), defineCommonHeader());
+		try {
+			QueryLogsResponse getLogsResponse = new QueryLogsResponse(response.getHeaders());
+			QueryLogsParser parser = CreateQueryLogsParser(response);
+			for (QueriedLog log = parser.next(); log != null; log = parser.next()) {
+				getLogsResponse.AddLog(log);
+			}
+			return getLogsResponse;
+		} finally {
+			CloseQuietly(response);
+		}
+	}
 
-		String logStore = request.GetLogStore();
+	/**
+	 * Query one page and hand each log to the handler as soon as it is
+	 * parsed from the response stream, the logs are not kept in memory
+	 *
+	 * @param request the query
+	 * @param handler receives the logs in the order of the response
+	 * @return the response without logs, carrying the progress and
+	 *         statistics of the query
+	 * @throws LogException if the query fails or the handler throws
+	 */
+	public QueryLogsResponse getLogs(QueryLogsRequest request, QueriedLogHandler handler) throws LogException {
+		CodingUtils.assertParameterNotNull(request, "request");
+		CodingUtils.assertParameterNotNull(handler, "handler");
+		ResponseMessage response = sendDataStreaming(HttpMethod.GET, request.GetAllParams(), defineCommonHeader());
+		try {
+			QueryLogsResponse getLogsResponse = new QueryLogsResponse(response.getHeaders());
+			QueryLogsParser parser = CreateQueryLogsParser(response);
+			for (QueriedLog log = parser.next(); log != null; log = parser.next()) {
+				handler.handle(log);
+			}
+			return getLogsResponse;
+		} finally {
+			CloseQuietly(response);
+		}
+	}
 
+	private QueryLogsParser CreateQueryLogsParser(ResponseMessage response) throws LogException {
+		String requestId = GetRequestId(response.getHeaders());
+		if (response.getContent() == null) {
+			throw new LogException("BadResponse", "The response body is null", null, requestId);
+		}
+		return new QueryLogsParser(response.getContent(), requestId);
+	}
+
+	private static void CloseQuietly(ResponseMessage response) {
+		try {
+			response.close();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Pull a batch of log groups from a shard starting at the cursor of the
+	 * request, the body is decompressed and the log groups are exposed as
+	 * {@link FastLogGroup} views over it
+	 *
+	 * @param request logStore, shard, cursor and max log group count
+	 * @return the log groups and the cursor to pull the next batch from
+	 * @throws LogException if the request fails or the body can not be decompressed
+	 */
+	@Override
+	public BatchGetLogResponse pullLogs(BatchGetLogRequest request) throws LogException {
+		CodingUtils.assertParameterNotNull(request, "request");
+		String logStore = request.GetLogStore();
+		CodingUtils.assertStringNotNullOrEmpty(logStore, "logStore");
 		Map<String, String> headParameter = defineCommonHeader();
+		headParameter.put(Consts.CONST_HTTP_ACCEPT, Consts.CONST_PROTO_BUF);
+		headParameter.put(Consts.CONST_ACCEPT_ENCODING, Consts.CONST_LZ4);
 
-		ResponseMessage response = sendData(HttpMethod.GET, urlParameter, headParameter);
+		RequestMessage message = prepareRequest(HttpMethod.GET, request.GetAllParams(), headParameter,
+				new byte[0], 0, null);
+		message.setResourcePath("/logstores/" + logStore + "/shards/" + request.GetShardId());
+		ResponseMessage response = sendRequest(message, null);
 
 		Map<String, String> resHeaders = response.getHeaders();
 		String requestId = GetRequestId(resHeaders);
-
-		com.alibaba.fastjson.JSONArray object = parseResponseMessageToArrayWithFastJson(response, requestId);
-		QueryLogsResponse getLogsResponse = new QueryLogsResponse(resHeaders);
-		extractLogsWithFastJson(getLogsResponse, object);
-		return getLogsResponse;
-
+		byte[] body = response.getRawBody();
+		if (body == null) {
+			body = new byte[0];
+		}
+		Consts.CompressType compressType;
+		String compressHeader = resHeaders.get(Consts.CONST_X_SLS_COMPRESSTYPE);
+		try {
+			compressType = ParseCompressType(compressHeader == null ? "" : compressHeader);
+		} catch (IllegalArgumentException e) {
+			throw new LogException("BadResponse", "Unknown compress type of the response : "
+					+ compressHeader, e, requestId);
+		}
+		int rawSize = body.length;
+		if (compressType != Consts.CompressType.NONE) {
+			try {
+				rawSize = Integer.parseInt(resHeaders.get(Consts.CONST_X_SLS_BODYRAWSIZE));
+			} catch (NumberFormatException e) {
+				throw new LogException("BadResponse", "Invalid raw size of the response : "
+						+ resHeaders.get(Consts.CONST_X_SLS_BODYRAWSIZE), e, requestId);
+			}
+		}
+		byte[] rawData;
+		try {
+			rawData = LogCompressor.get().decompress(compressType, body, rawSize);
+		} catch (LogException e) {
+			throw new LogException(e.GetErrorCode(), e.GetErrorMessage(), e, requestId);
+		}
+		return new BatchGetLogResponse(resHeaders, rawData);
 	}
 
 	protected String GetRequestId(Map<String, String> headers) {
@@ -615,35 +1207,35 @@ public class ProtoLogClient implements LogService {
 	 * @param bytes
 	 * @return
 	 */
-	private String getMd5Value(byte[] bytes) {
-		try {
-			MessageDigest md;
-			md = MessageDigest.getInstance(Consts.CONST_MD5);
-			String res = new BigInteger(1, md.digest(bytes)).toString(16)
-					.toUpperCase();
-
-			StringBuilder zeros = new StringBuilder();
-			for (int i = 0; i + res.length() < 32; i++) {
-				zeros.append("0");
-			}
-			return zeros.toString() + res;
-		} catch (NoSuchAlgorithmException e) {
-			// never happen
-			throw new RuntimeException("Not Supported signature method "
-					+ Consts.CONST_MD5, e);
-		}
+	private String getMd5Value(byte[] bytes, int length) {
+		return RequestSigner.get().md5Hex(bytes, length);
 	}
 
 
 	private Map<String, String> defineCommonHeader() {
+		Map<String, String> commonHeaders = this.commonHeaders;
+		if (commonHeaders == null) {
+			commonHeaders = buildCommonHeader();
+			this.commonHeaders = commonHeaders;
+		}
+		HashMap<String, String> headParameter = new HashMap<String, String>(32);
+		headParameter.putAll(commonHeaders);
+		headParameter.put(Consts.CONST_DATE, DateUtil.formatCurrentRfc822Date());
+		return headParameter;
+	}
+
+	/**
+	 * <p>
+	 *     构建每个请求都相同的头部，客户端配置变化时重新构建
+	 * </p>
+	 */
+	private Map<String, String> buildCommonHeader() {
 
 		HashMap<String, String> headParameter = new HashMap<String, String>();
 		headParameter.put(Consts.CONST_USER_AGENT, userAgent);
 		headParameter.put(Consts.CONST_CONTENT_LENGTH, "0");
 		headParameter.put(Consts.CONST_X_SLS_BODYRAWSIZE, "0");
 		headParameter.put(Consts.CONST_CONTENT_TYPE, Consts.CONST_PROTO_BUF);
-		headParameter.put(Consts.CONST_DATE,
-				DateUtil.formatRfc822Date(new Date()));
 
 
 		headParameter.put(Consts.CONST_HOST, this.hostName);
@@ -661,7 +1253,7 @@ public class ProtoLogClient implements LogService {
 			headParameter.put(Consts.CONST_X_SLS_SSL, useSSLForConsole ? "true"
 					: "false");
 		}
-		return headParameter;
+		return Collections.unmodifiableMap(headParameter);
 
 	}
 
@@ -703,36 +1295,47 @@ public class ProtoLogClient implements LogService {
 	protected ResponseMessage sendData(HttpMethod method,
 									   Map<String, String> parameters, Map<String, String> headers, byte[] body,
 									   Map<String, String> output_header, String serverIp) throws LogException {
-		if (body.length > 0) {
-			headers.put(Consts.CONST_CONTENT_MD5, getMd5Value(body));
-		}
-		headers.put(Consts.CONST_CONTENT_LENGTH, String.valueOf(body.length));
+		return sendData(method, parameters, headers, body, body.length, output_header, serverIp);
+	}
 
-		getSignature(this.accessKey, method.toString(), headers, parameters);
-		URI uri =  getHostURIByIp(serverIp);
+	/**
+	 * <p>
+	 *     发送body中[0, bodyLength)区间的数据
+	 * </p>
+	 * @param method
+	 * @param parameters
+	 * @param headers
+	 * @param body
+	 * @param bodyLength
+	 * @param output_header
+	 * @param serverIp
+	 * @return
+	 * @throws LogException
+	 */
+	protected ResponseMessage sendData(HttpMethod method,
+									   Map<String, String> parameters, Map<String, String> headers, byte[] body,
+									   int bodyLength, Map<String, String> output_header, String serverIp)
+			throws LogException {
+		RequestMessage request = prepareRequest(method, parameters, headers, body, bodyLength, serverIp);
+		return sendRequest(request, output_header);
+	}
 
-		RequestMessage request = buildRequest(uri, method, parameters, headers,
-				new ByteArrayInputStream(body), body.length);
+	/**
+	 * <p>
+	 *     发送已签名的请求并读取响应体
+	 * </p>
+	 */
+	private ResponseMessage sendRequest(RequestMessage request, Map<String, String> output_header)
+			throws LogException {
 		ResponseMessage response = null;
 		try {
 			response = this.serviceClient.sendRequest(request, Consts.UTF_8_ENCODING);
-
-			extractResponseBody(response);
-			if (output_header != null) {
-				output_header.putAll(response.getHeaders());
-			}
-			int statusCode = response.getStatusCode();
-			if (statusCode != Consts.CONST_HTTP_OK) {
-				String requestId = GetRequestId(response.getHeaders());
-				JSONObject object = parserResponseMessage(response, requestId);
-				ErrorCheck(object, requestId);
-			}
+			handleResponse(response, output_header);
 		} catch (ServiceException e) {
 			throw new LogException("RequestError", "Web request failed: "
 					+ e.getMessage(), e, "");
 		} catch (ClientException e) {
-			throw new LogException("RequestError", "Web request failed: "
-					+ e.getMessage(), e, "");
+			throw ToLogException(e);
 		} finally {
 			try {
 				if (response != null) {
@@ -745,6 +1348,114 @@ public class ProtoLogClient implements LogService {
 		return response;
 	}
 
+	/**
+	 * <p>
+	 *     发送不带body的请求，成功时不读取响应体，由调用方从{@link ResponseMessage#getContent()}
+	 *     流式读取并负责关闭响应
+	 * </p>
+	 */
+	private ResponseMessage sendDataStreaming(HttpMethod method, Map<String, String> parameters,
+											  Map<String, String> headers) throws LogException {
+		RequestMessage request = prepareRequest(method, parameters, headers, new byte[0], 0, null);
+		ResponseMessage response = null;
+		boolean streaming = false;
+		try {
+			response = this.serviceClient.sendRequest(request, Consts.UTF_8_ENCODING);
+			if (response.getStatusCode() != Consts.CONST_HTTP_OK) {
+				handleResponse(response, null);
+			}
+			streaming = true;
+			return response;
+		} catch (ServiceException e) {
+			throw new LogException("RequestError", "Web request failed: "
+					+ e.getMessage(), e, "");
+		} catch (ClientException e) {
+			throw ToLogException(e);
+		} finally {
+			if (!streaming && response != null) {
+				CloseQuietly(response);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 *     异步发送body中[0, bodyLength)区间的数据，使用NIO传输时不阻塞调用线程，
+	 *     返回的future以{@link LogException}失败
+	 * </p>
+	 */
+	protected CompletableFuture<ResponseMessage> sendDataAsync(HttpMethod method,
+															   Map<String, String> parameters,
+															   Map<String, String> headers, byte[] body,
+															   int bodyLength, String serverIp) {
+		final CompletableFuture<ResponseMessage> result = new CompletableFuture<ResponseMessage>();
+		RequestMessage request;
+		try {
+			request = prepareRequest(method, parameters, headers, body, bodyLength, serverIp);
+		} catch (LogException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+		this.serviceClient.sendRequestAsync(request, Consts.UTF_8_ENCODING)
+				.whenComplete(new BiConsumer<ResponseMessage, Throwable>() {
+					@Override
+					public void accept(ResponseMessage response, Throwable error) {
+						if (error != null) {
+							result.completeExceptionally(ToLogException(error));
+							return;
+						}
+						try {
+							handleResponse(response, null);
+							result.complete(response);
+						} catch (LogException e) {
+							result.completeExceptionally(e);
+						} catch (ClientException e) {
+							result.completeExceptionally(ToLogException(e));
+						} finally {
+							try {
+								response.close();
+							} catch (IOException e) {
+							}
+						}
+					}
+				});
+		return result;
+	}
+
+	private RequestMessage prepareRequest(HttpMethod method, Map<String, String> parameters,
+										  Map<String, String> headers, byte[] body, int bodyLength,
+										  String serverIp) throws LogException {
+		if (bodyLength > 0) {
+			headers.put(Consts.CONST_CONTENT_MD5, getMd5Value(body, bodyLength));
+		}
+		headers.put(Consts.CONST_CONTENT_LENGTH, String.valueOf(bodyLength));
+
+		getSignature(this.accessKey, method.toString(), headers, parameters);
+		URI uri = getHostURIByIp(serverIp == null ? this.hostName : serverIp);
+
+		return buildRequest(uri, method, parameters, headers,
+				new ByteArrayInputStream(body, 0, bodyLength), bodyLength);
+	}
+
+	private void handleResponse(ResponseMessage response, Map<String, String> output_header)
+			throws LogException {
+		extractResponseBody(response);
+		if (output_header != null) {
+			output_header.putAll(response.getHeaders());
+		}
+		int statusCode = response.getStatusCode();
+		if (statusCode != Consts.CONST_HTTP_OK) {
+			String requestId = GetRequestId(response.getHeaders());
+			try {
+				JSONObject object = parserResponseMessage(response, requestId);
+				ErrorCheck(object, requestId);
+			} catch (LogException e) {
+				e.SetHttpCode(statusCode);
+				throw e;
+			}
+		}
+	}
+
 	private static RequestMessage buildRequest(URI endpoint,
 											   HttpMethod httpMethod,
 											   Map<String, String> parameters, Map<String, String> headers,
@@ -760,87 +1471,11 @@ public class ProtoLogClient implements LogService {
 		return request;
 	}
 
-	private String BuildUrlParameter(Map<String, String> paras) {
-		Map<String, String> treeMap = new TreeMap<String, String>(paras);
-		StringBuilder builder = new StringBuilder();
-		boolean isFirst = true;
-		for (Map.Entry<String, String> entry : treeMap.entrySet()) {
-			if (isFirst == true) {
-				isFirst = false;
-			} else {
-				builder.append("&");
-			}
-			builder.append(entry.getKey()).append("=").append(entry.getValue());
-		}
-		return builder.toString();
-	}
-
-	private String GetMapValue(Map<String, String> map, String key) {
-		if (map.containsKey(key)) {
-			return map.get(key);
-		} else {
-			return "";
-		}
-	}
-
-	private String GetCanonicalizedHeaders(Map<String, String> headers) {
-		Map<String, String> treeMap = new TreeMap<String, String>(headers);
-		StringBuilder builder = new StringBuilder();
-		boolean isFirst = true;
-		for (Map.Entry<String, String> entry : treeMap.entrySet()) {
-			if (!entry.getKey().startsWith(Consts.CONST_X_SLS_PREFIX)
-					&& !entry.getKey().startsWith(Consts.CONST_X_ACS_PREFIX)) {
-				continue;
-			}
-			if (isFirst == true) {
-				isFirst = false;
-			} else {
-				builder.append("\n");
-			}
-			builder.append(entry.getKey()).append(":").append(entry.getValue());
-		}
-		return builder.toString();
-	}
-
-
 	private void getSignature(String accesskey, String verb,
 							  Map<String, String> headers,
 							  Map<String, String> urlParams) {
-		StringBuilder builder = new StringBuilder();
-		builder.append(verb).append("\n");
-		builder.append(GetMapValue(headers, Consts.CONST_CONTENT_MD5)).append(
-				"\n");
-		builder.append(GetMapValue(headers, Consts.CONST_CONTENT_TYPE)).append(
-				"\n");
-		builder.append(GetMapValue(headers, Consts.CONST_DATE)).append("\n");
-		builder.append(GetCanonicalizedHeaders(headers)).append("\n");
-		if (urlParams.isEmpty() == false) {
-			builder.append("?");
-			builder.append(BuildUrlParameter(urlParams));
-		}
-		String signature = getSignature(accesskey, builder.toString());
 		headers.put(Consts.CONST_AUTHORIZATION,
-				Consts.CONST_HEADSIGNATURE_PREFIX + ":" + signature);
-	}
-
-	private static String getSignature(String accesskey, String data) {
-		try {
-			byte[] keyBytes = accesskey.getBytes(Consts.UTF_8_ENCODING);
-			byte[] dataBytes = data.getBytes(Consts.UTF_8_ENCODING);
-			Mac mac = Mac.getInstance(Consts.HMAC_SHA1_JAVA);
-			mac.init(new SecretKeySpec(keyBytes, Consts.HMAC_SHA1_JAVA));
-			String sig = new String(Base64.encodeBase64(mac.doFinal(dataBytes)));
-			return sig;
-		} catch (UnsupportedEncodingException e) { // actually these exceptions
-			// should never happened
-			throw new RuntimeException("Not Supported encoding method "
-					+ Consts.UTF_8_ENCODING, e);
-		} catch (NoSuchAlgorithmException e) {
-			throw new RuntimeException("Not Supported signature method "
-					+ Consts.HMAC_SHA1, e);
-		} catch (InvalidKeyException e) {
-			throw new RuntimeException("Failed to calcuate the signature", e);
-		}
+				RequestSigner.get().sign(accesskey, verb, headers, urlParams));
 	}
 
 	private static String GetLocalMachineIp() {
@@ -880,62 +1515,13 @@ public class ProtoLogClient implements LogService {
 	}
 
 
-	private com.alibaba.fastjson.JSONArray parseResponseMessageToArrayWithFastJson(ResponseMessage response,
-																				   String requestId) throws LogException {
-		byte[] body = response.getRawBody();
-		if (body == null) {
-			throw new LogException("BadResponse", "The response body is null",
-					null, requestId);
-		}
-		String returnStr;
-		try {
-			returnStr = new String(body, "UTF-8");
-		} catch (UnsupportedEncodingException e) {
-			throw new LogException("BadResponse",
-					"The response is not valid utf-8 string : ", e, requestId);
-		}
-
-		try {
-			com.alibaba.fastjson.JSONArray array = com.alibaba.fastjson.JSONArray.parseArray(returnStr);
-			return array;
-		} catch (com.alibaba.fastjson.JSONException e) {
-			throw new LogException("BadResponse",
-					"The response is not valid json string : " + returnStr, e,
-					requestId);
-		}
-	}
-
-	private void extractLogsWithFastJson(QueryLogsResponse response, com.alibaba.fastjson.JSONArray logs) {
-		try {
-			for (int i = 0; i < logs.size(); i++) {
-				com.alibaba.fastjson.JSONObject log = logs.getJSONObject(i);
-				String source = new String();
-				LogItem logItem = new LogItem();
-				Set<String> keySet = log.keySet();
-				for (String key:keySet) {
-					String value = log.getString(key);
-					if (key.equals(Consts.CONST_RESULT_SOURCE)) {
-						source = value;
-					} else if (key.equals(Consts.CONST_RESULT_TIME)) {
-						logItem.mLogTime = Integer.parseInt(value);
-					} else {
-						logItem.PushBack(key, value);
-					}
-				}
-				response.AddLog(new QueriedLog(source, logItem));
-			}
-		} catch (JSONException e) {
-			// ignore;
-		}
-
-	}
-
 	public String getUserAgent() {
 		return userAgent;
 	}
 
 	public void setUserAgent(String userAgent) {
 		this.userAgent = userAgent;
+		this.commonHeaders = null;
 	}
 
 	public String getRealIpForConsole() {
@@ -944,6 +1530,7 @@ public class ProtoLogClient implements LogService {
 
 	public void setRealIpForConsole(String realIpForConsole) {
 		this.realIpForConsole = realIpForConsole;
+		this.commonHeaders = null;
 	}
 
 	public boolean isUseSSLForConsole() {
@@ -952,11 +1539,13 @@ public class ProtoLogClient implements LogService {
 
 	public void setUseSSLForConsole(boolean useSSLForConsole) {
 		this.useSSLForConsole = useSSLForConsole;
+		this.commonHeaders = null;
 	}
 
 	public void ClearConsoleResources() {
 		realIpForConsole = null;
 		useSSLForConsole = null;
+		commonHeaders = null;
 	}
 
 	public void EnableUUIDTag() {
@@ -967,16 +1556,28 @@ public class ProtoLogClient implements LogService {
 		mUUIDTag = false;
 	}
 
+	/**
+	 * Set how requests with {@link Consts.CompressType#AUTO} choose their
+	 * compression, the statistics collected so far are discarded
+	 *
+	 * @param autoCompressConfig sampling and cost settings
+	 */
+	public void SetAutoCompressConfig(AutoCompressConfig autoCompressConfig) {
+		this.adaptiveCompressor = new AdaptiveCompressor(autoCompressConfig);
+	}
+
 	public String GetSecurityToken() {
 		return securityToken;
 	}
 
 	public void SetSecurityToken(String securityToken) {
 		this.securityToken = securityToken;
+		this.commonHeaders = null;
 	}
 
 	public void RemoveSecurityToken() {
 		securityToken = null;
+		commonHeaders = null;
 	}
 
 
@@ -0,0 +1,193 @@
+package com.dtstack.openservices.log.common;
+
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * <p>
+ *     直接在原始字节上比较和解码字段，不创建中间的String或byte数组。
+ *     UTF-8解码时不合法的字节序列替换为U+FFFD。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class ByteRanges {
+
+    private ByteRanges() {
+    }
+
+    static boolean equals(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean startsWith(byte[] a, int aOffset, int aLength, byte[] prefix, int prefixOffset, int prefixLength) {
+        return aLength >= prefixLength && equals(a, aOffset, prefixLength, prefix, prefixOffset, prefixLength);
+    }
+
+    static boolean equals(ByteBuffer a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (a.get(aOffset + i) != b[bOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean startsWith(ByteBuffer a, int aOffset, int aLength, byte[] prefix, int prefixOffset, int prefixLength) {
+        return aLength >= prefixLength && equals(a, aOffset, prefixLength, prefix, prefixOffset, prefixLength);
+    }
+
+    /**
+     * Bulk copy from an absolute index, the position of the buffer is not
+     * changed.
+     */
+    static void copy(ByteBuffer src, int srcOffset, byte[] dest, int destOffset, int length) {
+        if (src.hasArray()) {
+            System.arraycopy(src.array(), src.arrayOffset() + srcOffset, dest, destOffset, length);
+        } else {
+            ByteBuffer duplicate = src.duplicate();
+            // through Buffer, ByteBuffer.position(int) does not exist before java 9
+            ((Buffer) duplicate).position(srcOffset);
+            duplicate.get(dest, destOffset, length);
+        }
+    }
+
+    static byte[] copy(ByteBuffer src, int offset, int length) {
+        byte[] bytes = new byte[length];
+        copy(src, offset, bytes, 0, length);
+        return bytes;
+    }
+
+    /**
+     * Decode with the default charset like {@code new String(byte[], int, int)}.
+     */
+    static String decode(ByteBuffer src, int offset, int length) {
+        if (src.hasArray()) {
+            return new String(src.array(), src.arrayOffset() + offset, length);
+        }
+        return new String(copy(src, offset, length));
+    }
+
+    /**
+     * @return a read-only buffer over [offset, offset + length) of the source,
+     *         sharing its content
+     */
+    static ByteBuffer slice(ByteBuffer src, int offset, int length) {
+        ByteBuffer duplicate = src.asReadOnlyBuffer();
+        ((Buffer) duplicate).limit(offset + length);
+        ((Buffer) duplicate).position(offset);
+        return duplicate.slice();
+    }
+
+    static void checkRange(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        }
+    }
+
+    /**
+     * Decode utf-8 bytes into the buffer at its position.
+     *
+     * @return number of chars written
+     * @throws BufferOverflowException if the buffer has not enough room, nothing
+     *                                 is written in that case
+     */
+    static int decodeUtf8(byte[] bytes, int offset, int length, CharBuffer dest) {
+        // a char never takes less than one byte, so counting is only needed when the room is tight
+        if (dest.remaining() < length && dest.remaining() < decodeOrCount(bytes, offset, length, null)) {
+            throw new BufferOverflowException();
+        }
+        return decodeOrCount(bytes, offset, length, dest);
+    }
+
+    /**
+     * Decode or only count when dest is null. Invalid bytes are replaced by
+     * U+FFFD with the same grouping as {@code new String(bytes, UTF_8)}, a
+     * complete sequence that encodes a surrogate or an overlong form is one
+     * replacement.
+     */
+    private static int decodeOrCount(byte[] bytes, int offset, int length, CharBuffer dest) {
+        int chars = 0;
+        int pos = offset;
+        int end = offset + length;
+        while (pos < end) {
+            int b1 = bytes[pos++] & 0xFF;
+            int code;
+            if (b1 < 0x80) {
+                code = b1;
+            } else if (b1 >= 0xC2 && b1 <= 0xDF) {
+                if (pos < end && isContinuation(bytes[pos])) {
+                    code = ((b1 & 0x1F) << 6) | (bytes[pos++] & 0x3F);
+                } else {
+                    code = -1;
+                }
+            } else if (b1 >= 0xE0 && b1 <= 0xEF) {
+                int b2 = pos < end ? bytes[pos] & 0xFF : -1;
+                if (b2 < 0 || !isContinuation(b2) || (b1 == 0xE0 && b2 < 0xA0)) {
+                    code = -1;
+                } else if (pos + 1 < end && isContinuation(bytes[pos + 1])) {
+                    code = ((b1 & 0x0F) << 12) | ((b2 & 0x3F) << 6) | (bytes[pos + 1] & 0x3F);
+                    pos += 2;
+                    if (Character.isSurrogate((char) code)) {
+                        code = -1;
+                    }
+                } else {
+                    pos++;
+                    code = -1;
+                }
+            } else if (b1 >= 0xF0 && b1 <= 0xF4) {
+                int b2 = pos < end ? bytes[pos] & 0xFF : -1;
+                if (b2 < 0 || !isContinuation(b2) || (b1 == 0xF0 && b2 < 0x90) || (b1 == 0xF4 && b2 > 0x8F)) {
+                    code = -1;
+                } else if (pos + 1 >= end || !isContinuation(bytes[pos + 1])) {
+                    pos++;
+                    code = -1;
+                } else if (pos + 2 >= end || !isContinuation(bytes[pos + 2])) {
+                    pos += 2;
+                    code = -1;
+                } else {
+                    code = ((b1 & 0x07) << 18) | ((b2 & 0x3F) << 12)
+                            | ((bytes[pos + 1] & 0x3F) << 6) | (bytes[pos + 2] & 0x3F);
+                    pos += 3;
+                }
+            } else {
+                code = -1;
+            }
+            if (code < 0) {
+                if (dest != null) {
+                    dest.put('\uFFFD');
+                }
+                chars++;
+            } else if (code >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (dest != null) {
+                    dest.put(Character.highSurrogate(code));
+                    dest.put(Character.lowSurrogate(code));
+                }
+                chars += 2;
+            } else {
+                if (dest != null) {
+                    dest.put((char) code);
+                }
+                chars++;
+            }
+        }
+        return chars;
+    }
+
+    private static boolean isContinuation(int b) {
+        return (b & 0xC0) == 0x80;
+    }
+}
@@ -5,7 +5,12 @@ package com.dtstack.openservices.log.common;
 
 public class Consts {
 	public enum CompressType {
-		NONE(""), LZ4(Consts.CONST_LZ4), GZIP(Consts.CONST_GZIP_ENCODING);
+		NONE(""), LZ4(Consts.CONST_LZ4), GZIP(Consts.CONST_GZIP_ENCODING),
+		/**
+		 * choose NONE, LZ4 or GZIP for each batch by recent compression results,
+		 * never sent to the server
+		 */
+		AUTO("auto");
 		
 		private String strValue;
 		
@@ -67,6 +72,8 @@ public class Consts {
 	public static final int DEFAULT_SLS_OFFSET = 0;
 	public static final String DEFAULT_SLS_QUERY = "";
 	public static final String DEFAULT_API_VESION = "0.6.0";
+	public static final int DEFAULT_QUERY_PAGE_SIZE = 100;
+	public static final int DEFAULT_QUERY_PREFETCH_PAGES = 2;
 	
 	public static final String DEFAULT_REQUEST_PARAM_GROUPNAME = "";
 	public static final String DEFAULT_REQUEST_PARAM_CONFIGNAME = "";
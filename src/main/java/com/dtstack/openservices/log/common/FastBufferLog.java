@@ -0,0 +1,111 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.util.ByteBufferProtoReader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     基于{@link ByteBuffer}的{@link FastLog}，偏移量都是buffer中的绝对下标，
+ *     与FastLog一样延迟解析。不是线程安全的。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class FastBufferLog {
+
+    private ByteBuffer buffer;
+    // [beginOffset, endOffset)
+    private int beginOffset;
+    private int endOffset;
+    private int time = -1;
+    // null until the first access
+    private FieldRanges contents;
+    // null until the first content is accessed
+    private FastBufferLogContent[] contentViews;
+
+    public FastBufferLog(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.beginOffset = offset;
+        this.endOffset = offset + length;
+    }
+
+    private FieldRanges contents() {
+        if (this.contents == null) {
+            FieldRanges ranges = new FieldRanges();
+            if (!parse(ranges)) {
+                ranges.clear();
+            }
+            this.contents = ranges;
+        }
+        return this.contents;
+    }
+
+    private boolean parse(FieldRanges ranges) {
+        ByteBufferProtoReader reader = new ByteBufferProtoReader(this.buffer, this.beginOffset,
+                this.endOffset - this.beginOffset);
+        boolean findTime = false;
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            int mode = reader.getWireType();
+            int index = reader.getFieldNumber();
+            if (mode == ByteBufferProtoReader.WIRETYPE_VARINT && index == 1) {
+                this.time = (int) reader.getVarint();
+                findTime = true;
+            } else if (mode == ByteBufferProtoReader.WIRETYPE_LENGTH_DELIMITED && index == 2) {
+                ranges.add(reader.getOffset(), reader.getLength());
+            }
+        }
+        return findTime;
+    }
+
+    public int getTime() {
+        contents();
+        return this.time;
+    }
+
+    public int getContentsCount() {
+        return contents().size();
+    }
+
+    public FastBufferLogContent getContents(int i) {
+        FieldRanges ranges = contents();
+        if (i < 0 || i >= ranges.size()) {
+            return null;
+        }
+        if (this.contentViews == null) {
+            this.contentViews = createContentViews(ranges);
+        }
+        return this.contentViews[i];
+    }
+
+    /**
+     * Find a content by its utf-8 key bytes without decoding any key.
+     *
+     * @return the first content with the key, null if there is none
+     */
+    public FastBufferLogContent findContent(byte[] key) {
+        int count = getContentsCount();
+        for (int i = 0; i < count; i++) {
+            FastBufferLogContent content = getContents(i);
+            if (content.keyEquals(key)) {
+                return content;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consumers that read one content usually read the others, so the views
+     * of a log are created together.
+     */
+    private FastBufferLogContent[] createContentViews(FieldRanges ranges) {
+        FastBufferLogContent[] views = new FastBufferLogContent[ranges.size()];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new FastBufferLogContent(this.buffer, ranges.offset(i), ranges.length(i));
+        }
+        return views;
+    }
+}
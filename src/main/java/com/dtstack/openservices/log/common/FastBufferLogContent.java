@@ -0,0 +1,173 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.util.ByteBufferProtoReader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     基于{@link ByteBuffer}的{@link FastLogContent}，偏移量都是buffer中的绝对下标。
+ *     需要按utf-8解码时可以把{@link #getValueBuffer()}交给CharsetDecoder，不经过byte数组。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class FastBufferLogContent {
+
+    private ByteBuffer buffer;
+    // [beginOffset, endOffset)
+    private int beginOffset;
+    private int endOffset;
+    private int keyOffset = -1;
+    private int keyLength = -1;
+    private int valueOffset = -1;
+    private int valueLength = -1;
+
+    public FastBufferLogContent(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.beginOffset = offset;
+        this.endOffset = offset + length;
+        if (!parse()) {
+            this.keyOffset = -1;
+            this.keyLength = -1;
+            this.valueOffset = -1;
+            this.valueLength = -1;
+        }
+    }
+
+    private boolean parse() {
+        ByteBufferProtoReader reader = new ByteBufferProtoReader(this.buffer, this.beginOffset,
+                this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            if (reader.getWireType() != ByteBufferProtoReader.WIRETYPE_LENGTH_DELIMITED) {
+                continue;
+            }
+            if (reader.getFieldNumber() == 1) {
+                keyOffset = reader.getOffset();
+                keyLength = reader.getLength();
+            } else if (reader.getFieldNumber() == 2) {
+                valueOffset = reader.getOffset();
+                valueLength = reader.getLength();
+            }
+        }
+        return (keyOffset != -1 && valueOffset != -1);
+    }
+
+    public String getKey() {
+        if (this.keyOffset < 0) {
+            return null;
+        }
+        return ByteRanges.decode(this.buffer, this.keyOffset, this.keyLength);
+    }
+
+    public String getValue() {
+        if (this.valueOffset < 0) {
+            return null;
+        }
+        return ByteRanges.decode(this.buffer, this.valueOffset, this.valueLength);
+    }
+
+    public byte[] getKeyBytes() {
+        if (this.keyOffset < 0) {
+            return null;
+        }
+        return ByteRanges.copy(this.buffer, this.keyOffset, this.keyLength);
+    }
+
+    public byte[] getValueBytes() {
+        if (this.valueOffset < 0) {
+            return null;
+        }
+        return ByteRanges.copy(this.buffer, this.valueOffset, this.valueLength);
+    }
+
+    /**
+     * @return a read-only buffer over the key bytes, null if the content is
+     *         invalid
+     */
+    public ByteBuffer getKeyBuffer() {
+        if (this.keyOffset < 0) {
+            return null;
+        }
+        return ByteRanges.slice(this.buffer, this.keyOffset, this.keyLength);
+    }
+
+    /**
+     * @return a read-only buffer over the value bytes, null if the content
+     *         is invalid
+     */
+    public ByteBuffer getValueBuffer() {
+        if (this.valueOffset < 0) {
+            return null;
+        }
+        return ByteRanges.slice(this.buffer, this.valueOffset, this.valueLength);
+    }
+
+    /**
+     * @return length of the key in bytes, -1 if the content is invalid
+     */
+    public int getKeyLength() {
+        return this.keyLength;
+    }
+
+    /**
+     * @return length of the value in bytes, -1 if the content is invalid
+     */
+    public int getValueLength() {
+        return this.valueLength;
+    }
+
+    /**
+     * Compare the key with utf-8 bytes without decoding it.
+     */
+    public boolean keyEquals(byte[] key) {
+        return keyEquals(key, 0, key.length);
+    }
+
+    public boolean keyEquals(byte[] key, int offset, int length) {
+        ByteRanges.checkRange(key, offset, length);
+        return this.keyOffset >= 0
+                && ByteRanges.equals(this.buffer, this.keyOffset, this.keyLength, key, offset, length);
+    }
+
+    /**
+     * Compare the value with utf-8 bytes without decoding it.
+     */
+    public boolean valueEquals(byte[] value) {
+        return valueEquals(value, 0, value.length);
+    }
+
+    public boolean valueEquals(byte[] value, int offset, int length) {
+        ByteRanges.checkRange(value, offset, length);
+        return this.valueOffset >= 0
+                && ByteRanges.equals(this.buffer, this.valueOffset, this.valueLength, value, offset, length);
+    }
+
+    public boolean valueStartsWith(byte[] prefix) {
+        return valueStartsWith(prefix, 0, prefix.length);
+    }
+
+    public boolean valueStartsWith(byte[] prefix, int offset, int length) {
+        ByteRanges.checkRange(prefix, offset, length);
+        return this.valueOffset >= 0
+                && ByteRanges.startsWith(this.buffer, this.valueOffset, this.valueLength, prefix, offset, length);
+    }
+
+    /**
+     * Copy the value bytes into the caller's buffer.
+     *
+     * @return number of bytes copied, -1 if the content is invalid
+     * @throws IndexOutOfBoundsException if the value does not fit
+     */
+    public int copyValueTo(byte[] dest, int destOffset) {
+        if (this.valueOffset < 0) {
+            return -1;
+        }
+        ByteRanges.checkRange(dest, destOffset, this.valueLength);
+        ByteRanges.copy(this.buffer, this.valueOffset, dest, destOffset, this.valueLength);
+        return this.valueLength;
+    }
+}
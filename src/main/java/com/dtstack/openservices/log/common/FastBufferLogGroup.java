@@ -0,0 +1,219 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.util.ByteBufferProtoReader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     基于{@link ByteBuffer}的{@link FastLogGroup}，堆内和堆外的buffer都可以使用，
+ *     只通过绝对位置的get读取，不修改buffer的position和limit，偏移量都是buffer中的绝对下标。
+ *     视图存活期间buffer的内容不能被修改或归还给缓冲池。不是线程安全的。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class FastBufferLogGroup {
+
+    private ByteBuffer buffer;
+    // [beginOffset, endOffset)
+    private int beginOffset;
+    private int endOffset;
+    private final FieldRanges logs = new FieldRanges();
+    private final FieldRanges tags = new FieldRanges();
+    private FastBufferLog[] logViews;
+    private FastBufferLogTag[] tagViews;
+    // [categoryFieldOffset, categoryFieldEnd) covers the whole category field to support getBytes of FastBufferLogGroup
+    private int categoryFieldOffset;
+    private int categoryFieldEnd;
+    private int categoryOffset;
+    private int categoryLength;
+    private int topicOffset;
+    private int topicLength;
+    private int sourceOffset;
+    private int sourceLength;
+    private int machineUUIDOffset;
+    private int machineUUIDLength;
+    private byte[] logGroupBytes = null;
+
+    public FastBufferLogGroup(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.beginOffset = offset;
+        this.endOffset = offset + length;
+        clearFields();
+        if (!parse()) {
+            this.logs.clear();
+            this.tags.clear();
+            clearFields();
+        }
+        this.logViews = new FastBufferLog[this.logs.size()];
+        this.tagViews = new FastBufferLogTag[this.tags.size()];
+    }
+
+    private void clearFields() {
+        this.categoryFieldOffset = -1;
+        this.categoryFieldEnd = -1;
+        this.categoryOffset = -1;
+        this.categoryLength = -1;
+        this.topicOffset = -1;
+        this.topicLength = -1;
+        this.sourceOffset = -1;
+        this.sourceLength = -1;
+        this.machineUUIDOffset = -1;
+        this.machineUUIDLength = -1;
+    }
+
+    private boolean parse() {
+        ByteBufferProtoReader reader = new ByteBufferProtoReader(this.buffer, this.beginOffset,
+                this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            int fieldOffset = reader.getPosition();
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            if (reader.getWireType() != ByteBufferProtoReader.WIRETYPE_LENGTH_DELIMITED) {
+                continue;
+            }
+            switch (reader.getFieldNumber()) {
+                case 1:
+                    this.logs.add(reader.getOffset(), reader.getLength());
+                    break;
+                case 2:
+                    this.categoryFieldOffset = fieldOffset;
+                    this.categoryFieldEnd = reader.getPosition();
+                    this.categoryOffset = reader.getOffset();
+                    this.categoryLength = reader.getLength();
+                    break;
+                case 3:
+                    this.topicOffset = reader.getOffset();
+                    this.topicLength = reader.getLength();
+                    break;
+                case 4:
+                    this.sourceOffset = reader.getOffset();
+                    this.sourceLength = reader.getLength();
+                    break;
+                case 5:
+                    this.machineUUIDOffset = reader.getOffset();
+                    this.machineUUIDLength = reader.getLength();
+                    break;
+                case 6:
+                    this.tags.add(reader.getOffset(), reader.getLength());
+                    break;
+                default:
+            }
+        }
+        return true;
+    }
+
+    public byte[] getBytes() {
+        if (this.logGroupBytes == null) {
+            int length = this.endOffset - this.beginOffset;
+            if (this.categoryFieldOffset < 0) {
+                this.logGroupBytes = new byte[length];
+                ByteRanges.copy(this.buffer, this.beginOffset, this.logGroupBytes, 0, length);
+            } else {
+                // remove category field for logGroup transmission
+                int prefixLength = this.categoryFieldOffset - this.beginOffset;
+                int postfixLength = this.endOffset - this.categoryFieldEnd;
+                logGroupBytes = new byte[prefixLength + postfixLength];
+                ByteRanges.copy(this.buffer, this.beginOffset, logGroupBytes, 0, prefixLength);
+                ByteRanges.copy(this.buffer, this.categoryFieldEnd, logGroupBytes, prefixLength, postfixLength);
+            }
+        }
+        return this.logGroupBytes;
+    }
+
+    public String getCategory() {
+        return decode(this.categoryOffset, this.categoryLength);
+    }
+
+    public String getTopic() {
+        return decode(this.topicOffset, this.topicLength);
+    }
+
+    public String getSource() {
+        return decode(this.sourceOffset, this.sourceLength);
+    }
+
+    public String getMachineUUID() {
+        return decode(this.machineUUIDOffset, this.machineUUIDLength);
+    }
+
+    public byte[] getCategoryBytes() {
+        return copy(this.categoryOffset, this.categoryLength);
+    }
+
+    public byte[] getTopicBytes() {
+        return copy(this.topicOffset, this.topicLength);
+    }
+
+    public byte[] getSourceBytes() {
+        return copy(this.sourceOffset, this.sourceLength);
+    }
+
+    public byte[] getMachineUUIDBytes() {
+        return copy(this.machineUUIDOffset, this.machineUUIDLength);
+    }
+
+    private String decode(int offset, int length) {
+        if (offset < 0) {
+            return null;
+        }
+        return ByteRanges.decode(this.buffer, offset, length);
+    }
+
+    private byte[] copy(int offset, int length) {
+        if (offset < 0) {
+            return null;
+        }
+        return ByteRanges.copy(this.buffer, offset, length);
+    }
+
+    public int getLogTagsCount() {
+        return this.tags.size();
+    }
+
+    public FastBufferLogTag getLogTags(int i) {
+        if (i < 0 || i >= this.tags.size()) {
+            return null;
+        }
+        FastBufferLogTag tag = this.tagViews[i];
+        if (tag == null) {
+            tag = new FastBufferLogTag(this.buffer, this.tags.offset(i), this.tags.length(i));
+            this.tagViews[i] = tag;
+        }
+        return tag;
+    }
+
+    public int getLogsCount() {
+        return this.logs.size();
+    }
+
+    public FastBufferLog getLogs(int i) {
+        if (i < 0 || i >= this.logs.size()) {
+            return null;
+        }
+        FastBufferLog log = this.logViews[i];
+        if (log == null) {
+            log = new FastBufferLog(this.buffer, this.logs.offset(i), this.logs.length(i));
+            this.logViews[i] = log;
+        }
+        return log;
+    }
+
+    public boolean hasCategory() {
+        return this.categoryFieldOffset >= 0;
+    }
+
+    public boolean hasTopic() {
+        return this.topicOffset >= 0;
+    }
+
+    public boolean hasSource() {
+        return this.sourceOffset >= 0;
+    }
+
+    public boolean hasMachineUUID() {
+        return this.machineUUIDOffset >= 0;
+    }
+}
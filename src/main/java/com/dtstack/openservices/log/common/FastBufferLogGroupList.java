@@ -0,0 +1,123 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.util.ByteBufferProtoReader;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ *     基于{@link ByteBuffer}的{@link FastLogGroupList}，可以直接解析读入堆外buffer的拉取结果，
+ *     不需要先复制到byte数组。与{@link FastBufferLogGroup}一样不是线程安全的。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class FastBufferLogGroupList extends AbstractList<FastBufferLogGroup> implements RandomAccess {
+
+    private final ByteBuffer buffer;
+    // [beginOffset, endOffset)
+    private final int beginOffset;
+    private final int endOffset;
+    private final FieldRanges ranges = new FieldRanges();
+    private final FastBufferLogGroup[] groups;
+    private final boolean valid;
+
+    /**
+     * View the bytes between the position and the limit of the buffer.
+     */
+    public FastBufferLogGroupList(ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.remaining());
+    }
+
+    public FastBufferLogGroupList(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.beginOffset = offset;
+        this.endOffset = offset + length;
+        this.valid = parse();
+        if (!this.valid) {
+            this.ranges.clear();
+        }
+        this.groups = new FastBufferLogGroup[this.ranges.size()];
+    }
+
+    private boolean parse() {
+        ByteBufferProtoReader reader = new ByteBufferProtoReader(this.buffer, this.beginOffset,
+                this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            if (reader.getWireType() == ByteBufferProtoReader.WIRETYPE_LENGTH_DELIMITED && reader.getFieldNumber() == 1) {
+                this.ranges.add(reader.getOffset(), reader.getLength());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the bytes are not a valid LogGroupList, the list is
+     *         empty in that case
+     */
+    public boolean isValid() {
+        return this.valid;
+    }
+
+    public ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    public int getLogGroupsCount() {
+        return this.ranges.size();
+    }
+
+    /**
+     * @return the view of the i-th log group, created on the first access,
+     *         null if out of range
+     */
+    public FastBufferLogGroup getLogGroups(int i) {
+        if (i < 0 || i >= this.ranges.size()) {
+            return null;
+        }
+        FastBufferLogGroup group = this.groups[i];
+        if (group == null) {
+            group = new FastBufferLogGroup(this.buffer, this.ranges.offset(i), this.ranges.length(i));
+            this.groups[i] = group;
+        }
+        return group;
+    }
+
+    /**
+     * @return offset of the i-th log group in the raw bytes
+     */
+    public int getLogGroupOffset(int i) {
+        checkIndex(i);
+        return this.ranges.offset(i);
+    }
+
+    /**
+     * @return length of the i-th log group in the raw bytes
+     */
+    public int getLogGroupLength(int i) {
+        checkIndex(i);
+        return this.ranges.length(i);
+    }
+
+    @Override
+    public FastBufferLogGroup get(int index) {
+        checkIndex(index);
+        return getLogGroups(index);
+    }
+
+    @Override
+    public int size() {
+        return this.ranges.size();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.ranges.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.ranges.size());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.util.ByteBufferProtoReader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     基于{@link ByteBuffer}的{@link FastLogTag}，偏移量都是buffer中的绝对下标。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class FastBufferLogTag {
+
+    private ByteBuffer buffer;
+    // [beginOffset, endOffset)
+    private int beginOffset;
+    private int endOffset;
+    private int keyOffset = -1;
+    private int keyLength = -1;
+    private int valueOffset = -1;
+    private int valueLength = -1;
+
+    public FastBufferLogTag(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.beginOffset = offset;
+        this.endOffset = offset + length;
+        if (!parse()) {
+            this.keyOffset = -1;
+            this.keyLength = -1;
+            this.valueOffset = -1;
+            this.valueLength = -1;
+        }
+    }
+
+    private boolean parse() {
+        ByteBufferProtoReader reader = new ByteBufferProtoReader(this.buffer, this.beginOffset,
+                this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            if (reader.getWireType() != ByteBufferProtoReader.WIRETYPE_LENGTH_DELIMITED) {
+                continue;
+            }
+            if (reader.getFieldNumber() == 1) {
+                keyOffset = reader.getOffset();
+                keyLength = reader.getLength();
+            } else if (reader.getFieldNumber() == 2) {
+                valueOffset = reader.getOffset();
+                valueLength = reader.getLength();
+            }
+        }
+        return (keyOffset != -1 && valueOffset != -1);
+    }
+
+    public String getKey() {
+        if (this.keyOffset < 0) {
+            return null;
+        }
+        return ByteRanges.decode(this.buffer, this.keyOffset, this.keyLength);
+    }
+
+    public String getValue() {
+        if (this.valueOffset < 0) {
+            return null;
+        }
+        return ByteRanges.decode(this.buffer, this.valueOffset, this.valueLength);
+    }
+
+    public byte[] getKeyBytes() {
+        if (this.keyOffset < 0) {
+            return null;
+        }
+        return ByteRanges.copy(this.buffer, this.keyOffset, this.keyLength);
+    }
+
+    public byte[] getValueBytes() {
+        if (this.valueOffset < 0) {
+            return null;
+        }
+        return ByteRanges.copy(this.buffer, this.valueOffset, this.valueLength);
+    }
+}
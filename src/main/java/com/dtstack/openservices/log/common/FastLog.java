@@ -1,9 +1,13 @@
 package com.dtstack.openservices.log.common;
 
-import com.dtstack.openservices.log.util.VarintUtil;
-
-import java.util.ArrayList;
+import com.dtstack.openservices.log.util.ProtoReader;
 
+/**
+ * <p>
+ *     Log的只读视图。构造时不解析，第一次访问时间或内容时才扫描一遍，
+ *     只记录各Content的范围，第一次访问Content时才创建全部{@link FastLogContent}。不是线程安全的。
+ * </p>
+ */
 public class FastLog {
 
     private byte[] rawBytes;
@@ -11,75 +15,93 @@ public class FastLog {
     private int beginOffset;
     private int endOffset;
     private int time = -1;
-    private ArrayList<FastLogContent> contents;
+    // null until the first access
+    private FieldRanges contents;
+    // null until the first content is accessed
+    private FastLogContent[] contentViews;
 
     public FastLog(byte[] rawBytes, int offset, int length) {
 
         this.rawBytes = rawBytes;
         this.beginOffset = offset;
         this.endOffset = offset + length;
-        this.contents = new ArrayList<FastLogContent>();
-        if (!parse()) {
-            this.contents.clear();
+    }
+
+    private FieldRanges contents() {
+        if (this.contents == null) {
+            FieldRanges ranges = new FieldRanges();
+            if (!parse(ranges)) {
+                ranges.clear();
+            }
+            this.contents = ranges;
         }
+        return this.contents;
     }
 
-    private boolean parse() {
-        int pos = this.beginOffset;
-        int mode, index;
+    private boolean parse(FieldRanges ranges) {
+        ProtoReader reader = new ProtoReader(this.rawBytes, this.beginOffset, this.endOffset - this.beginOffset);
         boolean findTime = false;
-        while (pos < this.endOffset) {
-            int value[] = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-            if (value[0] == 0) {
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
                 return false;
             }
-            mode = value[1] & 0x7;
-            index = value[1] >> 3;
-            if (mode == 0) {
-                pos = value[2];
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2];
-                if (index == 1) {
-                    this.time = value[1];
-                    findTime = true;
-                }
-            } else if (mode == 1) {
-                pos = value[2] + 8;
-            } else if (mode == 2) {
-                pos = value[2];
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2] + value[1];
-                if (index == 2) {
-                    this.contents.add(new FastLogContent(this.rawBytes, value[2], value[1]));
-                }
-            } else if (mode == 5) {
-                pos = value[2] + 4;
-            } else {
-                return false;
+            int mode = reader.getWireType();
+            int index = reader.getFieldNumber();
+            if (mode == ProtoReader.WIRETYPE_VARINT && index == 1) {
+                this.time = (int) reader.getVarint();
+                findTime = true;
+            } else if (mode == ProtoReader.WIRETYPE_LENGTH_DELIMITED && index == 2) {
+                ranges.add(reader.getOffset(), reader.getLength());
             }
         }
-        return findTime && (pos == this.endOffset);
+        return findTime;
     }
 
     public int getTime() {
+        contents();
         return this.time;
     }
 
     public int getContentsCount() {
-        return this.contents.size();
+        return contents().size();
     }
 
     public FastLogContent getContents(int i) {
-        if (i < this.contents.size()) {
-            return this.contents.get(i);
-        } else {
+        FieldRanges ranges = contents();
+        if (i < 0 || i >= ranges.size()) {
             return null;
         }
+        if (this.contentViews == null) {
+            this.contentViews = createContentViews(ranges);
+        }
+        return this.contentViews[i];
+    }
+
+    /**
+     * Find a content by its utf-8 key bytes without decoding any key.
+     *
+     * @return the first content with the key, null if there is none
+     */
+    public FastLogContent findContent(byte[] key) {
+        int count = getContentsCount();
+        for (int i = 0; i < count; i++) {
+            FastLogContent content = getContents(i);
+            if (content.keyEquals(key)) {
+                return content;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consumers that read one content usually read the others, so the views
+     * of a log are created together.
+     */
+    private FastLogContent[] createContentViews(FieldRanges ranges) {
+        FastLogContent[] views = new FastLogContent[ranges.size()];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new FastLogContent(this.rawBytes, ranges.offset(i), ranges.length(i));
+        }
+        return views;
     }
 }
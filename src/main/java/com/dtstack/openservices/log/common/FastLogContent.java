@@ -1,6 +1,9 @@
 package com.dtstack.openservices.log.common;
 
-import com.dtstack.openservices.log.util.VarintUtil;
+import com.dtstack.openservices.log.util.ProtoReader;
+
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
 
 public class FastLogContent {
 
@@ -26,44 +29,23 @@ public class FastLogContent {
     }
 
     private boolean parse() {
-        int pos = this.beginOffset;
-        int index, mode;
-        while (pos < this.endOffset) {
-            int value[] = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-            if (value[0] == 0) {
+        ProtoReader reader = new ProtoReader(this.rawBytes, this.beginOffset, this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
                 return false;
             }
-            mode = value[1] & 0x7;
-            index = value[1] >> 3;
-            pos = value[2];
-            if (mode == 0) {
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2];
-            } else if (mode == 1) {
-                pos += 8;
-            } else if (mode == 2) {
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2] + value[1];
-                if (index == 1) {
-                    keyOffset = value[2];
-                    keyLength = value[1];
-                } else if (index == 2) {
-                    valueOffset = value[2];
-                    valueLength = value[1];
-                }
-            } else if (mode == 5) {
-                pos += 4;
-            } else {
-                return false;
+            if (reader.getWireType() != ProtoReader.WIRETYPE_LENGTH_DELIMITED) {
+                continue;
+            }
+            if (reader.getFieldNumber() == 1) {
+                keyOffset = reader.getOffset();
+                keyLength = reader.getLength();
+            } else if (reader.getFieldNumber() == 2) {
+                valueOffset = reader.getOffset();
+                valueLength = reader.getLength();
             }
         }
-        return (keyOffset != -1 && valueOffset != -1 && pos == this.endOffset);
+        return (keyOffset != -1 && valueOffset != -1);
     }
 
     public String getKey() {
@@ -97,4 +79,84 @@ public class FastLogContent {
         System.arraycopy(this.rawBytes, this.valueOffset, valueBytes, 0, this.valueLength);
         return valueBytes;
     }
+
+    /**
+     * @return length of the key in bytes, -1 if the content is invalid
+     */
+    public int getKeyLength() {
+        return this.keyLength;
+    }
+
+    /**
+     * @return length of the value in bytes, -1 if the content is invalid
+     */
+    public int getValueLength() {
+        return this.valueLength;
+    }
+
+    /**
+     * Compare the key with utf-8 bytes without decoding it.
+     */
+    public boolean keyEquals(byte[] key) {
+        return keyEquals(key, 0, key.length);
+    }
+
+    public boolean keyEquals(byte[] key, int offset, int length) {
+        ByteRanges.checkRange(key, offset, length);
+        return this.keyOffset >= 0
+                && ByteRanges.equals(this.rawBytes, this.keyOffset, this.keyLength, key, offset, length);
+    }
+
+    /**
+     * Compare the value with utf-8 bytes without decoding it.
+     */
+    public boolean valueEquals(byte[] value) {
+        return valueEquals(value, 0, value.length);
+    }
+
+    public boolean valueEquals(byte[] value, int offset, int length) {
+        ByteRanges.checkRange(value, offset, length);
+        return this.valueOffset >= 0
+                && ByteRanges.equals(this.rawBytes, this.valueOffset, this.valueLength, value, offset, length);
+    }
+
+    public boolean valueStartsWith(byte[] prefix) {
+        return valueStartsWith(prefix, 0, prefix.length);
+    }
+
+    public boolean valueStartsWith(byte[] prefix, int offset, int length) {
+        ByteRanges.checkRange(prefix, offset, length);
+        return this.valueOffset >= 0
+                && ByteRanges.startsWith(this.rawBytes, this.valueOffset, this.valueLength, prefix, offset, length);
+    }
+
+    /**
+     * Copy the value bytes into the caller's buffer.
+     *
+     * @return number of bytes copied, -1 if the content is invalid
+     * @throws IndexOutOfBoundsException if the value does not fit
+     */
+    public int copyValueTo(byte[] dest, int destOffset) {
+        if (this.valueOffset < 0) {
+            return -1;
+        }
+        ByteRanges.checkRange(dest, destOffset, this.valueLength);
+        System.arraycopy(this.rawBytes, this.valueOffset, dest, destOffset, this.valueLength);
+        return this.valueLength;
+    }
+
+    /**
+     * Decode the utf-8 value into the buffer at its position, the buffer
+     * position is advanced.
+     *
+     * @return number of chars written, -1 if the content is invalid
+     * @throws BufferOverflowException if the value does not fit, nothing is
+     *                                 written in that case
+     */
+    public int decodeValueTo(CharBuffer dest) {
+        if (this.valueOffset < 0) {
+            return -1;
+        }
+        return ByteRanges.decodeUtf8(this.rawBytes, this.valueOffset, this.valueLength, dest);
+    }
 }
@@ -1,247 +1,169 @@
 package com.dtstack.openservices.log.common;
 
-import com.dtstack.openservices.log.util.VarintUtil;
-
-import java.util.ArrayList;
-
+import com.dtstack.openservices.log.util.ProtoReader;
+
+/**
+ * <p>
+ *     LogGroup的只读视图。构造时只扫描LogGroup自身的字段，日志和标签只记录范围，
+ *     {@link FastLog}和{@link FastLogTag}在第一次访问时创建并缓存，日志内容也在访问时才解析。
+ *     不是线程安全的。
+ * </p>
+ */
 public class FastLogGroup {
 
     private byte[] rawBytes;
     // [beginOffset, endOffset)
     private int beginOffset;
     private int endOffset;
-    private ArrayList<FastLog> logs;
-    private ArrayList<FastLogTag> tags;
-    private int categoryOffset; //contain two varint to support getBytes of FastLogGroup
+    private final FieldRanges logs = new FieldRanges();
+    private final FieldRanges tags = new FieldRanges();
+    private FastLog[] logViews;
+    private FastLogTag[] tagViews;
+    // [categoryFieldOffset, categoryFieldEnd) covers the whole category field to support getBytes of FastLogGroup
+    private int categoryFieldOffset;
+    private int categoryFieldEnd;
+    private int categoryOffset;
+    private int categoryLength;
     private int topicOffset;
+    private int topicLength;
     private int sourceOffset;
+    private int sourceLength;
     private int machineUUIDOffset;
+    private int machineUUIDLength;
     private byte[] logGroupBytes = null;
 
     public FastLogGroup(byte[] rawBytes, int offset, int length) {
         this.rawBytes = rawBytes;
         this.beginOffset = offset;
         this.endOffset = offset + length;
-        this.categoryOffset = -1;
-        this.topicOffset = -1;
-        this.sourceOffset = -1;
-        this.machineUUIDOffset = -1;
-        this.logs = new ArrayList<FastLog>();
-        this.tags = new ArrayList<FastLogTag>();
+        clearFields();
         if (!parse()) {
             this.logs.clear();
             this.tags.clear();
-            this.categoryOffset = -1;
-            this.topicOffset = -1;
-            this.sourceOffset = -1;
-            this.machineUUIDOffset = -1;
+            clearFields();
         }
+        this.logViews = new FastLog[this.logs.size()];
+        this.tagViews = new FastLogTag[this.tags.size()];
+    }
+
+    private void clearFields() {
+        this.categoryFieldOffset = -1;
+        this.categoryFieldEnd = -1;
+        this.categoryOffset = -1;
+        this.categoryLength = -1;
+        this.topicOffset = -1;
+        this.topicLength = -1;
+        this.sourceOffset = -1;
+        this.sourceLength = -1;
+        this.machineUUIDOffset = -1;
+        this.machineUUIDLength = -1;
     }
 
     private boolean parse() {
-        int pos = this.beginOffset;
-        int mode, index;
-        while (pos < this.endOffset) {
-            int value[] = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-            if (value[0] == 0) {
+        ProtoReader reader = new ProtoReader(this.rawBytes, this.beginOffset, this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            int fieldOffset = reader.getPosition();
+            if (!reader.readTag() || !reader.skipField()) {
                 return false;
             }
-            mode = value[1] & 0x7;
-            index = value[1] >> 3;
-            if (mode == 0) {
-                pos = value[2];
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2];
-            } else if (mode == 1) {
-                pos = value[2] + 8;
-            } else if (mode == 2) {
-                switch (index) {
-                    case 1:
-                        //logs
-                        break;
-                    case 2:
-                        this.categoryOffset = pos;
-                        break;
-                    case 3:
-                        this.topicOffset = value[2];
-                        break;
-                    case 4:
-                        this.sourceOffset = value[2];
-                        break;
-                    case 5:
-                        this.machineUUIDOffset = value[2];
-                        break;
-                    case 6:
-                        //tags
-                        break;
-                    default:
-                }
-                pos = value[2];
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2] + value[1];
-                if (index == 1) {
-                    this.logs.add(new FastLog(this.rawBytes, value[2], value[1]));
-                } else if (index == 6) {
-                    this.tags.add(new FastLogTag(this.rawBytes, value[2], value[1]));
-                }
-            } else if (mode == 5) {
-                pos = value[2] + 4;
-            } else {
-                return false;
+            if (reader.getWireType() != ProtoReader.WIRETYPE_LENGTH_DELIMITED) {
+                continue;
+            }
+            switch (reader.getFieldNumber()) {
+                case 1:
+                    this.logs.add(reader.getOffset(), reader.getLength());
+                    break;
+                case 2:
+                    this.categoryFieldOffset = fieldOffset;
+                    this.categoryFieldEnd = reader.getPosition();
+                    this.categoryOffset = reader.getOffset();
+                    this.categoryLength = reader.getLength();
+                    break;
+                case 3:
+                    this.topicOffset = reader.getOffset();
+                    this.topicLength = reader.getLength();
+                    break;
+                case 4:
+                    this.sourceOffset = reader.getOffset();
+                    this.sourceLength = reader.getLength();
+                    break;
+                case 5:
+                    this.machineUUIDOffset = reader.getOffset();
+                    this.machineUUIDLength = reader.getLength();
+                    break;
+                case 6:
+                    this.tags.add(reader.getOffset(), reader.getLength());
+                    break;
+                default:
             }
         }
-        return (pos == this.endOffset);
+        return true;
     }
 
     public byte[] getBytes() {
         if (this.logGroupBytes == null) {
             int length = this.endOffset - this.beginOffset;
-            if (this.categoryOffset < 0) {
+            if (this.categoryFieldOffset < 0) {
                 this.logGroupBytes = new byte[length];
                 System.arraycopy(this.rawBytes, this.beginOffset, this.logGroupBytes, 0, length);
             } else {
                 // remove category field for logGroup transmission
-                int prefixLength = this.categoryOffset - this.beginOffset;
-                int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.categoryOffset, this.endOffset);
-                if (value[0] == 0) {
-                    return null;
-                }
-                int mode = value[1] & 0x7;
-                int index = value[1] >> 3;
-                if (mode != 2 && index != 2) {
-                    return null;
-                }
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, value[2], this.endOffset);
-                if (value[0] == 0) {
-                    return null;
-                }
-                int postfixLength = this.endOffset - value[2] - value[1];
+                int prefixLength = this.categoryFieldOffset - this.beginOffset;
+                int postfixLength = this.endOffset - this.categoryFieldEnd;
                 logGroupBytes = new byte[prefixLength + postfixLength];
                 System.arraycopy(this.rawBytes, this.beginOffset, logGroupBytes, 0, prefixLength);
-                System.arraycopy(this.rawBytes, value[1] + value[2], logGroupBytes, prefixLength, postfixLength);
+                System.arraycopy(this.rawBytes, this.categoryFieldEnd, logGroupBytes, prefixLength, postfixLength);
             }
         }
         return this.logGroupBytes;
     }
 
     public String getCategory() {
-        if (this.categoryOffset < 0) {
-            return null;
-        }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.categoryOffset, this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        int mode = value[1] & 0x7;
-        int index = value[1] >> 3;
-        if (mode != 2 && index != 2) {
-            return null;
-        }
-        value = VarintUtil.DecodeVarInt32(this.rawBytes, value[2], this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        return new String(this.rawBytes, value[2], value[1]);
+        return decode(this.categoryOffset, this.categoryLength);
     }
 
     public String getTopic() {
-        if (this.topicOffset < 0) {
-            return null;
-        }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.topicOffset, this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        return new String(this.rawBytes, value[2], value[1]);
+        return decode(this.topicOffset, this.topicLength);
     }
 
     public String getSource() {
-        if (this.sourceOffset < 0) {
-            return null;
-        }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.sourceOffset, this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        return new String(this.rawBytes, value[2], value[1]);
+        return decode(this.sourceOffset, this.sourceLength);
     }
 
     public String getMachineUUID() {
-        if (this.machineUUIDOffset < 0) {
-            return null;
-        }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.machineUUIDOffset, this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        return new String(this.rawBytes, value[2], value[1]);
+        return decode(this.machineUUIDOffset, this.machineUUIDLength);
     }
 
     public byte[] getCategoryBytes() {
-        if (this.categoryOffset < 0) {
-            return null;
-        }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.categoryOffset, this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        int mode = value[1] & 0x7;
-        int index = value[1] >> 3;
-        if (mode != 2 && index != 2) {
-            return null;
-        }
-        value = VarintUtil.DecodeVarInt32(this.rawBytes, value[2], this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        byte[] categoryBytes = new byte[value[1]];
-        System.arraycopy(this.rawBytes, value[2], categoryBytes, 0, value[1]);
-        return categoryBytes;
+        return copy(this.categoryOffset, this.categoryLength);
     }
 
     public byte[] getTopicBytes() {
-        if (this.topicOffset < 0) {
-            return null;
-        }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.topicOffset, this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        byte[] topicBytes = new byte[value[1]];
-        System.arraycopy(this.rawBytes, value[2], topicBytes, 0, value[1]);
-        return topicBytes;
+        return copy(this.topicOffset, this.topicLength);
     }
 
     public byte[] getSourceBytes() {
-        if (this.sourceOffset < 0) {
-            return null;
-        }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.sourceOffset, this.endOffset);
-        if (value[0] == 0) {
-            return null;
-        }
-        byte[] sourceBytes = new byte[value[1]];
-        System.arraycopy(this.rawBytes, value[2], sourceBytes, 0, value[1]);
-        return sourceBytes;
+        return copy(this.sourceOffset, this.sourceLength);
     }
 
     public byte[] getMachineUUIDBytes() {
-        if (this.machineUUIDOffset < 0) {
+        return copy(this.machineUUIDOffset, this.machineUUIDLength);
+    }
+
+    private String decode(int offset, int length) {
+        if (offset < 0) {
             return null;
         }
-        int[] value = VarintUtil.DecodeVarInt32(this.rawBytes, this.machineUUIDOffset, this.endOffset);
-        if (value[0] == 0) {
+        return new String(this.rawBytes, offset, length);
+    }
+
+    private byte[] copy(int offset, int length) {
+        if (offset < 0) {
             return null;
         }
-        byte[] machineUUIDBytes = new byte[value[1]];
-        System.arraycopy(this.rawBytes, value[2], machineUUIDBytes, 0, value[1]);
-        return machineUUIDBytes;
+        byte[] bytes = new byte[length];
+        System.arraycopy(this.rawBytes, offset, bytes, 0, length);
+        return bytes;
     }
 
     public int getLogTagsCount() {
@@ -249,11 +171,15 @@ public class FastLogGroup {
     }
 
     public FastLogTag getLogTags(int i) {
-        if (i < this.tags.size()) {
-            return this.tags.get(i);
-        } else {
+        if (i < 0 || i >= this.tags.size()) {
             return null;
         }
+        FastLogTag tag = this.tagViews[i];
+        if (tag == null) {
+            tag = new FastLogTag(this.rawBytes, this.tags.offset(i), this.tags.length(i));
+            this.tagViews[i] = tag;
+        }
+        return tag;
     }
 
     public int getLogsCount() {
@@ -261,15 +187,37 @@ public class FastLogGroup {
     }
 
     public FastLog getLogs(int i) {
-        if (i < this.logs.size()) {
-            return this.logs.get(i);
-        } else {
+        if (i < 0 || i >= this.logs.size()) {
             return null;
         }
+        FastLog log = this.logViews[i];
+        if (log == null) {
+            log = new FastLog(this.rawBytes, this.logs.offset(i), this.logs.length(i));
+            this.logViews[i] = log;
+        }
+        return log;
+    }
+
+    /**
+     * @return offset of the i-th log in the raw bytes
+     */
+    int getLogOffset(int i) {
+        return this.logs.offset(i);
+    }
+
+    /**
+     * @return length of the i-th log in the raw bytes
+     */
+    int getLogLength(int i) {
+        return this.logs.length(i);
+    }
+
+    byte[] getRawBytes() {
+        return this.rawBytes;
     }
 
     public boolean hasCategory() {
-        return this.categoryOffset >= 0;
+        return this.categoryFieldOffset >= 0;
     }
 
     public boolean hasTopic() {
@@ -0,0 +1,119 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.util.ProtoReader;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ *     LogGroupList的只读视图，构造时只扫描一遍记录每个LogGroup字段的边界，不复制数据；
+ *     {@link FastLogGroup}在第一次访问时才基于同一个byte数组创建并缓存。
+ *     与{@link FastLogGroup}一样不是线程安全的。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class FastLogGroupList extends AbstractList<FastLogGroup> implements RandomAccess {
+
+    private final byte[] rawBytes;
+    // [beginOffset, endOffset)
+    private final int beginOffset;
+    private final int endOffset;
+    private final FieldRanges ranges = new FieldRanges();
+    private final FastLogGroup[] groups;
+    private final boolean valid;
+
+    public FastLogGroupList(byte[] rawBytes) {
+        this(rawBytes, 0, rawBytes.length);
+    }
+
+    public FastLogGroupList(byte[] rawBytes, int offset, int length) {
+        this.rawBytes = rawBytes;
+        this.beginOffset = offset;
+        this.endOffset = offset + length;
+        this.valid = parse();
+        if (!this.valid) {
+            this.ranges.clear();
+        }
+        this.groups = new FastLogGroup[this.ranges.size()];
+    }
+
+    private boolean parse() {
+        ProtoReader reader = new ProtoReader(this.rawBytes, this.beginOffset, this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            if (reader.getWireType() == ProtoReader.WIRETYPE_LENGTH_DELIMITED && reader.getFieldNumber() == 1) {
+                this.ranges.add(reader.getOffset(), reader.getLength());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the bytes are not a valid LogGroupList, the list is
+     *         empty in that case
+     */
+    public boolean isValid() {
+        return this.valid;
+    }
+
+    public byte[] getRawBytes() {
+        return this.rawBytes;
+    }
+
+    public int getLogGroupsCount() {
+        return this.ranges.size();
+    }
+
+    /**
+     * @return the view of the i-th log group, created on the first access,
+     *         null if out of range
+     */
+    public FastLogGroup getLogGroups(int i) {
+        if (i < 0 || i >= this.ranges.size()) {
+            return null;
+        }
+        FastLogGroup group = this.groups[i];
+        if (group == null) {
+            group = new FastLogGroup(this.rawBytes, this.ranges.offset(i), this.ranges.length(i));
+            this.groups[i] = group;
+        }
+        return group;
+    }
+
+    /**
+     * @return offset of the i-th log group in the raw bytes
+     */
+    public int getLogGroupOffset(int i) {
+        checkIndex(i);
+        return this.ranges.offset(i);
+    }
+
+    /**
+     * @return length of the i-th log group in the raw bytes
+     */
+    public int getLogGroupLength(int i) {
+        checkIndex(i);
+        return this.ranges.length(i);
+    }
+
+    @Override
+    public FastLogGroup get(int index) {
+        checkIndex(index);
+        return getLogGroups(index);
+    }
+
+    @Override
+    public int size() {
+        return this.ranges.size();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.ranges.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.ranges.size());
+        }
+    }
+}
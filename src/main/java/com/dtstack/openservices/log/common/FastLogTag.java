@@ -1,6 +1,6 @@
 package com.dtstack.openservices.log.common;
 
-import com.dtstack.openservices.log.util.VarintUtil;
+import com.dtstack.openservices.log.util.ProtoReader;
 
 public class FastLogTag {
 
@@ -26,44 +26,23 @@ public class FastLogTag {
     }
 
     private boolean parse() {
-        int pos = this.beginOffset;
-        int mode, index;
-        while (pos < this.endOffset) {
-            int value[] = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-            if (value[0] == 0) {
+        ProtoReader reader = new ProtoReader(this.rawBytes, this.beginOffset, this.endOffset - this.beginOffset);
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
                 return false;
             }
-            pos = value[2];
-            mode = value[1] & 0x7;
-            index = value[1] >> 3;
-            if (mode == 0) {
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2];
-            } else if (mode == 1) {
-                pos += 8;
-            } else if (mode == 2) {
-                value = VarintUtil.DecodeVarInt32(this.rawBytes, pos, this.endOffset);
-                if (value[0] == 0) {
-                    return false;
-                }
-                pos = value[2] + value[1];
-                if (index == 1) {
-                    keyOffset = value[2];
-                    keyLength = value[1];
-                } else if (index == 2) {
-                    valueOffset = value[2];
-                    valueLength = value[1];
-                }
-            } else if (mode == 5) {
-                pos += 4;
-            } else {
-                return false;
+            if (reader.getWireType() != ProtoReader.WIRETYPE_LENGTH_DELIMITED) {
+                continue;
+            }
+            if (reader.getFieldNumber() == 1) {
+                keyOffset = reader.getOffset();
+                keyLength = reader.getLength();
+            } else if (reader.getFieldNumber() == 2) {
+                valueOffset = reader.getOffset();
+                valueLength = reader.getLength();
             }
         }
-        return (keyOffset != -1 && valueOffset != -1 && pos == this.endOffset);
+        return (keyOffset != -1 && valueOffset != -1);
     }
 
     public String getKey() {
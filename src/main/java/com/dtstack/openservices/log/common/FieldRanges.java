@@ -0,0 +1,46 @@
+package com.dtstack.openservices.log.common;
+
+/**
+ * <p>
+ *     按出现顺序记录重复字段在原始数据中的[offset, offset + length)范围，
+ *     交错保存在一个int数组中，供Fast*视图延迟创建子视图。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class FieldRanges {
+
+    private static final int[] EMPTY = new int[0];
+
+    // offset and length of each range, interleaved
+    private int[] ranges = EMPTY;
+    private int count;
+
+    void add(int offset, int length) {
+        int index = this.count << 1;
+        if (index == this.ranges.length) {
+            int[] grown = new int[Math.max(16, index * 2)];
+            System.arraycopy(this.ranges, 0, grown, 0, index);
+            this.ranges = grown;
+        }
+        this.ranges[index] = offset;
+        this.ranges[index + 1] = length;
+        this.count++;
+    }
+
+    void clear() {
+        this.count = 0;
+    }
+
+    int size() {
+        return this.count;
+    }
+
+    int offset(int i) {
+        return this.ranges[i << 1];
+    }
+
+    int length(int i) {
+        return this.ranges[(i << 1) + 1];
+    }
+}
@@ -18,44 +18,63 @@ import net.jpountz.lz4.LZ4FastDecompressor;
  * 
  */
 public class LZ4Encoder {
-	
+
+	private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+	private static final LZ4Compressor COMPRESSOR = FACTORY.fastCompressor();
+
+	private static final LZ4FastDecompressor DECOMPRESSOR = FACTORY.fastDecompressor();
+
 	public static byte[] compressToLhLz4Chunk(byte[] data) throws LogException
 	{
-		final int rawSize = data.length;
-		LZ4Factory factory = LZ4Factory.fastestInstance();
-		
-		// compress data
-		LZ4Compressor compressor = factory.fastCompressor();
-		
-		int maxCompressedLength = compressor.maxCompressedLength(rawSize);
-		int encodingSize = 0;
-		byte[] rawCompressed = new byte[maxCompressedLength];
+		byte[] rawCompressed = new byte[maxCompressedLength(data.length)];
+		int encodingSize = compress(data, 0, data.length, rawCompressed, 0, rawCompressed.length);
+
+		byte[] ret = new byte[encodingSize];
+		System.arraycopy(rawCompressed, 0, ret, 0, encodingSize);
+
+		return ret;
+	}
+
+	/**
+	 * @param rawSize size of the data to compress
+	 * @return the size of the largest possible compressed output
+	 */
+	public static int maxCompressedLength(int rawSize) {
+		return COMPRESSOR.maxCompressedLength(rawSize);
+	}
+
+	/**
+	 * Compress data into a caller provided buffer
+	 *
+	 * @param src source buffer
+	 * @param srcOff start of the data in the source buffer
+	 * @param srcLen number of bytes to compress
+	 * @param dest destination buffer
+	 * @param destOff start offset in the destination buffer
+	 * @param maxDestLen space available in the destination buffer
+	 * @return compressed size
+	 * @throws LogException if the data can not be compressed
+	 */
+	public static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int maxDestLen)
+			throws LogException {
+		int encodingSize;
 		try {
-			encodingSize = compressor.compress(data, 0, rawSize, rawCompressed, 0, maxCompressedLength);
+			encodingSize = COMPRESSOR.compress(src, srcOff, srcLen, dest, destOff, maxDestLen);
 		} catch (LZ4Exception e) {
 			throw new LogException("CompressException", e.getMessage(), "");
 		}
-		
+
 		if (encodingSize <= 0) {
 			throw new LogException("CompressException", "Invalid enconding size", "");
 		}
-		
-		byte[] ret = new byte[encodingSize];
-		System.arraycopy(rawCompressed, 0, ret, 0, encodingSize);
-
-		return ret;
+		return encodingSize;
 	}
 	
 	public static byte[] decompressFromLhLz4Chunk(byte[] compressedData, int rawSize) throws LogException {
-		
-		LZ4Factory factory = LZ4Factory.fastestInstance();
-		
-		// decompress data
-		LZ4FastDecompressor decompressor = factory.fastDecompressor();
-		
 		byte[] restored = new byte[rawSize];
 		try {
-			decompressor.decompress(compressedData, 0, restored, 0, rawSize);
+			DECOMPRESSOR.decompress(compressedData, 0, restored, 0, rawSize);
 		} catch (LZ4Exception e) {
 			throw new LogException("DecompressException", e.getMessage(), "");
 		}
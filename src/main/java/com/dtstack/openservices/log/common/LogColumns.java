@@ -0,0 +1,161 @@
+package com.dtstack.openservices.log.common;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ *     {@link LogProjection}的列式结果。每行对应一条日志，__time__保存在int数组中，
+ *     每个投影的key对应一对offset/length数组，指向共享的原始byte数组，不复制也不解码。
+ *     日志中没有该key时offset和length都为-1。
+ * </p>
+ *
+ * <p>
+ *     数组的长度可能大于行数，只有前{@link #getRowCount()}个元素有效。
+ *     同一个实例可以通过{@link LogProjection#projectInto}反复使用，不是线程安全的。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class LogColumns {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String[] keys;
+    private byte[] rawBytes;
+    private int rowCount;
+    private int[] times;
+    private final int[][] offsets;
+    private final int[][] lengths;
+
+    LogColumns(String[] keys) {
+        this.keys = keys;
+        this.times = new int[INITIAL_CAPACITY];
+        this.offsets = new int[keys.length][INITIAL_CAPACITY];
+        this.lengths = new int[keys.length][INITIAL_CAPACITY];
+    }
+
+    /**
+     * Drop all rows, the arrays are kept for the next projection.
+     */
+    public void clear() {
+        this.rowCount = 0;
+        this.rawBytes = null;
+    }
+
+    /**
+     * @return the bytes all offsets point into, null if there is no row
+     */
+    public byte[] getRawBytes() {
+        return this.rawBytes;
+    }
+
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    public int getColumnCount() {
+        return this.keys.length;
+    }
+
+    /**
+     * @return the key of the column
+     */
+    public String getKey(int column) {
+        return this.keys[column];
+    }
+
+    /**
+     * @return the __time__ of each row
+     */
+    public int[] getTimes() {
+        return this.times;
+    }
+
+    /**
+     * @return value offsets of the column, -1 where the key is missing
+     */
+    public int[] getOffsets(int column) {
+        return this.offsets[column];
+    }
+
+    /**
+     * @return value lengths of the column, -1 where the key is missing
+     */
+    public int[] getLengths(int column) {
+        return this.lengths[column];
+    }
+
+    public boolean isNull(int column, int row) {
+        checkRow(row);
+        return this.offsets[column][row] < 0;
+    }
+
+    /**
+     * Decode one value, meant for debugging and rare lookups rather than
+     * the aggregation loop.
+     *
+     * @return the value, null if the key is missing
+     */
+    public String getValue(int column, int row) {
+        checkRow(row);
+        int offset = this.offsets[column][row];
+        if (offset < 0) {
+            return null;
+        }
+        return new String(this.rawBytes, offset, this.lengths[column][row]);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= this.rowCount) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + this.rowCount);
+        }
+    }
+
+    void attach(byte[] bytes) {
+        if (this.rowCount > 0 && this.rawBytes != bytes) {
+            throw new IllegalArgumentException("Log groups of one batch must share the raw bytes");
+        }
+        this.rawBytes = bytes;
+    }
+
+    void ensureCapacity(int rows) {
+        if (rows <= this.times.length) {
+            return;
+        }
+        int capacity = Math.max(rows, this.times.length * 2);
+        this.times = Arrays.copyOf(this.times, capacity);
+        for (int i = 0; i < this.keys.length; i++) {
+            this.offsets[i] = Arrays.copyOf(this.offsets[i], capacity);
+            this.lengths[i] = Arrays.copyOf(this.lengths[i], capacity);
+        }
+    }
+
+    /**
+     * Start a row with every column missing, the caller has ensured the
+     * capacity.
+     *
+     * @return index of the row
+     */
+    int addRow(int time) {
+        int row = this.rowCount;
+        this.times[row] = time;
+        for (int i = 0; i < this.keys.length; i++) {
+            this.offsets[i][row] = -1;
+            this.lengths[i][row] = -1;
+        }
+        return row;
+    }
+
+    void set(int column, int row, int offset, int length) {
+        this.offsets[column][row] = offset;
+        this.lengths[column][row] = length;
+    }
+
+    /**
+     * Keep the row started by {@link #addRow(int)}, a row that is not
+     * committed is overwritten by the next one.
+     */
+    void commitRow() {
+        this.rowCount++;
+    }
+}
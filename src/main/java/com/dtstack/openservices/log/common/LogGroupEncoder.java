@@ -0,0 +1,298 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.http.utils.CodingUtils;
+
+import java.util.List;
+
+/**
+ * <p>
+ *     直接把LogItem列表编码为Logs.LogGroup的protobuf格式，不构建Logs.LogGroup.Builder对象树，
+ *     输出与Logs.LogGroup.toByteArray()逐字节一致。
+ * </p>
+ * <p>
+ *     第一遍计算所有字段的精确长度并缓存在int数组中，第二遍直接把字段写入可复用的字节缓冲区，
+ *     字符串按UTF-8直接编码，不产生中间byte[]。实例不是线程安全的，通过{@link #get()}获取线程内实例。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public final class LogGroupEncoder {
+
+    private static final int LOG_GROUP_LOGS = 1;
+    private static final int LOG_GROUP_TOPIC = 3;
+    private static final int LOG_GROUP_SOURCE = 4;
+    private static final int LOG_GROUP_LOG_TAGS = 6;
+    private static final int LOG_TIME = 1;
+    private static final int LOG_CONTENTS = 2;
+    private static final int KEY = 1;
+    private static final int VALUE = 2;
+
+    private static final int WIRETYPE_VARINT = 0;
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    // buffers grown beyond this size are released after use instead of being cached
+    private static final int MAX_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<LogGroupEncoder> ENCODER = new ThreadLocal<LogGroupEncoder>() {
+        @Override
+        protected LogGroupEncoder initialValue() {
+            return new LogGroupEncoder();
+        }
+    };
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private int position;
+
+    // per log: serialized size; per content: key utf8 length, value utf8 length
+    private int[] logSizes = new int[64];
+
+    private int[] stringLengths = new int[256];
+
+    private LogGroupEncoder() {
+    }
+
+    /**
+     * @return the encoder bound to the current thread
+     */
+    public static LogGroupEncoder get() {
+        return ENCODER.get();
+    }
+
+    /**
+     * Encode a log group into the internal buffer, the result is valid until
+     * the next call on the same encoder.
+     *
+     * @param topic  topic, not written if null
+     * @param source source, not written if null
+     * @param tags   log tags, may be null
+     * @param items  logs
+     * @return encoded length, the bytes are in {@link #getBuffer()} from offset 0
+     */
+    public int encode(String topic, String source, List<TagContent> tags, List<LogItem> items) {
+        int itemCount = items.size();
+        if (logSizes.length < itemCount) {
+            logSizes = new int[Math.max(itemCount, logSizes.length * 2)];
+        }
+
+        // pass 1: exact sizes
+        int totalSize = 0;
+        int stringIndex = 0;
+        for (int i = 0; i < itemCount; i++) {
+            LogItem item = items.get(i);
+            int logSize = 1 + uint32Size(item.mLogTime);
+            List<LogContent> contents = item.mContents;
+            int contentCount = contents.size();
+            ensureStringLengths(stringIndex + contentCount * 2);
+            for (int j = 0; j < contentCount; j++) {
+                LogContent content = contents.get(j);
+                CodingUtils.assertStringNotNullOrEmpty(content.mKey, "key");
+                int keyLength = utf8Length(content.mKey);
+                int valueLength = content.mValue == null ? 0 : utf8Length(content.mValue);
+                stringLengths[stringIndex++] = keyLength;
+                stringLengths[stringIndex++] = valueLength;
+                int contentSize = lengthDelimitedSize(keyLength) + lengthDelimitedSize(valueLength);
+                logSize += lengthDelimitedSize(contentSize);
+            }
+            logSizes[i] = logSize;
+            totalSize += lengthDelimitedSize(logSize);
+        }
+        int topicLength = 0;
+        if (topic != null) {
+            topicLength = utf8Length(topic);
+            totalSize += lengthDelimitedSize(topicLength);
+        }
+        int sourceLength = 0;
+        if (source != null) {
+            sourceLength = utf8Length(source);
+            totalSize += lengthDelimitedSize(sourceLength);
+        }
+        int tagCount = tags == null ? 0 : tags.size();
+        int tagStringIndex = stringIndex;
+        ensureStringLengths(stringIndex + tagCount * 2);
+        for (int i = 0; i < tagCount; i++) {
+            TagContent tag = tags.get(i);
+            CodingUtils.assertParameterNotNull(tag.getKey(), "tag key");
+            CodingUtils.assertParameterNotNull(tag.getValue(), "tag value");
+            int keyLength = utf8Length(tag.getKey());
+            int valueLength = utf8Length(tag.getValue());
+            stringLengths[stringIndex++] = keyLength;
+            stringLengths[stringIndex++] = valueLength;
+            totalSize += lengthDelimitedSize(lengthDelimitedSize(keyLength) + lengthDelimitedSize(valueLength));
+        }
+
+        if (buffer.length < totalSize) {
+            buffer = new byte[Math.max(totalSize, Math.min(buffer.length * 2, Integer.MAX_VALUE - 8))];
+        }
+        position = 0;
+
+        // pass 2: write
+        stringIndex = 0;
+        for (int i = 0; i < itemCount; i++) {
+            LogItem item = items.get(i);
+            writeTag(LOG_GROUP_LOGS, WIRETYPE_LENGTH_DELIMITED);
+            writeVarint32(logSizes[i]);
+            writeTag(LOG_TIME, WIRETYPE_VARINT);
+            writeVarint32(item.mLogTime);
+            List<LogContent> contents = item.mContents;
+            for (int j = 0, contentCount = contents.size(); j < contentCount; j++) {
+                LogContent content = contents.get(j);
+                int keyLength = stringLengths[stringIndex++];
+                int valueLength = stringLengths[stringIndex++];
+                writeTag(LOG_CONTENTS, WIRETYPE_LENGTH_DELIMITED);
+                writeVarint32(lengthDelimitedSize(keyLength) + lengthDelimitedSize(valueLength));
+                writeString(KEY, content.mKey, keyLength);
+                writeString(VALUE, content.mValue == null ? "" : content.mValue, valueLength);
+            }
+        }
+        if (topic != null) {
+            writeString(LOG_GROUP_TOPIC, topic, topicLength);
+        }
+        if (source != null) {
+            writeString(LOG_GROUP_SOURCE, source, sourceLength);
+        }
+        stringIndex = tagStringIndex;
+        for (int i = 0; i < tagCount; i++) {
+            TagContent tag = tags.get(i);
+            int keyLength = stringLengths[stringIndex++];
+            int valueLength = stringLengths[stringIndex++];
+            writeTag(LOG_GROUP_LOG_TAGS, WIRETYPE_LENGTH_DELIMITED);
+            writeVarint32(lengthDelimitedSize(keyLength) + lengthDelimitedSize(valueLength));
+            writeString(KEY, tag.getKey(), keyLength);
+            writeString(VALUE, tag.getValue(), valueLength);
+        }
+        return position;
+    }
+
+    /**
+     * @return the internal buffer holding the last encoded log group
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return a copy of the last encoded log group
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[position];
+        System.arraycopy(buffer, 0, result, 0, position);
+        releaseOversizedBuffer();
+        return result;
+    }
+
+    /**
+     * Drop a buffer grown for an unusually large batch so the thread does not
+     * retain it, call this once the encoded bytes are no longer needed.
+     */
+    public void releaseOversizedBuffer() {
+        if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+            position = 0;
+        }
+        if (stringLengths.length > MAX_RETAINED_BUFFER_SIZE / 4) {
+            stringLengths = new int[256];
+        }
+        if (logSizes.length > MAX_RETAINED_BUFFER_SIZE / 4) {
+            logSizes = new int[64];
+        }
+    }
+
+    private void ensureStringLengths(int required) {
+        if (stringLengths.length < required) {
+            int[] grown = new int[Math.max(required, stringLengths.length * 2)];
+            System.arraycopy(stringLengths, 0, grown, 0, stringLengths.length);
+            stringLengths = grown;
+        }
+    }
+
+    private void writeTag(int fieldNumber, int wireType) {
+        buffer[position++] = (byte) ((fieldNumber << 3) | wireType);
+    }
+
+    private void writeVarint32(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeString(int fieldNumber, String value, int utf8Length) {
+        writeTag(fieldNumber, WIRETYPE_LENGTH_DELIMITED);
+        writeVarint32(utf8Length);
+        int length = value.length();
+        byte[] buf = buffer;
+        int pos = position;
+        int i = 0;
+        for (char c; i < length && (c = value.charAt(i)) < 0x80; i++) {
+            buf[pos++] = (byte) c;
+        }
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    // unpaired surrogate, replaced the same way as String.getBytes("UTF-8")
+                    buf[pos++] = (byte) '?';
+                }
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = pos;
+    }
+
+    private static int lengthDelimitedSize(int length) {
+        return 1 + uint32Size(length) + length;
+    }
+
+    private static int uint32Size(int value) {
+        if ((value & (0xffffffff << 7)) == 0) return 1;
+        if ((value & (0xffffffff << 14)) == 0) return 2;
+        if ((value & (0xffffffff << 21)) == 0) return 3;
+        if ((value & (0xffffffff << 28)) == 0) return 4;
+        return 5;
+    }
+
+    /**
+     * @return the number of bytes the string takes in UTF-8, with unpaired
+     * surrogates counted as the single replacement byte
+     */
+    static int utf8Length(String value) {
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    utf8Length += 1;
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length
+                            && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        utf8Length += 2;
+                        i++;
+                    }
+                } else {
+                    utf8Length += 2;
+                }
+            }
+        }
+        return utf8Length;
+    }
+}
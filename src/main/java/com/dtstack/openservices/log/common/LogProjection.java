@@ -0,0 +1,197 @@
+package com.dtstack.openservices.log.common;
+
+import com.dtstack.openservices.log.util.ProtoReader;
+
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+/**
+ * <p>
+ *     按key投影日志。对{@link FastLogGroup}或整个拉取结果{@link FastLogGroupList}只扫描一遍，
+ *     直接在原始字节上匹配key，结果以列的形式写入{@link LogColumns}，不创建FastLog视图，也不解码String。
+ * </p>
+ *
+ * <p>
+ *     一条日志中同一个key出现多次时取第一个，与{@link FastLog#findContent(byte[])}一致；
+ *     格式错误或没有__time__的日志被跳过。实例本身不可变，可以在线程间共享。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class LogProjection {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String[] keys;
+    private final byte[][] keyBytes;
+
+    public LogProjection(String... keys) {
+        if (keys == null || keys.length == 0) {
+            throw new IllegalArgumentException("keys is empty");
+        }
+        this.keys = keys.clone();
+        this.keyBytes = new byte[this.keys.length][];
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] == null) {
+                throw new IllegalArgumentException("key is null");
+            }
+            for (int j = 0; j < i; j++) {
+                if (this.keys[j].equals(this.keys[i])) {
+                    throw new IllegalArgumentException("duplicate key : " + this.keys[i]);
+                }
+            }
+            this.keyBytes[i] = this.keys[i].getBytes(UTF_8);
+        }
+    }
+
+    public LogProjection(Collection<String> keys) {
+        this(keys.toArray(new String[keys.size()]));
+    }
+
+    public int getColumnCount() {
+        return this.keys.length;
+    }
+
+    /**
+     * @return an empty batch with the columns of this projection
+     */
+    public LogColumns newColumns() {
+        return new LogColumns(this.keys.clone());
+    }
+
+    public LogColumns project(FastLogGroup logGroup) {
+        LogColumns columns = newColumns();
+        projectInto(logGroup, columns);
+        return columns;
+    }
+
+    /**
+     * Project all log groups of a pull response, see
+     * {@link com.dtstack.openservices.log.response.BatchGetLogResponse#GetLogGroupList()}.
+     */
+    public LogColumns project(FastLogGroupList logGroups) {
+        LogColumns columns = newColumns();
+        projectInto(logGroups, columns);
+        return columns;
+    }
+
+    /**
+     * Append the rows of a log group to the batch.
+     *
+     * @throws IllegalArgumentException if the batch is not created by this
+     *                                  projection or holds rows over other bytes
+     */
+    public void projectInto(FastLogGroup logGroup, LogColumns columns) {
+        checkColumns(columns);
+        project(logGroup, columns, new ProtoReader(), new ProtoReader());
+    }
+
+    /**
+     * Append the rows of all log groups to the batch.
+     *
+     * @throws IllegalArgumentException if the batch is not created by this
+     *                                  projection or holds rows over other bytes
+     */
+    public void projectInto(FastLogGroupList logGroups, LogColumns columns) {
+        checkColumns(columns);
+        ProtoReader logReader = new ProtoReader();
+        ProtoReader contentReader = new ProtoReader();
+        int count = logGroups.getLogGroupsCount();
+        for (int i = 0; i < count; i++) {
+            project(logGroups.getLogGroups(i), columns, logReader, contentReader);
+        }
+    }
+
+    private void checkColumns(LogColumns columns) {
+        if (columns.getColumnCount() != this.keys.length) {
+            throw new IllegalArgumentException("columns of another projection");
+        }
+        for (int i = 0; i < this.keys.length; i++) {
+            if (!this.keys[i].equals(columns.getKey(i))) {
+                throw new IllegalArgumentException("columns of another projection");
+            }
+        }
+    }
+
+    private void project(FastLogGroup logGroup, LogColumns columns, ProtoReader logReader, ProtoReader contentReader) {
+        int count = logGroup.getLogsCount();
+        if (count == 0) {
+            return;
+        }
+        byte[] bytes = logGroup.getRawBytes();
+        columns.attach(bytes);
+        columns.ensureCapacity(columns.getRowCount() + count);
+        for (int i = 0; i < count; i++) {
+            logReader.reset(bytes, logGroup.getLogOffset(i), logGroup.getLogLength(i));
+            if (projectLog(logReader, contentReader, columns)) {
+                columns.commitRow();
+            }
+        }
+    }
+
+    /**
+     * @return false if the log is malformed or has no time
+     */
+    private boolean projectLog(ProtoReader reader, ProtoReader contentReader, LogColumns columns) {
+        int row = columns.addRow(-1);
+        boolean findTime = false;
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            int mode = reader.getWireType();
+            int index = reader.getFieldNumber();
+            if (mode == ProtoReader.WIRETYPE_VARINT && index == 1) {
+                columns.getTimes()[row] = (int) reader.getVarint();
+                findTime = true;
+            } else if (mode == ProtoReader.WIRETYPE_LENGTH_DELIMITED && index == 2) {
+                contentReader.reset(reader.getBuffer(), reader.getOffset(), reader.getLength());
+                if (!projectContent(contentReader, columns, row)) {
+                    return false;
+                }
+            }
+        }
+        return findTime;
+    }
+
+    /**
+     * @return false if the content is malformed
+     */
+    private boolean projectContent(ProtoReader reader, LogColumns columns, int row) {
+        int keyOffset = -1;
+        int keyLength = -1;
+        int valueOffset = -1;
+        int valueLength = -1;
+        while (!reader.isAtEnd()) {
+            if (!reader.readTag() || !reader.skipField()) {
+                return false;
+            }
+            if (reader.getWireType() != ProtoReader.WIRETYPE_LENGTH_DELIMITED) {
+                continue;
+            }
+            if (reader.getFieldNumber() == 1) {
+                keyOffset = reader.getOffset();
+                keyLength = reader.getLength();
+            } else if (reader.getFieldNumber() == 2) {
+                valueOffset = reader.getOffset();
+                valueLength = reader.getLength();
+            }
+        }
+        if (keyOffset < 0 || valueOffset < 0) {
+            // an incomplete content is invalid as in FastLogContent, the log is kept
+            return true;
+        }
+        byte[] bytes = reader.getBuffer();
+        for (int i = 0; i < this.keyBytes.length; i++) {
+            byte[] key = this.keyBytes[i];
+            if (ByteRanges.equals(bytes, keyOffset, keyLength, key, 0, key.length)) {
+                // the first occurrence of a key wins
+                if (columns.getOffsets(i)[row] < 0) {
+                    columns.set(i, row, valueOffset, valueLength);
+                }
+                break;
+            }
+        }
+        return true;
+    }
+}
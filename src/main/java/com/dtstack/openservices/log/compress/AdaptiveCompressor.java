@@ -0,0 +1,155 @@
+package com.dtstack.openservices.log.compress;
+
+import com.dtstack.openservices.log.common.Consts;
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.http.utils.CodingUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ *     {@link Consts.CompressType#AUTO}模式的实现。按logstore记录各压缩方式最近的压缩比和
+ *     每字节耗时（指数加权平均），每个批次选择估算代价最小的压缩方式和Deflater级别。
+ * </p>
+ * <p>
+ *     小于{@link AutoCompressConfig#getMinCompressSizeInBytes()}的数据和不可压缩的数据直接发送；
+ *     每隔{@link AutoCompressConfig#getProbeInterval()}个批次轮流用其他压缩方式压缩一次，
+ *     使统计跟随数据特征的变化。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class AdaptiveCompressor {
+
+    private static final double SMOOTHING = 0.2;
+
+    private enum Codec {
+        NONE(Consts.CompressType.NONE, 0),
+        LZ4(Consts.CompressType.LZ4, 0),
+        GZIP_FAST(Consts.CompressType.GZIP, Deflater.BEST_SPEED),
+        GZIP(Consts.CompressType.GZIP, Deflater.DEFAULT_COMPRESSION);
+
+        private final Consts.CompressType compressType;
+
+        private final int level;
+
+        Codec(Consts.CompressType compressType, int level) {
+            this.compressType = compressType;
+            this.level = level;
+        }
+    }
+
+    private static final Codec[] CODECS = Codec.values();
+
+    private final AutoCompressConfig config;
+
+    private final ConcurrentMap<String, LogStoreStats> stats = new ConcurrentHashMap<String, LogStoreStats>();
+
+    public AdaptiveCompressor(AutoCompressConfig config) {
+        CodingUtils.assertParameterNotNull(config, "config");
+        this.config = config;
+    }
+
+    /**
+     * Compress a batch with the codec currently estimated cheapest for the logstore.
+     *
+     * @param logStore logstore the batch is sent to
+     * @param data     source buffer
+     * @param offset   start of the data in the source buffer
+     * @param length   number of bytes to compress
+     * @return compressed data, {@link CompressedData#getCompressType()} is the codec chosen
+     * @throws LogException if the data can not be compressed
+     */
+    public CompressedData compress(String logStore, byte[] data, int offset, int length) throws LogException {
+        LogCompressor compressor = LogCompressor.get();
+        if (length < config.getMinCompressSizeInBytes()) {
+            return compressor.compress(Consts.CompressType.NONE, data, offset, length);
+        }
+        LogStoreStats logStoreStats = stats.get(logStore);
+        if (logStoreStats == null) {
+            LogStoreStats created = new LogStoreStats();
+            logStoreStats = stats.putIfAbsent(logStore, created);
+            if (logStoreStats == null) {
+                logStoreStats = created;
+            }
+        }
+        Codec codec = logStoreStats.choose();
+        long start = System.nanoTime();
+        CompressedData compressed = compressor.compress(codec.compressType, codec.level, data, offset, length);
+        if (codec == Codec.NONE) {
+            return compressed;
+        }
+        logStoreStats.record(codec, length, compressed.getLength(), System.nanoTime() - start);
+        if (compressed.getLength() >= length) {
+            compressed.release();
+            return compressor.compress(Consts.CompressType.NONE, data, offset, length);
+        }
+        return compressed;
+    }
+
+    private final class LogStoreStats {
+
+        private final double[] ratios = new double[CODECS.length];
+
+        private final double[] nanosPerByte = new double[CODECS.length];
+
+        private final boolean[] sampled = new boolean[CODECS.length];
+
+        private long batches;
+
+        private int probeCursor;
+
+        synchronized Codec choose() {
+            for (Codec codec : CODECS) {
+                if (codec != Codec.NONE && !sampled[codec.ordinal()]) {
+                    return codec;
+                }
+            }
+            Codec best = best();
+            if (++batches % config.getProbeInterval() == 0) {
+                for (int i = 0; i < CODECS.length; i++) {
+                    probeCursor = (probeCursor + 1) % CODECS.length;
+                    Codec probe = CODECS[probeCursor];
+                    if (probe != Codec.NONE && probe != best) {
+                        return probe;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private Codec best() {
+            double wireNanosPerByte = 1e9 / config.getBandwidthBytesPerSecond();
+            Codec best = Codec.NONE;
+            double bestCost = wireNanosPerByte;
+            for (Codec codec : CODECS) {
+                int i = codec.ordinal();
+                if (codec == Codec.NONE || ratios[i] >= config.getIncompressibleRatio()) {
+                    continue;
+                }
+                double cost = nanosPerByte[i] + ratios[i] * wireNanosPerByte;
+                if (cost < bestCost) {
+                    best = codec;
+                    bestCost = cost;
+                }
+            }
+            return best;
+        }
+
+        synchronized void record(Codec codec, int rawSize, int compressedSize, long elapsedNanos) {
+            int i = codec.ordinal();
+            double ratio = (double) compressedSize / rawSize;
+            double perByte = (double) elapsedNanos / rawSize;
+            if (sampled[i]) {
+                ratios[i] += SMOOTHING * (ratio - ratios[i]);
+                nanosPerByte[i] += SMOOTHING * (perByte - nanosPerByte[i]);
+            } else {
+                ratios[i] = ratio;
+                nanosPerByte[i] = perByte;
+                sampled[i] = true;
+            }
+        }
+    }
+}
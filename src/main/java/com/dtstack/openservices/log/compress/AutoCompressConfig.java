@@ -0,0 +1,118 @@
+package com.dtstack.openservices.log.compress;
+
+/**
+ * <p>
+ *     {@link com.dtstack.openservices.log.common.Consts.CompressType#AUTO}模式的配置。
+ *     每个批次按 压缩耗时 + 压缩后大小 / 带宽 估算发送代价，选择代价最小的压缩方式，
+ *     带宽越小越倾向高压缩比的GZIP，带宽越大越倾向LZ4或不压缩。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class AutoCompressConfig {
+
+    public static final int DEFAULT_MIN_COMPRESS_SIZE_IN_BYTES = 512;
+
+    public static final double DEFAULT_INCOMPRESSIBLE_RATIO = 0.9;
+
+    public static final long DEFAULT_BANDWIDTH_BYTES_PER_SECOND = 100L * 1000 * 1000 / 8;
+
+    public static final int DEFAULT_PROBE_INTERVAL = 32;
+
+    private int minCompressSizeInBytes = DEFAULT_MIN_COMPRESS_SIZE_IN_BYTES;
+
+    private double incompressibleRatio = DEFAULT_INCOMPRESSIBLE_RATIO;
+
+    private long bandwidthBytesPerSecond = DEFAULT_BANDWIDTH_BYTES_PER_SECOND;
+
+    private int probeInterval = DEFAULT_PROBE_INTERVAL;
+
+    /**
+     * 构造新实例。
+     */
+    public AutoCompressConfig() {
+    }
+
+    /**
+     * 返回参与压缩的最小数据大小（单位：字节），更小的数据直接发送。
+     * @return 最小压缩大小。
+     */
+    public int getMinCompressSizeInBytes() {
+        return minCompressSizeInBytes;
+    }
+
+    /**
+     * 设置参与压缩的最小数据大小（单位：字节）。
+     * @param minCompressSizeInBytes
+     *          最小压缩大小，不能小于0。
+     */
+    public void setMinCompressSizeInBytes(int minCompressSizeInBytes) {
+        if (minCompressSizeInBytes < 0) {
+            throw new IllegalArgumentException("minCompressSizeInBytes must not be less than 0, got "
+                    + minCompressSizeInBytes);
+        }
+        this.minCompressSizeInBytes = minCompressSizeInBytes;
+    }
+
+    /**
+     * 返回判定为不可压缩的压缩比（压缩后大小 / 原始大小）。
+     * @return 不可压缩压缩比。
+     */
+    public double getIncompressibleRatio() {
+        return incompressibleRatio;
+    }
+
+    /**
+     * 设置判定为不可压缩的压缩比，最近压缩比都不低于该值的logstore不再压缩，只做周期性探测。
+     * @param incompressibleRatio
+     *          不可压缩压缩比，取值范围(0, 1]。
+     */
+    public void setIncompressibleRatio(double incompressibleRatio) {
+        if (!(incompressibleRatio > 0 && incompressibleRatio <= 1)) {
+            throw new IllegalArgumentException("incompressibleRatio must be in (0, 1], got " + incompressibleRatio);
+        }
+        this.incompressibleRatio = incompressibleRatio;
+    }
+
+    /**
+     * 返回估算发送代价时使用的上行带宽（单位：字节/秒）。
+     * @return 上行带宽。
+     */
+    public long getBandwidthBytesPerSecond() {
+        return bandwidthBytesPerSecond;
+    }
+
+    /**
+     * 设置估算发送代价时使用的上行带宽（单位：字节/秒），用于权衡CPU和带宽。
+     * 带宽受限的节点设置较小的值，CPU受限的节点设置较大的值。
+     * @param bandwidthBytesPerSecond
+     *          上行带宽，必须大于0。
+     */
+    public void setBandwidthBytesPerSecond(long bandwidthBytesPerSecond) {
+        if (bandwidthBytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bandwidthBytesPerSecond must be greater than 0, got "
+                    + bandwidthBytesPerSecond);
+        }
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    /**
+     * 返回探测间隔，每隔该数量的批次用非最优压缩方式压缩一次以更新其统计。
+     * @return 探测间隔。
+     */
+    public int getProbeInterval() {
+        return probeInterval;
+    }
+
+    /**
+     * 设置探测间隔（单位：批次）。
+     * @param probeInterval
+     *          探测间隔，必须大于0。
+     */
+    public void setProbeInterval(int probeInterval) {
+        if (probeInterval <= 0) {
+            throw new IllegalArgumentException("probeInterval must be greater than 0, got " + probeInterval);
+        }
+        this.probeInterval = probeInterval;
+    }
+}
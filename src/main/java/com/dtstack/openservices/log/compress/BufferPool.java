@@ -0,0 +1,90 @@
+package com.dtstack.openservices.log.compress;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     按2的幂划分大小等级的byte[]缓冲池，用于压缩输出等临时大数组的复用。
+ *     每个等级缓存的总字节数不超过{@link #MAX_RETAINED_BYTES_PER_CLASS}，
+ *     超过最大等级的请求直接分配，归还时丢弃。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public final class BufferPool {
+
+    private static final int MIN_CLASS_SHIFT = 12;
+
+    private static final int MAX_CLASS_SHIFT = 26;
+
+    static final int MAX_RETAINED_BYTES_PER_CLASS = 16 * 1024 * 1024;
+
+    private static final ConcurrentLinkedQueue<byte[]>[] FREE_LISTS;
+
+    private static final AtomicInteger[] FREE_COUNTS;
+
+    static {
+        int classes = MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ConcurrentLinkedQueue<byte[]>[] freeLists = new ConcurrentLinkedQueue[classes];
+        FREE_LISTS = freeLists;
+        FREE_COUNTS = new AtomicInteger[classes];
+        for (int i = 0; i < classes; i++) {
+            FREE_LISTS[i] = new ConcurrentLinkedQueue<byte[]>();
+            FREE_COUNTS[i] = new AtomicInteger();
+        }
+    }
+
+    private BufferPool() {
+    }
+
+    /**
+     * Take a buffer of at least the given size from the pool.
+     *
+     * @param minSize required size in bytes
+     * @return a buffer whose length is the size class covering minSize
+     */
+    public static byte[] acquire(int minSize) {
+        int index = classIndex(minSize);
+        if (index < 0) {
+            return new byte[minSize];
+        }
+        byte[] buffer = FREE_LISTS[index].poll();
+        if (buffer != null) {
+            FREE_COUNTS[index].decrementAndGet();
+            return buffer;
+        }
+        return new byte[1 << (index + MIN_CLASS_SHIFT)];
+    }
+
+    /**
+     * Return a buffer obtained from {@link #acquire(int)}, the caller must not
+     * use it afterwards.
+     *
+     * @param buffer buffer to return, ignored if null or not of a pooled size
+     */
+    public static void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        int index = classIndex(buffer.length);
+        if (index < 0 || buffer.length != 1 << (index + MIN_CLASS_SHIFT)) {
+            return;
+        }
+        int maxCount = Math.max(1, MAX_RETAINED_BYTES_PER_CLASS >>> (index + MIN_CLASS_SHIFT));
+        if (FREE_COUNTS[index].incrementAndGet() > maxCount) {
+            FREE_COUNTS[index].decrementAndGet();
+            return;
+        }
+        FREE_LISTS[index].offer(buffer);
+    }
+
+    private static int classIndex(int size) {
+        if (size > 1 << MAX_CLASS_SHIFT) {
+            return -1;
+        }
+        int shift = size <= 1 << MIN_CLASS_SHIFT ? MIN_CLASS_SHIFT : 32 - Integer.numberOfLeadingZeros(size - 1);
+        return shift - MIN_CLASS_SHIFT;
+    }
+}
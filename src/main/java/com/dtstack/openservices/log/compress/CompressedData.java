@@ -0,0 +1,69 @@
+package com.dtstack.openservices.log.compress;
+
+import com.dtstack.openservices.log.common.Consts;
+
+/**
+ * <p>
+ *     压缩结果，数据位于{@link #getBuffer()}的[0, {@link #getLength()})区间，
+ *     缓冲区可能来自{@link BufferPool}，使用完毕后调用{@link #release()}归还。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public final class CompressedData {
+
+    private final Consts.CompressType compressType;
+
+    private byte[] buffer;
+
+    private final int length;
+
+    private final boolean pooled;
+
+    CompressedData(Consts.CompressType compressType, byte[] buffer, int length, boolean pooled) {
+        this.compressType = compressType;
+        this.buffer = buffer;
+        this.length = length;
+        this.pooled = pooled;
+    }
+
+    /**
+     * @return the compress type the data is encoded with, never AUTO
+     */
+    public Consts.CompressType getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * @return buffer holding the compressed bytes from offset 0
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return number of compressed bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return a copy of the compressed bytes
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Return the buffer to the pool, the data must not be used afterwards.
+     */
+    public void release() {
+        if (pooled && buffer != null) {
+            BufferPool.release(buffer);
+        }
+        buffer = null;
+    }
+}
@@ -0,0 +1,210 @@
+package com.dtstack.openservices.log.compress;
+
+import com.dtstack.openservices.log.common.Consts;
+import com.dtstack.openservices.log.common.LZ4Encoder;
+import com.dtstack.openservices.log.exception.LogException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ *     线程内复用的压缩器，按{@link Consts.CompressType}压缩日志数据，以及解压拉取到的响应体。
+ *     LZ4压缩器全局共享，Deflater每个线程一个并在两次压缩之间reset，
+ *     输出缓冲区从{@link BufferPool}获取，结果不再裁剪拷贝。
+ * </p>
+ * <p>
+ *     实例不是线程安全的，通过{@link #get()}获取当前线程的实例，
+ *     线程退出前可调用{@link #releaseCurrent()}立即释放Deflater和Inflater占用的本地内存。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public final class LogCompressor {
+
+    private static final ThreadLocal<LogCompressor> COMPRESSOR = new ThreadLocal<LogCompressor>() {
+        @Override
+        protected LogCompressor initialValue() {
+            return new LogCompressor();
+        }
+    };
+
+    private Deflater deflater;
+
+    private Inflater inflater;
+
+    private int deflaterLevel;
+
+    private LogCompressor() {
+    }
+
+    /**
+     * @return the compressor bound to the current thread
+     */
+    public static LogCompressor get() {
+        return COMPRESSOR.get();
+    }
+
+    /**
+     * Free the native memory held by the current thread's compressor.
+     */
+    public static void releaseCurrent() {
+        COMPRESSOR.get().end();
+        COMPRESSOR.remove();
+    }
+
+    /**
+     * Compress data with the default deflate level.
+     *
+     * @see #compress(Consts.CompressType, int, byte[], int, int)
+     */
+    public CompressedData compress(Consts.CompressType compressType, byte[] data, int offset, int length)
+            throws LogException {
+        return compress(compressType, Deflater.DEFAULT_COMPRESSION, data, offset, length);
+    }
+
+    /**
+     * Compress data, for {@link Consts.CompressType#NONE} the input is returned
+     * without copying. {@link Consts.CompressType#AUTO} is resolved by
+     * {@link AdaptiveCompressor} and not accepted here.
+     *
+     * @param compressType compress type
+     * @param level        deflate level, only used by GZIP
+     * @param data         source buffer
+     * @param offset       start of the data in the source buffer
+     * @param length       number of bytes to compress
+     * @return compressed data, must be released after use
+     * @throws LogException if the data can not be compressed
+     */
+    public CompressedData compress(Consts.CompressType compressType, int level, byte[] data, int offset, int length)
+            throws LogException {
+        switch (compressType) {
+            case LZ4:
+                return compressLz4(data, offset, length);
+            case GZIP:
+                return deflate(level, data, offset, length);
+            case NONE:
+                if (offset != 0) {
+                    byte[] copy = new byte[length];
+                    System.arraycopy(data, offset, copy, 0, length);
+                    return new CompressedData(Consts.CompressType.NONE, copy, length, false);
+                }
+                return new CompressedData(Consts.CompressType.NONE, data, length, false);
+            default:
+                throw new IllegalArgumentException("compressType must be NONE, LZ4 or GZIP, got " + compressType.name());
+        }
+    }
+
+    /**
+     * Decompress a whole response body, for {@link Consts.CompressType#NONE}
+     * the input is returned without copying.
+     *
+     * @param compressType compress type of the data
+     * @param data         compressed data, the whole array is used
+     * @param rawSize      size of the data before compression
+     * @return the decompressed data, exactly rawSize bytes
+     * @throws LogException if the data is corrupt or does not match rawSize
+     */
+    public byte[] decompress(Consts.CompressType compressType, byte[] data, int rawSize) throws LogException {
+        switch (compressType) {
+            case LZ4:
+                return LZ4Encoder.decompressFromLhLz4Chunk(data, rawSize);
+            case GZIP:
+                return inflate(data, rawSize);
+            case NONE:
+                return data;
+            default:
+                throw new IllegalArgumentException("compressType must be NONE, LZ4 or GZIP, got " + compressType.name());
+        }
+    }
+
+    private byte[] inflate(byte[] data, int rawSize) throws LogException {
+        Inflater inflater = inflater();
+        byte[] out = new byte[rawSize];
+        try {
+            inflater.setInput(data);
+            int outLength = 0;
+            while (outLength < rawSize && !inflater.finished()) {
+                int n = inflater.inflate(out, outLength, rawSize - outLength);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                outLength += n;
+            }
+            if (outLength != rawSize) {
+                throw new LogException("DecompressException", "Inflated " + outLength
+                        + " bytes but the raw size is " + rawSize, "");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new LogException("DecompressException", e.getMessage(), "");
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private Inflater inflater() {
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        return inflater;
+    }
+
+    private CompressedData compressLz4(byte[] data, int offset, int length) throws LogException {
+        byte[] out = BufferPool.acquire(LZ4Encoder.maxCompressedLength(length));
+        try {
+            int compressedLength = LZ4Encoder.compress(data, offset, length, out, 0, out.length);
+            return new CompressedData(Consts.CompressType.LZ4, out, compressedLength, true);
+        } catch (LogException e) {
+            BufferPool.release(out);
+            throw e;
+        }
+    }
+
+    private CompressedData deflate(int level, byte[] data, int offset, int length) {
+        Deflater deflater = deflater(level);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        byte[] out = BufferPool.acquire(deflateBound(length));
+        int outLength = 0;
+        while (!deflater.finished()) {
+            if (outLength == out.length) {
+                byte[] grown = BufferPool.acquire(out.length * 2);
+                System.arraycopy(out, 0, grown, 0, outLength);
+                BufferPool.release(out);
+                out = grown;
+            }
+            outLength += deflater.deflate(out, outLength, out.length - outLength);
+        }
+        deflater.reset();
+        return new CompressedData(Consts.CompressType.GZIP, out, outLength, true);
+    }
+
+    private Deflater deflater(int level) {
+        if (deflater == null) {
+            deflater = new Deflater(level);
+            deflaterLevel = level;
+        } else if (deflaterLevel != level) {
+            deflater.setLevel(level);
+            deflaterLevel = level;
+        }
+        return deflater;
+    }
+
+    // zlib's deflateBound plus the zlib header and trailer
+    private static int deflateBound(int length) {
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + 6;
+    }
+
+    private void end() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+}
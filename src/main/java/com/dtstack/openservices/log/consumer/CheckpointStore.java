@@ -0,0 +1,78 @@
+package com.dtstack.openservices.log.consumer;
+
+import com.dtstack.openservices.log.exception.LogException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ *     消费组的共享状态：实例心跳、shard租约和各shard的消费位点。
+ *     同一消费组的所有实例必须使用指向同一份状态的存储，各方法需保证跨实例的原子性。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ * @see LocalFileCheckpointStore
+ */
+public interface CheckpointStore {
+
+    /**
+     * Record a heartbeat of the consumer, consumers without a heartbeat for
+     * longer than the timeout are dropped from the group.
+     *
+     * @param logStore      log store name
+     * @param consumerGroup consumer group name
+     * @param consumerName  the consumer sending the heartbeat
+     * @param timeoutMs     how long a consumer stays in the group without a
+     *                      heartbeat
+     * @return names of the live consumers including this one, sorted
+     * @throws LogException if the store can not be updated
+     */
+    List<String> heartbeat(String logStore, String consumerGroup, String consumerName, long timeoutMs)
+            throws LogException;
+
+    /**
+     * Remove the consumer from the group, its leases are not released.
+     *
+     * @throws LogException if the store can not be updated
+     */
+    void leave(String logStore, String consumerGroup, String consumerName) throws LogException;
+
+    /**
+     * Acquire or renew the lease of a shard. The lease is granted if the
+     * shard has no owner, its lease expired or it is already owned by the
+     * consumer.
+     *
+     * @param leaseMs how long the lease is valid from now
+     * @return true if the consumer owns the shard until the new expiry
+     * @throws LogException if the store can not be updated
+     */
+    boolean acquireLease(String logStore, String consumerGroup, int shardId, String consumerName, long leaseMs)
+            throws LogException;
+
+    /**
+     * Release the lease of a shard, nothing is done if the consumer does not
+     * own it.
+     *
+     * @throws LogException if the store can not be updated
+     */
+    void releaseLease(String logStore, String consumerGroup, int shardId, String consumerName)
+            throws LogException;
+
+    /**
+     * @return the saved cursor of the shard, null if there is none
+     * @throws LogException if the store can not be read
+     */
+    String getCheckpoint(String logStore, String consumerGroup, int shardId) throws LogException;
+
+    /**
+     * Save the cursors of several shards at once. Cursors of shards leased to
+     * another consumer are ignored so that a consumer that lost a lease can
+     * not move the new owner back.
+     *
+     * @param checkpoints cursor to start from next time by shard id
+     * @throws LogException if the store can not be updated
+     */
+    void saveCheckpoints(String logStore, String consumerGroup, String consumerName,
+                         Map<Integer, String> checkpoints) throws LogException;
+}
@@ -0,0 +1,263 @@
+package com.dtstack.openservices.log.consumer;
+
+import com.dtstack.openservices.log.common.Consts;
+
+/**
+ * <p>
+ *     消费组配置：所属logStore、消费组名和本实例名，以及心跳、租约、checkpoint提交间隔和拉取参数。
+ *     同一消费组内各实例的实例名必须不同。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class ConsumerGroupConfig {
+
+    public static final long DEFAULT_HEARTBEAT_INTERVAL_MS = 5 * 1000;
+
+    public static final long DEFAULT_LEASE_TIMEOUT_MS = 30 * 1000;
+
+    public static final long DEFAULT_CHECKPOINT_INTERVAL_MS = 10 * 1000;
+
+    public static final int DEFAULT_FETCH_COUNT = 100;
+
+    public static final int MAX_FETCH_COUNT = 1000;
+
+    public static final long DEFAULT_IDLE_BACKOFF_MS = 1000;
+
+    public static final long DEFAULT_RETRY_DELAY_MS = 1000;
+
+    public static final String DEFAULT_INITIAL_CURSOR = "begin";
+
+    private final String logStore;
+
+    private final String consumerGroup;
+
+    private final String consumerName;
+
+    private long heartbeatIntervalMs = DEFAULT_HEARTBEAT_INTERVAL_MS;
+
+    private long leaseTimeoutMs = DEFAULT_LEASE_TIMEOUT_MS;
+
+    private long checkpointIntervalMs = DEFAULT_CHECKPOINT_INTERVAL_MS;
+
+    private int fetchCount = DEFAULT_FETCH_COUNT;
+
+    private long idleBackoffMs = DEFAULT_IDLE_BACKOFF_MS;
+
+    private long retryDelayMs = DEFAULT_RETRY_DELAY_MS;
+
+    private int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private String initialCursor = DEFAULT_INITIAL_CURSOR;
+
+    /**
+     * 构造新实例。
+     * @param logStore
+     *          消费的logStore。
+     * @param consumerGroup
+     *          消费组名。
+     * @param consumerName
+     *          本实例在消费组内的名字。
+     */
+    public ConsumerGroupConfig(String logStore, String consumerGroup, String consumerName) {
+        requireNotEmpty(logStore, "logStore");
+        requireNotEmpty(consumerGroup, "consumerGroup");
+        requireNotEmpty(consumerName, "consumerName");
+        this.logStore = logStore;
+        this.consumerGroup = consumerGroup;
+        this.consumerName = consumerName;
+    }
+
+    /**
+     * 返回消费的logStore。
+     * @return logStore名。
+     */
+    public String getLogStore() {
+        return logStore;
+    }
+
+    /**
+     * 返回消费组名。
+     * @return 消费组名。
+     */
+    public String getConsumerGroup() {
+        return consumerGroup;
+    }
+
+    /**
+     * 返回本实例在消费组内的名字。
+     * @return 实例名。
+     */
+    public String getConsumerName() {
+        return consumerName;
+    }
+
+    /**
+     * 返回心跳以及重新分配shard的间隔（单位：毫秒）。
+     * @return 心跳间隔。
+     */
+    public long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    /**
+     * 设置心跳以及重新分配shard的间隔（单位：毫秒），必须小于租约超时时间。
+     * @param heartbeatIntervalMs
+     *          心跳间隔，必须大于0。
+     */
+    public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+        if (heartbeatIntervalMs <= 0 || heartbeatIntervalMs >= leaseTimeoutMs) {
+            throw new IllegalArgumentException("heartbeatIntervalMs must be between 1 and leaseTimeoutMs "
+                    + leaseTimeoutMs + " (exclusive), got " + heartbeatIntervalMs);
+        }
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    /**
+     * 返回租约超时时间（单位：毫秒），实例超过该时间没有心跳即被移出消费组，其shard租约可被其他实例获取。
+     * @return 租约超时时间。
+     */
+    public long getLeaseTimeoutMs() {
+        return leaseTimeoutMs;
+    }
+
+    /**
+     * 设置租约超时时间（单位：毫秒），必须大于心跳间隔。
+     * @param leaseTimeoutMs
+     *          租约超时时间。
+     */
+    public void setLeaseTimeoutMs(long leaseTimeoutMs) {
+        if (leaseTimeoutMs <= heartbeatIntervalMs) {
+            throw new IllegalArgumentException("leaseTimeoutMs must be greater than heartbeatIntervalMs "
+                    + heartbeatIntervalMs + ", got " + leaseTimeoutMs);
+        }
+        this.leaseTimeoutMs = leaseTimeoutMs;
+    }
+
+    /**
+     * 返回批量提交checkpoint的间隔（单位：毫秒）。
+     * @return checkpoint提交间隔。
+     */
+    public long getCheckpointIntervalMs() {
+        return checkpointIntervalMs;
+    }
+
+    /**
+     * 设置批量提交checkpoint的间隔（单位：毫秒），各shard在间隔内的位点变化合并为一次提交。
+     * 提交在心跳时进行，间隔小于心跳间隔时每次心跳都会提交。
+     * @param checkpointIntervalMs
+     *          checkpoint提交间隔，不能小于0。
+     */
+    public void setCheckpointIntervalMs(long checkpointIntervalMs) {
+        if (checkpointIntervalMs < 0) {
+            throw new IllegalArgumentException("checkpointIntervalMs must not be less than 0, got "
+                    + checkpointIntervalMs);
+        }
+        this.checkpointIntervalMs = checkpointIntervalMs;
+    }
+
+    /**
+     * 返回每次拉取的最多日志组数。
+     * @return 每次拉取的日志组数。
+     */
+    public int getFetchCount() {
+        return fetchCount;
+    }
+
+    /**
+     * 设置每次拉取的最多日志组数。
+     * @param fetchCount
+     *          每次拉取的日志组数，必须在1到{@link #MAX_FETCH_COUNT}之间。
+     */
+    public void setFetchCount(int fetchCount) {
+        if (fetchCount <= 0 || fetchCount > MAX_FETCH_COUNT) {
+            throw new IllegalArgumentException("fetchCount must be between 1 and " + MAX_FETCH_COUNT
+                    + ", got " + fetchCount);
+        }
+        this.fetchCount = fetchCount;
+    }
+
+    /**
+     * 返回shard没有新数据时再次拉取前等待的时间（单位：毫秒）。
+     * @return 空闲等待时间。
+     */
+    public long getIdleBackoffMs() {
+        return idleBackoffMs;
+    }
+
+    /**
+     * 设置shard没有新数据时再次拉取前等待的时间（单位：毫秒）。
+     * @param idleBackoffMs
+     *          空闲等待时间，不能小于0。
+     */
+    public void setIdleBackoffMs(long idleBackoffMs) {
+        if (idleBackoffMs < 0) {
+            throw new IllegalArgumentException("idleBackoffMs must not be less than 0, got " + idleBackoffMs);
+        }
+        this.idleBackoffMs = idleBackoffMs;
+    }
+
+    /**
+     * 返回拉取或处理失败后重试前等待的时间（单位：毫秒）。
+     * @return 重试间隔。
+     */
+    public long getRetryDelayMs() {
+        return retryDelayMs;
+    }
+
+    /**
+     * 设置拉取或处理失败后重试前等待的时间（单位：毫秒），重试从同一位点重新拉取。
+     * @param retryDelayMs
+     *          重试间隔，不能小于0。
+     */
+    public void setRetryDelayMs(long retryDelayMs) {
+        if (retryDelayMs < 0) {
+            throw new IllegalArgumentException("retryDelayMs must not be less than 0, got " + retryDelayMs);
+        }
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    /**
+     * 返回拉取和处理shard数据的线程数。
+     * @return 线程数。
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * 设置拉取和处理shard数据的线程数，线程数可以少于shard数。
+     * @param threadCount
+     *          线程数，必须大于0。
+     */
+    public void setThreadCount(int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("threadCount must be greater than 0, got " + threadCount);
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * 返回shard没有checkpoint时开始拉取的位点。
+     * @return 初始位点。
+     */
+    public String getInitialCursor() {
+        return initialCursor;
+    }
+
+    /**
+     * 设置shard没有checkpoint时开始拉取的位点，原样作为{@link Consts#CONST_CURSOR}参数发送。
+     * @param initialCursor
+     *          初始位点。
+     */
+    public void setInitialCursor(String initialCursor) {
+        requireNotEmpty(initialCursor, "initialCursor");
+        this.initialCursor = initialCursor;
+    }
+
+    private static void requireNotEmpty(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " must not be null or empty");
+        }
+    }
+}
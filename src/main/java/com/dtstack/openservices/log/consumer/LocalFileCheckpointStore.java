@@ -0,0 +1,281 @@
+package com.dtstack.openservices.log.consumer;
+
+import com.dtstack.openservices.log.exception.LogException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ *     基于本地文件的{@link CheckpointStore}，每个消费组的状态保存在目录下的一个properties文件中。
+ *     每次更新都在文件锁内读出、修改后整体替换文件，同一台机器上的多个进程可以共享同一目录。
+ * </p>
+ *
+ * <p>
+ *     只能协调同一台机器上的实例，适用于测试和单机部署，多机部署需要基于共享存储的实现。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class LocalFileCheckpointStore implements CheckpointStore {
+
+    private static final String CONSUMER_PREFIX = "consumer.";
+
+    private static final String LEASE_PREFIX = "lease.";
+
+    private static final String OWNER_SUFFIX = ".owner";
+
+    private static final String EXPIRE_SUFFIX = ".expire";
+
+    private static final String CHECKPOINT_PREFIX = "checkpoint.";
+
+    private static final String STATE_SUFFIX = ".checkpoint";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    /**
+     * File locks are held per process, threads of this process are excluded
+     * by a monitor per state file.
+     */
+    private static final ConcurrentMap<String, Object> MONITORS = new ConcurrentHashMap<String, Object>();
+
+    private final File directory;
+
+    /**
+     * @param directory directory of the state files, created if missing
+     * @throws LogException if the directory can not be created
+     */
+    public LocalFileCheckpointStore(String directory) throws LogException {
+        this.directory = new File(directory);
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new LogException("CheckpointError", "Failed to create checkpoint directory : "
+                    + this.directory.getAbsolutePath(), "");
+        }
+    }
+
+    @Override
+    public List<String> heartbeat(String logStore, String consumerGroup, final String consumerName,
+                                  final long timeoutMs) throws LogException {
+        return update(logStore, consumerGroup, new Update<List<String>>() {
+            @Override
+            public List<String> apply(Properties state, long now) {
+                state.setProperty(CONSUMER_PREFIX + consumerName, String.valueOf(now));
+                List<String> members = new ArrayList<String>();
+                for (String key : state.stringPropertyNames()) {
+                    if (!key.startsWith(CONSUMER_PREFIX)) {
+                        continue;
+                    }
+                    if (now - parseLong(state.getProperty(key)) > timeoutMs) {
+                        state.remove(key);
+                    } else {
+                        members.add(key.substring(CONSUMER_PREFIX.length()));
+                    }
+                }
+                Collections.sort(members);
+                return members;
+            }
+        });
+    }
+
+    @Override
+    public void leave(String logStore, String consumerGroup, final String consumerName) throws LogException {
+        update(logStore, consumerGroup, new Update<Void>() {
+            @Override
+            public Void apply(Properties state, long now) {
+                state.remove(CONSUMER_PREFIX + consumerName);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public boolean acquireLease(String logStore, String consumerGroup, final int shardId,
+                                final String consumerName, final long leaseMs) throws LogException {
+        return update(logStore, consumerGroup, new Update<Boolean>() {
+            @Override
+            public Boolean apply(Properties state, long now) {
+                String owner = state.getProperty(LEASE_PREFIX + shardId + OWNER_SUFFIX);
+                long expire = parseLong(state.getProperty(LEASE_PREFIX + shardId + EXPIRE_SUFFIX));
+                if (owner != null && !owner.equals(consumerName) && expire > now) {
+                    return false;
+                }
+                state.setProperty(LEASE_PREFIX + shardId + OWNER_SUFFIX, consumerName);
+                state.setProperty(LEASE_PREFIX + shardId + EXPIRE_SUFFIX, String.valueOf(now + leaseMs));
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public void releaseLease(String logStore, String consumerGroup, final int shardId,
+                             final String consumerName) throws LogException {
+        update(logStore, consumerGroup, new Update<Void>() {
+            @Override
+            public Void apply(Properties state, long now) {
+                if (consumerName.equals(state.getProperty(LEASE_PREFIX + shardId + OWNER_SUFFIX))) {
+                    state.remove(LEASE_PREFIX + shardId + OWNER_SUFFIX);
+                    state.remove(LEASE_PREFIX + shardId + EXPIRE_SUFFIX);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public String getCheckpoint(String logStore, String consumerGroup, final int shardId) throws LogException {
+        return update(logStore, consumerGroup, new Update<String>() {
+            @Override
+            public String apply(Properties state, long now) {
+                return state.getProperty(CHECKPOINT_PREFIX + shardId);
+            }
+        });
+    }
+
+    @Override
+    public void saveCheckpoints(String logStore, String consumerGroup, final String consumerName,
+                                final Map<Integer, String> checkpoints) throws LogException {
+        update(logStore, consumerGroup, new Update<Void>() {
+            @Override
+            public Void apply(Properties state, long now) {
+                for (Map.Entry<Integer, String> entry : checkpoints.entrySet()) {
+                    String owner = state.getProperty(LEASE_PREFIX + entry.getKey() + OWNER_SUFFIX);
+                    if (owner == null || owner.equals(consumerName)) {
+                        state.setProperty(CHECKPOINT_PREFIX + entry.getKey(), entry.getValue());
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Read the state file, apply the update and replace the file, all while
+     * holding the monitor and the file lock of the group.
+     */
+    private <T> T update(String logStore, String consumerGroup, Update<T> update) throws LogException {
+        // '@' is always escaped by the encoding, so names of different groups never collide
+        String name = encode(logStore) + "@" + encode(consumerGroup);
+        File stateFile = new File(directory, name + STATE_SUFFIX);
+        Object monitor = monitor(stateFile);
+        synchronized (monitor) {
+            RandomAccessFile lockFile = null;
+            FileLock lock = null;
+            try {
+                lockFile = new RandomAccessFile(new File(directory, name + LOCK_SUFFIX), "rw");
+                FileChannel channel = lockFile.getChannel();
+                lock = channel.lock();
+                Properties state = load(stateFile);
+                Properties original = new Properties();
+                original.putAll(state);
+                T result = update.apply(state, System.currentTimeMillis());
+                if (!original.equals(state)) {
+                    store(stateFile, state);
+                }
+                return result;
+            } catch (IOException e) {
+                throw new LogException("CheckpointError", "Failed to update checkpoint file : "
+                        + stateFile.getAbsolutePath(), e, "");
+            } finally {
+                if (lock != null) {
+                    try {
+                        lock.release();
+                    } catch (IOException e) {
+                        // closing the file releases the lock as well
+                    }
+                }
+                if (lockFile != null) {
+                    try {
+                        lockFile.close();
+                    } catch (IOException e) {
+                        // nothing was written through the lock file
+                    }
+                }
+            }
+        }
+    }
+
+    private static Object monitor(File stateFile) {
+        String path = stateFile.getAbsolutePath();
+        Object monitor = MONITORS.get(path);
+        if (monitor == null) {
+            Object created = new Object();
+            monitor = MONITORS.putIfAbsent(path, created);
+            if (monitor == null) {
+                monitor = created;
+            }
+        }
+        return monitor;
+    }
+
+    private static Properties load(File stateFile) throws IOException {
+        Properties state = new Properties();
+        if (!stateFile.exists()) {
+            return state;
+        }
+        InputStream in = new FileInputStream(stateFile);
+        try {
+            state.load(in);
+        } finally {
+            in.close();
+        }
+        return state;
+    }
+
+    /**
+     * Write to a temporary file first so that a crash never leaves a
+     * truncated state file.
+     */
+    private void store(File stateFile, Properties state) throws IOException {
+        File temp = new File(directory, stateFile.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            state.store((OutputStream) out, null);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface Update<T> {
+        T apply(Properties state, long now);
+    }
+}
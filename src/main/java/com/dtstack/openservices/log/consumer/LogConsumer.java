@@ -0,0 +1,334 @@
+package com.dtstack.openservices.log.consumer;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.producer.ShardRange;
+import com.dtstack.openservices.log.producer.ShardRangeProvider;
+import com.dtstack.openservices.log.util.NamedThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     消费组实例。同一消费组的多个实例通过{@link CheckpointStore}共享心跳、shard租约和消费位点：
+ *     每次心跳后按存活实例名和shard编号排序轮流分配shard，实例加入或退出时各实例在下一次心跳重新分配，
+ *     不再属于本实例的shard在当前批次处理完后提交位点并释放租约，新的所有者在租约释放或过期后接手。
+ * </p>
+ *
+ * <p>
+ *     已获得租约的shard由fork/join线程池拉取和处理，繁忙shard的后续批次可被空闲线程窃取，
+ *     线程数可以少于shard数。批次处理成功后位点只记录在内存中，按
+ *     {@link ConsumerGroupConfig#getCheckpointIntervalMs()}合并为一次提交，
+ *     实例异常退出时最近一个间隔内的批次会被新的所有者重新处理。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class LogConsumer {
+
+    private final LogPuller client;
+
+    private final ShardRangeProvider shardProvider;
+
+    private final CheckpointStore store;
+
+    private final ShardProcessor processor;
+
+    private final ConsumerGroupConfig config;
+
+    private final ForkJoinPool pool;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Shards leased by this consumer, guarded by this.
+     */
+    private final Map<Integer, ShardConsumer> shards = new HashMap<Integer, ShardConsumer>();
+
+    private List<Integer> shardIds = Collections.emptyList();
+
+    private long lastCheckpointAt;
+
+    private boolean started = false;
+
+    private volatile boolean closed = false;
+
+    public LogConsumer(LogPuller client, ShardRangeProvider shardProvider, CheckpointStore store,
+                       ShardProcessor processor, ConsumerGroupConfig config) {
+        this.client = client;
+        this.shardProvider = shardProvider;
+        this.store = store;
+        this.processor = processor;
+        this.config = config;
+        this.pool = new ForkJoinPool(config.getThreadCount(), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger(0);
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("log-consumer-worker-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, null, true);
+        // one thread heartbeats, the other resubmits idle shards while a heartbeat waits for the store
+        this.scheduler = new ScheduledThreadPoolExecutor(2, new NamedThreadFactory("log-consumer-coordinator"));
+    }
+
+    /**
+     * Join the consumer group, shards are leased from the first heartbeat on.
+     *
+     * @throws LogException if the consumer has been closed
+     */
+    public synchronized void start() throws LogException {
+        if (closed) {
+            throw new LogException("ConsumerClosed", "The log consumer has been closed", "");
+        }
+        if (started) {
+            return;
+        }
+        started = true;
+        lastCheckpointAt = System.currentTimeMillis();
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                coordinate();
+            }
+        }, 0, config.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return ids of the shards this consumer is pulling, sorted
+     */
+    public synchronized List<Integer> getOwnedShards() {
+        List<Integer> owned = new ArrayList<Integer>();
+        for (ShardConsumer shard : shards.values()) {
+            if (!shard.isStopRequested()) {
+                owned.add(shard.shardId);
+            }
+        }
+        Collections.sort(owned);
+        return owned;
+    }
+
+    /**
+     * Stop pulling, wait for the batches in progress, then save the cursors,
+     * release the leases and leave the group. Shards whose batch does not
+     * finish in time keep their lease until it expires.
+     *
+     * @param timeoutMs max time to wait for the batches in progress
+     * @return true if all batches finished in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean close(long timeoutMs) throws InterruptedException {
+        synchronized (this) {
+            if (closed) {
+                return true;
+            }
+            closed = true;
+            for (ShardConsumer shard : shards.values()) {
+                shard.requestStop();
+            }
+        }
+        scheduler.shutdownNow();
+        pool.shutdown();
+        boolean terminated = pool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        synchronized (this) {
+            releaseStopped(System.currentTimeMillis());
+            shards.clear();
+            try {
+                store.leave(config.getLogStore(), config.getConsumerGroup(), config.getConsumerName());
+            } catch (LogException e) {
+                // dropped from the group once the heartbeat times out
+            } catch (RuntimeException e) {
+                // dropped from the group once the heartbeat times out
+            }
+        }
+        return terminated;
+    }
+
+    /**
+     * Heartbeat, rebalance and renew the leases, runs on the coordinator
+     * thread every heartbeat interval.
+     */
+    private synchronized void coordinate() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<Integer> assigned = null;
+        try {
+            List<String> members = store.heartbeat(config.getLogStore(), config.getConsumerGroup(),
+                    config.getConsumerName(), config.getLeaseTimeoutMs());
+            refreshShards();
+            assigned = assign(members, shardIds, config.getConsumerName());
+        } catch (LogException e) {
+            // the assignment is kept until the store is reachable again
+        } catch (RuntimeException e) {
+            // the assignment is kept until the store is reachable again
+        }
+
+        for (ShardConsumer shard : shards.values()) {
+            if (shard.isStopRequested()) {
+                continue;
+            }
+            if (assigned != null && !assigned.contains(shard.shardId)) {
+                shard.requestStop();
+            } else {
+                renewLease(shard, now);
+            }
+        }
+        if (assigned != null) {
+            for (Integer shardId : assigned) {
+                if (!shards.containsKey(shardId)) {
+                    startShard(shardId, now);
+                }
+            }
+        }
+        if (now - lastCheckpointAt >= config.getCheckpointIntervalMs()) {
+            saveCheckpoints();
+            lastCheckpointAt = now;
+        }
+        releaseStopped(now);
+    }
+
+    private void refreshShards() throws LogException {
+        List<ShardRange> ranges = shardProvider.listShards(config.getLogStore());
+        List<Integer> ids = new ArrayList<Integer>(ranges.size());
+        for (ShardRange range : ranges) {
+            ids.add(range.getShardId());
+        }
+        Collections.sort(ids);
+        shardIds = ids;
+    }
+
+    /**
+     * Deal the sorted shards to the sorted members in turn, every member
+     * computes the same assignment from the same membership.
+     */
+    static Set<Integer> assign(List<String> members, List<Integer> shardIds, String consumerName) {
+        Set<Integer> assigned = new HashSet<Integer>();
+        int index = members.indexOf(consumerName);
+        if (index < 0) {
+            return assigned;
+        }
+        for (int i = index; i < shardIds.size(); i += members.size()) {
+            assigned.add(shardIds.get(i));
+        }
+        return assigned;
+    }
+
+    private void renewLease(ShardConsumer shard, long now) {
+        try {
+            if (store.acquireLease(config.getLogStore(), config.getConsumerGroup(), shard.shardId,
+                    config.getConsumerName(), config.getLeaseTimeoutMs())) {
+                shard.setLeaseRenewedAt(now);
+                return;
+            }
+            shard.markLeaseLost();
+        } catch (LogException e) {
+            expireLease(shard, now);
+        } catch (RuntimeException e) {
+            expireLease(shard, now);
+        }
+    }
+
+    /**
+     * A lease that could not be renewed for a whole timeout may already be
+     * owned by another consumer.
+     */
+    private void expireLease(ShardConsumer shard, long now) {
+        if (now - shard.getLeaseRenewedAt() >= config.getLeaseTimeoutMs()) {
+            shard.markLeaseLost();
+        }
+    }
+
+    private void startShard(int shardId, long now) {
+        try {
+            if (!store.acquireLease(config.getLogStore(), config.getConsumerGroup(), shardId,
+                    config.getConsumerName(), config.getLeaseTimeoutMs())) {
+                // still owned by the previous consumer, retried on the next heartbeat
+                return;
+            }
+            String checkpoint = store.getCheckpoint(config.getLogStore(), config.getConsumerGroup(), shardId);
+            String cursor = checkpoint != null ? checkpoint : config.getInitialCursor();
+            ShardConsumer shard = new ShardConsumer(shardId, cursor, checkpoint, now, client, processor, config,
+                    pool, scheduler);
+            shards.put(shardId, shard);
+            shard.start();
+        } catch (LogException e) {
+            // retried on the next heartbeat, an acquired lease is renewed then
+        } catch (RuntimeException e) {
+            // retried on the next heartbeat, an acquired lease is renewed then
+        }
+    }
+
+    /**
+     * Save the cursors that moved since the last save in one store call.
+     */
+    private void saveCheckpoints() {
+        Map<Integer, String> checkpoints = new HashMap<Integer, String>();
+        for (ShardConsumer shard : shards.values()) {
+            String cursor = shard.dirtyCursor();
+            if (cursor != null && !shard.isLeaseLost()) {
+                checkpoints.put(shard.shardId, cursor);
+            }
+        }
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+        try {
+            store.saveCheckpoints(config.getLogStore(), config.getConsumerGroup(), config.getConsumerName(),
+                    checkpoints);
+        } catch (LogException e) {
+            return;
+        } catch (RuntimeException e) {
+            return;
+        }
+        for (Map.Entry<Integer, String> entry : checkpoints.entrySet()) {
+            shards.get(entry.getKey()).markSaved(entry.getValue());
+        }
+    }
+
+    /**
+     * Save the cursor and release the lease of the stopped shards whose last
+     * batch finished, shards whose lease was lost are dropped as they are.
+     */
+    private void releaseStopped(long now) {
+        Iterator<ShardConsumer> it = shards.values().iterator();
+        while (it.hasNext()) {
+            ShardConsumer shard = it.next();
+            if (!shard.tryFinish()) {
+                continue;
+            }
+            it.remove();
+            if (shard.isLeaseLost() || now - shard.getLeaseRenewedAt() >= config.getLeaseTimeoutMs()) {
+                continue;
+            }
+            try {
+                String cursor = shard.dirtyCursor();
+                if (cursor != null) {
+                    store.saveCheckpoints(config.getLogStore(), config.getConsumerGroup(),
+                            config.getConsumerName(), Collections.singletonMap(shard.shardId, cursor));
+                }
+                store.releaseLease(config.getLogStore(), config.getConsumerGroup(), shard.shardId,
+                        config.getConsumerName());
+            } catch (LogException e) {
+                // the lease expires, the next owner starts from the last saved cursor
+            } catch (RuntimeException e) {
+                // the lease expires, the next owner starts from the last saved cursor
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dtstack.openservices.log.consumer;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.request.BatchGetLogRequest;
+import com.dtstack.openservices.log.response.BatchGetLogResponse;
+
+/**
+ * <p>
+ *     {@link LogConsumer}拉取shard数据所需的最小接口，由
+ *     {@link com.dtstack.openservices.log.ProtoLogClient}实现。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public interface LogPuller {
+
+    /**
+     * Pull a batch of log groups from a shard starting at the cursor of the
+     * request.
+     *
+     * @param request logStore, shard, cursor and max log group count
+     * @return the log groups and the cursor to pull the next batch from
+     * @throws LogException if the request fails
+     */
+    BatchGetLogResponse pullLogs(BatchGetLogRequest request) throws LogException;
+}
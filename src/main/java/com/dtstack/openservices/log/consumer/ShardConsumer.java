@@ -0,0 +1,204 @@
+package com.dtstack.openservices.log.consumer;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.request.BatchGetLogRequest;
+import com.dtstack.openservices.log.response.BatchGetLogResponse;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ *     一个已获得租约的shard的消费状态。每次拉取和处理一个批次是一个fork/join任务，
+ *     有新数据时在当前工作线程上fork下一个任务，空闲线程可以从繁忙线程的队列中窃取；
+ *     没有新数据或失败时经过等待后重新提交。同一shard同一时刻最多只有一个任务在执行。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class ShardConsumer {
+
+    final int shardId;
+
+    private final LogPuller client;
+
+    private final ShardProcessor processor;
+
+    private final ConsumerGroupConfig config;
+
+    private final ForkJoinPool pool;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Held while a batch is pulled and processed.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean stopRequested;
+
+    private volatile String cursor;
+
+    /**
+     * The cursor last written to the checkpoint store, coordinator only.
+     */
+    private String savedCursor;
+
+    /**
+     * When the lease was last renewed, coordinator only.
+     */
+    private long leaseRenewedAt;
+
+    /**
+     * Set once the lease is known to be taken by another consumer,
+     * coordinator only.
+     */
+    private boolean leaseLost;
+
+    ShardConsumer(int shardId, String cursor, String savedCursor, long leaseRenewedAt, LogPuller client,
+                  ShardProcessor processor, ConsumerGroupConfig config, ForkJoinPool pool,
+                  ScheduledExecutorService scheduler) {
+        this.shardId = shardId;
+        this.cursor = cursor;
+        this.savedCursor = savedCursor;
+        this.leaseRenewedAt = leaseRenewedAt;
+        this.client = client;
+        this.processor = processor;
+        this.config = config;
+        this.pool = pool;
+        this.scheduler = scheduler;
+    }
+
+    void start() {
+        submit();
+    }
+
+    /**
+     * Stop pulling after the batch in progress, see {@link #tryFinish()}.
+     */
+    void requestStop() {
+        stopRequested = true;
+    }
+
+    boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    /**
+     * @return true if a stop was requested and no batch is being processed,
+     *         no batch is processed after that
+     */
+    boolean tryFinish() {
+        if (!stopRequested || !lock.tryLock()) {
+            return false;
+        }
+        lock.unlock();
+        return true;
+    }
+
+    /**
+     * @return the cursor to checkpoint, null if it did not move since the
+     *         last save
+     */
+    String dirtyCursor() {
+        String current = cursor;
+        return current.equals(savedCursor) ? null : current;
+    }
+
+    void markSaved(String saved) {
+        savedCursor = saved;
+    }
+
+    long getLeaseRenewedAt() {
+        return leaseRenewedAt;
+    }
+
+    void setLeaseRenewedAt(long leaseRenewedAt) {
+        this.leaseRenewedAt = leaseRenewedAt;
+    }
+
+    boolean isLeaseLost() {
+        return leaseLost;
+    }
+
+    void markLeaseLost() {
+        leaseLost = true;
+        stopRequested = true;
+    }
+
+    /**
+     * Pull and process one batch.
+     *
+     * @return how long to wait before the next pull, 0 to pull again at once,
+     *         negative to stop
+     */
+    private long consumeOnce() {
+        lock.lock();
+        try {
+            if (stopRequested) {
+                return -1;
+            }
+            String current = cursor;
+            try {
+                BatchGetLogResponse response = client.pullLogs(new BatchGetLogRequest(config.getLogStore(),
+                        shardId, config.getFetchCount(), current));
+                int count = response.GetCount();
+                if (count > 0) {
+                    processor.process(shardId, response);
+                }
+                String next = response.GetNextCursor();
+                if (next != null && !next.isEmpty()) {
+                    cursor = next;
+                }
+                return count == 0 || next == null || next.equals(current) ? config.getIdleBackoffMs() : 0;
+            } catch (LogException e) {
+                return config.getRetryDelayMs();
+            } catch (RuntimeException e) {
+                return config.getRetryDelayMs();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void submit() {
+        try {
+            pool.execute(new Step());
+        } catch (RejectedExecutionException e) {
+            // the consumer is closing
+        }
+    }
+
+    private void submitLater(long delayMs) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    submit();
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the consumer is closing
+        }
+    }
+
+    private final class Step extends RecursiveAction {
+
+        private static final long serialVersionUID = -2384816273647019412L;
+
+        @Override
+        protected void compute() {
+            long delayMs = consumeOnce();
+            if (delayMs == 0) {
+                // queued on this worker, idle workers steal it if this one falls behind
+                new Step().fork();
+            } else if (delayMs > 0) {
+                submitLater(delayMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dtstack.openservices.log.consumer;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.response.BatchGetLogResponse;
+
+/**
+ * <p>
+ *     处理{@link LogConsumer}从shard拉取到的日志。同一shard的批次按顺序串行调用，
+ *     不同shard的批次可能在不同线程上并发调用，实现需要线程安全。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public interface ShardProcessor {
+
+    /**
+     * Process a non-empty batch, the cursor after the batch is checkpointed
+     * once this returns.
+     *
+     * @param shardId  the shard the batch was pulled from
+     * @param response the pulled log groups
+     * @throws LogException to have the same batch pulled and processed again
+     *                      after the retry delay
+     */
+    void process(int shardId, BatchGetLogResponse response) throws LogException;
+}
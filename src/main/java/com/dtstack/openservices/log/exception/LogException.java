@@ -19,6 +19,8 @@ public class LogException extends Exception {
 
 	private String requestId;
 
+	private int httpCode = -1;
+
 	/**
 	 * Construct LogException
 	 * 
@@ -83,4 +85,23 @@ public class LogException extends Exception {
 	public String GetRequestId() {
 		return this.requestId;
 	}
+
+	/**
+	 * Get the http status code
+	 * 
+	 * @return http status code, -1 if the error is happened in the client
+	 */
+	public int GetHttpCode() {
+		return this.httpCode;
+	}
+
+	/**
+	 * Set the http status code of the response the error is parsed from
+	 * 
+	 * @param httpCode
+	 *            http status code
+	 */
+	public void SetHttpCode(int httpCode) {
+		this.httpCode = httpCode;
+	}
 }
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) Alibaba Cloud Computing
+ * All rights reserved.
+ *
+ * 版权所有 （C）阿里云计算有限公司
+ */
+
+package com.dtstack.openservices.log.http.client;
+
+/**
+ * <p>
+ *     每个服务端地址一个熔断器的配置。最近{@link #getWindowMs()}内失败率或慢请求比例超过阈值，
+ *     或者连续失败次数达到{@link #getConsecutiveFailureThreshold()}时熔断器打开，
+ *     打开期间请求立即失败；{@link #getOpenDurationMs()}后放行少量探测请求，
+ *     探测全部成功后关闭。
+ * </p>
+ *
+ * <p>
+ *     同一服务端地址的所有请求共用一个熔断器，写入（putLogs）与查询（getLogs、分片并行查询等）一起统计。
+ *     网络错误和HTTP 5xx计为失败；慢请求默认不统计，因为大范围查询本身就可能很慢，
+ *     计入后会让查询流量打开熔断器而使写入立即失败。只有写入流量的客户端才建议设置
+ *     {@link #setSlowCallDurationMs(long)}。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ *
+ */
+public class CircuitBreakerConfig {
+
+    private long windowMs = 10 * 1000;
+    private int minimumRequests = 20;
+    private double failureRateThreshold = 0.5;
+    private long slowCallDurationMs = 0;
+    private double slowCallRateThreshold = 0.5;
+    private int consecutiveFailureThreshold = 5;
+    private long openDurationMs = 10 * 1000;
+    private int halfOpenProbes = 3;
+
+    /**
+     * 构造新实例。
+     */
+    public CircuitBreakerConfig(){}
+
+    /**
+     * 返回统计失败率的滑动窗口长度（单位：毫秒）。
+     * @return 滑动窗口长度。
+     */
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    /**
+     * 设置统计失败率的滑动窗口长度（单位：毫秒）。
+     * @param windowMs
+     *          滑动窗口长度，不能小于10。
+     */
+    public void setWindowMs(long windowMs) {
+        if (windowMs < 10) {
+            throw new IllegalArgumentException("windowMs must not be less than 10, got " + windowMs);
+        }
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * 返回按比例判断熔断前窗口内至少需要的请求数。
+     * @return 最少请求数。
+     */
+    public int getMinimumRequests() {
+        return minimumRequests;
+    }
+
+    /**
+     * 设置按比例判断熔断前窗口内至少需要的请求数。
+     * @param minimumRequests
+     *          最少请求数，必须大于0。
+     */
+    public void setMinimumRequests(int minimumRequests) {
+        if (minimumRequests <= 0) {
+            throw new IllegalArgumentException("minimumRequests must be greater than 0, got " + minimumRequests);
+        }
+        this.minimumRequests = minimumRequests;
+    }
+
+    /**
+     * 返回打开熔断器的失败率。
+     * @return 失败率阈值。
+     */
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * 设置打开熔断器的失败率，网络错误和HTTP 5xx计为失败。
+     * @param failureRateThreshold
+     *          失败率阈值，取值范围(0, 1]。
+     */
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1], got "
+                    + failureRateThreshold);
+        }
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * 返回慢请求的耗时（单位：毫秒）。
+     * @return 慢请求耗时，0表示不统计慢请求（默认）。
+     */
+    public long getSlowCallDurationMs() {
+        return slowCallDurationMs;
+    }
+
+    /**
+     * 设置慢请求的耗时（单位：毫秒），耗时不低于该值的请求计为慢请求。
+     * 查询与写入共用熔断器，慢查询同样会计入。
+     * @param slowCallDurationMs
+     *          慢请求耗时，0表示不统计慢请求，不能小于0。
+     */
+    public void setSlowCallDurationMs(long slowCallDurationMs) {
+        if (slowCallDurationMs < 0) {
+            throw new IllegalArgumentException("slowCallDurationMs must not be less than 0, got "
+                    + slowCallDurationMs);
+        }
+        this.slowCallDurationMs = slowCallDurationMs;
+    }
+
+    /**
+     * 返回打开熔断器的慢请求比例。
+     * @return 慢请求比例阈值。
+     */
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * 设置打开熔断器的慢请求比例。
+     * @param slowCallRateThreshold
+     *          慢请求比例阈值，取值范围(0, 1]。
+     */
+    public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+        if (!(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1)) {
+            throw new IllegalArgumentException("slowCallRateThreshold must be in (0, 1], got "
+                    + slowCallRateThreshold);
+        }
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    /**
+     * 返回直接打开熔断器的连续失败次数。
+     * @return 连续失败次数。
+     */
+    public int getConsecutiveFailureThreshold() {
+        return consecutiveFailureThreshold;
+    }
+
+    /**
+     * 设置直接打开熔断器的连续失败次数，请求量小时不必等窗口内请求数达到最小值。
+     * @param consecutiveFailureThreshold
+     *          连续失败次数，必须大于0。
+     */
+    public void setConsecutiveFailureThreshold(int consecutiveFailureThreshold) {
+        if (consecutiveFailureThreshold <= 0) {
+            throw new IllegalArgumentException("consecutiveFailureThreshold must be greater than 0, got "
+                    + consecutiveFailureThreshold);
+        }
+        this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+    }
+
+    /**
+     * 返回熔断器打开后开始探测前的时间（单位：毫秒）。
+     * @return 打开时长。
+     */
+    public long getOpenDurationMs() {
+        return openDurationMs;
+    }
+
+    /**
+     * 设置熔断器打开后开始探测前的时间（单位：毫秒）。
+     * @param openDurationMs
+     *          打开时长，必须大于0。
+     */
+    public void setOpenDurationMs(long openDurationMs) {
+        if (openDurationMs <= 0) {
+            throw new IllegalArgumentException("openDurationMs must be greater than 0, got " + openDurationMs);
+        }
+        this.openDurationMs = openDurationMs;
+    }
+
+    /**
+     * 返回半开状态下放行的探测请求数。
+     * @return 探测请求数。
+     */
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    /**
+     * 设置半开状态下放行的探测请求数，全部成功后关闭熔断器。
+     * @param halfOpenProbes
+     *          探测请求数，必须大于0。
+     */
+    public void setHalfOpenProbes(int halfOpenProbes) {
+        if (halfOpenProbes <= 0) {
+            throw new IllegalArgumentException("halfOpenProbes must be greater than 0, got " + halfOpenProbes);
+        }
+        this.halfOpenProbes = halfOpenProbes;
+    }
+}
@@ -18,8 +18,17 @@ package com.dtstack.openservices.log.http.client;
 public class ClientConfiguration {
 
     private int maxConnections = 50;
+    private int maxConnectionsPerRoute = -1;
+    private long connectionTTL = -1;
+    private long idleConnectionTime = 30 * 1000;
+    private long keepAliveTime = 30 * 1000;
+    private int validateAfterInactivity = 2 * 1000;
+    private CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
     private int socketTimeout = 50 * 1000;
     private int connectionTimeout = 50 * 1000;
+    private TransportType transportType = TransportType.BLOCKING;
+    private int ioThreadCount = Runtime.getRuntime().availableProcessors();
+    private int queryThreadCount = 16;
 
     /**
      * 构造新实例。
@@ -43,6 +52,100 @@ public class ClientConfiguration {
         this.maxConnections = maxConnections;
     }
 
+    /**
+     * 返回到同一服务端地址允许打开的最大HTTP连接数。
+     * @return 单个地址的最大HTTP连接数，未设置时等于{@link #getMaxConnections()}。
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute > 0 ? maxConnectionsPerRoute : maxConnections;
+    }
+
+    /**
+     * 设置到同一服务端地址允许打开的最大HTTP连接数，实际值不超过{@link #getMaxConnections()}，
+     * 默认与{@link #getMaxConnections()}相同。
+     * @param maxConnectionsPerRoute
+     *          单个地址的最大HTTP连接数，必须大于0。
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        if (maxConnectionsPerRoute <= 0) {
+            throw new IllegalArgumentException("maxConnectionsPerRoute must be greater than 0, got "
+                    + maxConnectionsPerRoute);
+        }
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * 返回连接的最长存活时间（单位：毫秒），-1表示不限制。
+     * @return 连接的最长存活时间。
+     */
+    public long getConnectionTTL() {
+        return connectionTTL;
+    }
+
+    /**
+     * 设置连接的最长存活时间（单位：毫秒），超过该时间的连接不再复用，
+     * 便于服务端地址变化后连接逐步迁移。
+     * @param connectionTTL
+     *          连接的最长存活时间，小于等于0表示不限制。
+     */
+    public void setConnectionTTL(long connectionTTL) {
+        this.connectionTTL = connectionTTL;
+    }
+
+    /**
+     * 返回空闲连接被关闭前允许的空闲时间（单位：毫秒）。
+     * @return 空闲连接的最长空闲时间。
+     */
+    public long getIdleConnectionTime() {
+        return idleConnectionTime;
+    }
+
+    /**
+     * 设置空闲连接被关闭前允许的空闲时间（单位：毫秒），后台线程定期关闭超时和过期的空闲连接，
+     * 避免连接停留在CLOSE_WAIT状态。
+     * @param idleConnectionTime
+     *          空闲连接的最长空闲时间，小于等于0表示不按空闲时间关闭。
+     */
+    public void setIdleConnectionTime(long idleConnectionTime) {
+        this.idleConnectionTime = idleConnectionTime;
+    }
+
+    /**
+     * 返回服务端未通过Keep-Alive响应头指定时长时，连接保持复用的时间（单位：毫秒）。
+     * @return 默认的keep-alive时间。
+     */
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    /**
+     * 设置服务端未通过Keep-Alive响应头指定时长时，连接保持复用的时间（单位：毫秒）。
+     * 服务端指定的时长优先。
+     * @param keepAliveTime
+     *          默认的keep-alive时间，小于等于0表示不限制。
+     */
+    public void setKeepAliveTime(long keepAliveTime) {
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    /**
+     * 返回复用连接前需要检查连接是否可用的空闲时间（单位：毫秒）。
+     * @return 连接检查的空闲时间。
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * 设置复用连接前需要检查连接是否可用的空闲时间（单位：毫秒），
+     * 只有空闲超过该时间的连接在复用前检查，仅对{@link TransportType#BLOCKING}方式有效。
+     * @param validateAfterInactivity
+     *          连接检查的空闲时间，小于等于0表示不检查。
+     */
+    public void setValidateAfterInactivity(int validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
     /**
      * 返回通过打开的连接传输数据的超时时间（单位：毫秒）。
      * 0表示无限等待（但不推荐使用）。
@@ -78,4 +181,84 @@ public class ClientConfiguration {
     public void setConnectionTimeout(int connectionTimeout) {
         this.connectionTimeout = connectionTimeout;
     }
+
+    /**
+     * 返回HTTP传输方式。
+     * @return HTTP传输方式。
+     */
+    public TransportType getTransportType() {
+        return transportType;
+    }
+
+    /**
+     * 设置HTTP传输方式，默认为{@link TransportType#BLOCKING}。
+     * @param transportType
+     *          HTTP传输方式。
+     */
+    public void setTransportType(TransportType transportType) {
+        if (transportType == null) {
+            throw new IllegalArgumentException("transportType must not be null");
+        }
+        this.transportType = transportType;
+    }
+
+    /**
+     * 返回{@link TransportType#NIO}方式下的IO线程数。
+     * @return IO线程数。
+     */
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    /**
+     * 设置{@link TransportType#NIO}方式下的IO线程数，默认为CPU核数。
+     * @param ioThreadCount
+     *          IO线程数，必须大于0。
+     */
+    public void setIoThreadCount(int ioThreadCount) {
+        if (ioThreadCount <= 0) {
+            throw new IllegalArgumentException("ioThreadCount must be greater than 0, got " + ioThreadCount);
+        }
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    /**
+     * 返回并行查询和分页遍历共用的查询线程数。
+     * @return 查询线程数。
+     */
+    public int getQueryThreadCount() {
+        return queryThreadCount;
+    }
+
+    /**
+     * 设置并行查询和分页遍历共用的查询线程数，默认为16。线程都忙时新的任务排队等待，
+     * 分页遍历只在拉取页面时占用线程，预取队列满时不占用。
+     * @param queryThreadCount
+     *          查询线程数，必须大于0。
+     */
+    public void setQueryThreadCount(int queryThreadCount) {
+        if (queryThreadCount <= 0) {
+            throw new IllegalArgumentException("queryThreadCount must be greater than 0, got " + queryThreadCount);
+        }
+        this.queryThreadCount = queryThreadCount;
+    }
+
+    /**
+     * 返回熔断器配置。
+     * @return 熔断器配置，null表示不使用熔断器。
+     */
+    public CircuitBreakerConfig getCircuitBreakerConfig() {
+        return circuitBreakerConfig;
+    }
+
+    /**
+     * 设置熔断器配置，每个服务端地址使用一个熔断器，服务端不可用时请求立即失败，
+     * 不必等待连接或读写超时。写入和查询请求共用该地址的熔断器，默认只统计失败，
+     * 不统计慢请求，见{@link CircuitBreakerConfig}。
+     * @param circuitBreakerConfig
+     *          熔断器配置，null表示不使用熔断器。
+     */
+    public void setCircuitBreakerConfig(CircuitBreakerConfig circuitBreakerConfig) {
+        this.circuitBreakerConfig = circuitBreakerConfig;
+    }
 }
@@ -0,0 +1,196 @@
+package com.dtstack.openservices.log.http.client;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.dtstack.openservices.log.util.NamedThreadFactory;
+
+/**
+ * <p>
+ *     直连模式下endpoint解析出的后端ip表。发送时选择正在发送数据量最少的可用ip，
+ *     连续失败的ip被禁用，后台线程定期重新解析域名，并用TCP连接探测被禁用的ip，
+ *     连接成功后重新启用。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class ClientConnectionContainer {
+
+    /**
+     * 连续失败该次数后禁用ip。
+     */
+    public static final int MAX_ERROR_COUNT = 3;
+
+    private static final long RESOLVE_INTERVAL_MS = 60 * 1000;
+
+    private static final long PROBE_INTERVAL_MS = 10 * 1000;
+
+    private static final int PROBE_TIMEOUT_MS = 3 * 1000;
+
+    private final String host;
+
+    private final int port;
+
+    private final String portSuffix;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile ClientConnectionStatus[] connections = new ClientConnectionStatus[0];
+
+    /**
+     * @param hostName    endpoint host, optionally followed by ":port"
+     * @param defaultPort port used when the host name has none
+     */
+    public ClientConnectionContainer(String hostName, int defaultPort) {
+        int colon = hostName.lastIndexOf(':');
+        if (colon > 0) {
+            this.host = hostName.substring(0, colon);
+            this.port = Integer.parseInt(hostName.substring(colon + 1));
+            this.portSuffix = hostName.substring(colon);
+        } else {
+            this.host = hostName;
+            this.port = defaultPort;
+            this.portSuffix = "";
+        }
+        resolve();
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("log-direct-mode"));
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                resolve();
+            }
+        }, RESOLVE_INTERVAL_MS, RESOLVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                probe();
+            }
+        }, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pick the usable ip with the least bytes being sent, the least recently
+     * used one among equals so that idle backends take turns.
+     *
+     * @return the connection, null if no ip is usable
+     */
+    public ClientConnectionStatus GetConnection() {
+        return GetConnection(null);
+    }
+
+    /**
+     * Pick a connection for a retry, the ip that failed is only used when no
+     * other ip is usable.
+     *
+     * @param failed connection of the failed attempt, may be null
+     * @return the connection, null if no ip is usable
+     */
+    public ClientConnectionStatus GetConnection(ClientConnectionStatus failed) {
+        ClientConnectionStatus best = null;
+        long bestOutstanding = Long.MAX_VALUE;
+        long bestLastUsed = Long.MAX_VALUE;
+        for (ClientConnectionStatus status : connections) {
+            if (status == failed || !status.IsValidConnection()) {
+                continue;
+            }
+            long outstanding = status.GetOutstandingDataSize();
+            long lastUsed = status.GetLastUsedTime();
+            if (outstanding < bestOutstanding || (outstanding == bestOutstanding && lastUsed < bestLastUsed)) {
+                best = status;
+                bestOutstanding = outstanding;
+                bestLastUsed = lastUsed;
+            }
+        }
+        if (best == null && failed != null && failed.IsValidConnection()) {
+            best = failed;
+        }
+        if (best != null) {
+            best.UpdateLastUsedTime(System.nanoTime());
+        }
+        return best;
+    }
+
+    /**
+     * @return "ip[:port]" to put in the request uri
+     */
+    public String GetServerAddress(ClientConnectionStatus status) {
+        String ip = status.GetIpAddress();
+        if (ip.indexOf(':') >= 0) {
+            return "[" + ip + "]" + portSuffix;
+        }
+        return ip + portSuffix;
+    }
+
+    /**
+     * @return status of every resolved ip
+     */
+    public List<ClientConnectionStatus> GetAllConnections() {
+        return Collections.unmodifiableList(Arrays.asList(connections));
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Resolve the host again, ips still present keep their status.
+     */
+    void resolve() {
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(host);
+        } catch (UnknownHostException e) {
+            // keep the current table, the host is resolved again later
+            return;
+        }
+        Map<String, ClientConnectionStatus> current = new HashMap<String, ClientConnectionStatus>();
+        for (ClientConnectionStatus status : connections) {
+            current.put(status.GetIpAddress(), status);
+        }
+        List<ClientConnectionStatus> resolved = new ArrayList<ClientConnectionStatus>(addresses.length);
+        for (InetAddress address : addresses) {
+            String ip = address.getHostAddress();
+            ClientConnectionStatus status = current.remove(ip);
+            resolved.add(status != null ? status : new ClientConnectionStatus(ip));
+        }
+        connections = resolved.toArray(new ClientConnectionStatus[resolved.size()]);
+    }
+
+    /**
+     * Connect to the disabled ips and enable the ones accepting connections.
+     */
+    void probe() {
+        long now = System.nanoTime();
+        for (ClientConnectionStatus status : connections) {
+            if (status.IsValidConnection()
+                    || now - status.GetDisabledTime() < TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MS)) {
+                continue;
+            }
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getByName(status.GetIpAddress()), port),
+                        PROBE_TIMEOUT_MS);
+                status.EnableConnection();
+            } catch (IOException e) {
+                status.DisableConnection();
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package com.dtstack.openservices.log.http.client;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ *     直连模式下一个后端ip的连接状态：累计发送量、正在发送的数据量、最近使用时间、
+ *     连续失败次数以及是否可用。多个发送线程并发更新。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
 public class ClientConnectionStatus {
 	final String mIpAddress;
-	long mCreateTimeNano;
-	long mLastUsedTimeNano;
-	long mSendDataSize;
-	long mPullDataSize;
-	boolean mIsValid;
+	final long mCreateTimeNano;
+	volatile long mLastUsedTimeNano;
+	final AtomicLong mSendDataSize = new AtomicLong(0);
+	final AtomicLong mPullDataSize = new AtomicLong(0);
+	final AtomicLong mOutstandingDataSize = new AtomicLong(0);
+	final AtomicInteger mErrorCount = new AtomicInteger(0);
+	volatile boolean mIsValid;
+	volatile long mDisabledTimeNano;
 	public ClientConnectionStatus(String ip)
 	{
 		mIpAddress = ip;
 		mCreateTimeNano = System.nanoTime();
 		mLastUsedTimeNano = 0;
-		mSendDataSize = 0;
-		mPullDataSize = 0;
 		mIsValid = true;
 	}
 	public String GetIpAddress()
@@ -22,19 +34,38 @@ public class ClientConnectionStatus {
 	}
 	public void AddSendDataSize(long data_size)
 	{
-		mSendDataSize += data_size;
+		mSendDataSize.addAndGet(data_size);
 	}
 	public long GetSendDataSize()
 	{
-		return mSendDataSize;
+		return mSendDataSize.get();
 	}
 	public void AddPullDataSize(long data_size)
 	{
-		mPullDataSize += data_size;
+		mPullDataSize.addAndGet(data_size);
 	}
 	public long GetPullDataSize()
 	{
-		return mPullDataSize;
+		return mPullDataSize.get();
+	}
+	/**
+	 * Mark data_size bytes as being sent to this ip, call EndSend when the
+	 * request completes
+	 */
+	public void BeginSend(long data_size)
+	{
+		mOutstandingDataSize.addAndGet(data_size);
+	}
+	public void EndSend(long data_size)
+	{
+		mOutstandingDataSize.addAndGet(-data_size);
+	}
+	/**
+	 * @return bytes of the requests currently being sent to this ip
+	 */
+	public long GetOutstandingDataSize()
+	{
+		return mOutstandingDataSize.get();
 	}
 	public long GetCreateTime()
 	{
@@ -46,8 +77,46 @@ public class ClientConnectionStatus {
 	}
 	public void DisableConnection()
 	{
+		mDisabledTimeNano = System.nanoTime();
 		mIsValid = false;
 	}
+	/**
+	 * Make the ip usable again and clear its error count
+	 */
+	public void EnableConnection()
+	{
+		mErrorCount.set(0);
+		mIsValid = true;
+	}
+	/**
+	 * @return the nano time the connection was disabled at
+	 */
+	public long GetDisabledTime()
+	{
+		return mDisabledTimeNano;
+	}
+	/**
+	 * Record a failed request, the connection is disabled once
+	 * max_error_count requests failed in a row
+	 *
+	 * @return true if the connection is disabled by this error
+	 */
+	public boolean AddErrorCount(int max_error_count)
+	{
+		if (mErrorCount.incrementAndGet() >= max_error_count && mIsValid) {
+			DisableConnection();
+			return true;
+		}
+		return false;
+	}
+	public void ResetErrorCount()
+	{
+		mErrorCount.set(0);
+	}
+	public int GetErrorCount()
+	{
+		return mErrorCount.get();
+	}
 	public void UpdateLastUsedTime(long cur_time)
 	{
 		mLastUsedTimeNano = cur_time;
@@ -22,4 +22,9 @@ public interface ClientErrorCode {
      * 返回结果无法解析
      */
     static final String INVALID_RESPONSE = "InvalidResponse";
+
+    /**
+     * 服务端地址的熔断器已打开，请求未发送
+     */
+    static final String CIRCUIT_OPEN = "CircuitBreakerOpen";
 }
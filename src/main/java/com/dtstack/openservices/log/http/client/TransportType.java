@@ -0,0 +1,29 @@
+/**
+ * Copyright (C) Alibaba Cloud Computing
+ * All rights reserved.
+ * 
+ * 版权所有 （C）阿里云计算有限公司
+ */
+
+package com.dtstack.openservices.log.http.client;
+
+/**
+ * <p>
+ *     HTTP传输方式
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ *
+ */
+public enum TransportType {
+
+    /**
+     * 阻塞IO，每个进行中的请求占用一个调用线程
+     */
+    BLOCKING,
+
+    /**
+     * 基于NIO selector的非阻塞IO，所有连接由固定数量的IO线程处理
+     */
+    NIO
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) Alibaba Cloud Computing
+ * All rights reserved.
+ *
+ * 版权所有 （C）阿里云计算有限公司
+ */
+package com.dtstack.openservices.log.http.comm;
+
+import java.util.concurrent.TimeUnit;
+
+import com.dtstack.openservices.log.http.client.CircuitBreakerConfig;
+
+/**
+ * <p>
+ *     一个服务端地址的熔断器。滑动窗口分为{@link #BUCKETS}个桶，按桶统计请求数、失败数和慢请求数，
+ *     状态在CLOSED、OPEN、HALF_OPEN之间转换，见{@link CircuitBreakerConfig}。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ *
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int BUCKETS = 10;
+
+    private final CircuitBreakerConfig config;
+
+    private final long bucketNanos;
+
+    private final long[] bucketEpochs = new long[BUCKETS];
+
+    private final int[] calls = new int[BUCKETS];
+
+    private final int[] failures = new int[BUCKETS];
+
+    private final int[] slowCalls = new int[BUCKETS];
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAtNanos;
+
+    private int probesStarted;
+
+    private int probesSucceeded;
+
+    CircuitBreaker(CircuitBreakerConfig config) {
+        this.config = config;
+        this.bucketNanos = TimeUnit.MILLISECONDS.toNanos(config.getWindowMs()) / BUCKETS;
+    }
+
+    /**
+     * @return false if the request must fail fast, otherwise
+     *         {@link #onResult(boolean, long)} must be called once it completes
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(config.getOpenDurationMs())) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= config.getHalfOpenProbes()) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * Record the outcome of a request allowed by {@link #tryAcquire()}.
+     *
+     * @param failed       true for network errors and server errors
+     * @param elapsedNanos time the request took
+     */
+    synchronized void onResult(boolean failed, long elapsedNanos) {
+        if (state == State.OPEN) {
+            // a request started before the breaker opened
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failed) {
+                open();
+            } else if (++probesSucceeded >= config.getHalfOpenProbes()) {
+                close();
+            }
+            return;
+        }
+        long slowCallDurationMs = config.getSlowCallDurationMs();
+        boolean slow = slowCallDurationMs > 0
+                && elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowCallDurationMs);
+        int bucket = currentBucket();
+        calls[bucket]++;
+        if (failed) {
+            failures[bucket]++;
+            consecutiveFailures++;
+        } else {
+            consecutiveFailures = 0;
+        }
+        if (slow) {
+            slowCalls[bucket]++;
+        }
+        if (consecutiveFailures >= config.getConsecutiveFailureThreshold()) {
+            open();
+            return;
+        }
+        long now = System.nanoTime() / bucketNanos;
+        int totalCalls = 0;
+        int totalFailures = 0;
+        int totalSlowCalls = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (now - bucketEpochs[i] < BUCKETS) {
+                totalCalls += calls[i];
+                totalFailures += failures[i];
+                totalSlowCalls += slowCalls[i];
+            }
+        }
+        if (totalCalls >= config.getMinimumRequests()
+                && (totalFailures >= config.getFailureRateThreshold() * totalCalls
+                || totalSlowCalls >= config.getSlowCallRateThreshold() * totalCalls)) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private int currentBucket() {
+        long epoch = System.nanoTime() / bucketNanos;
+        int bucket = (int) Math.floorMod(epoch, (long) BUCKETS);
+        if (bucketEpochs[bucket] != epoch) {
+            bucketEpochs[bucket] = epoch;
+            calls[bucket] = 0;
+            failures[bucket] = 0;
+            slowCalls[bucket] = 0;
+        }
+        return bucket;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            calls[i] = 0;
+            failures[i] = 0;
+            slowCalls[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) Alibaba Cloud Computing
+ * All rights reserved.
+ *
+ * 版权所有 （C）阿里云计算有限公司
+ */
+package com.dtstack.openservices.log.http.comm;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.dtstack.openservices.log.util.NamedThreadFactory;
+
+/**
+ * <p>
+ *     在后台关闭连接池中过期和空闲超时的连接，代替每次请求前扫描连接池。
+ *     进程内所有客户端共用一个守护线程，每个连接池对应一个定时任务。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ *
+ */
+final class ConnectionEvictor {
+
+    private static final long MAX_INTERVAL_MS = 5 * 1000;
+
+    private static final long MIN_INTERVAL_MS = 100;
+
+    private static ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * 连接池中关闭连接的操作，阻塞和NIO连接池没有共同的接口。
+     */
+    interface ConnectionPool {
+
+        void closeExpiredConnections();
+
+        void closeIdleConnections(long idleTime, TimeUnit unit);
+    }
+
+    private final ScheduledFuture<?> task;
+
+    private ConnectionEvictor(ScheduledFuture<?> task) {
+        this.task = task;
+    }
+
+    /**
+     * Start evicting connections of a pool.
+     *
+     * @param pool               the connection pool
+     * @param idleConnectionTime max idle time in milliseconds, not positive
+     *                           means only expired connections are closed
+     * @return the evictor, call {@link #shutdown()} when the pool is closed
+     */
+    static ConnectionEvictor start(final ConnectionPool pool, final long idleConnectionTime) {
+        long interval = MAX_INTERVAL_MS;
+        if (idleConnectionTime > 0) {
+            interval = Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, idleConnectionTime / 2));
+        }
+        ScheduledFuture<?> task = scheduler().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pool.closeExpiredConnections();
+                    if (idleConnectionTime > 0) {
+                        pool.closeIdleConnections(idleConnectionTime, TimeUnit.MILLISECONDS);
+                    }
+                } catch (RuntimeException e) {
+                    // keep the task scheduled, the pool is retried next round
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return new ConnectionEvictor(task);
+    }
+
+    void shutdown() {
+        task.cancel(false);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor scheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("log-connection-evictor"));
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+}
@@ -7,19 +7,14 @@
 package com.dtstack.openservices.log.http.comm;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
-import com.dtstack.openservices.log.http.client.ClientConfiguration;
-import com.dtstack.openservices.log.http.utils.ExceptionFactory;
-import org.apache.http.Header;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 import com.dtstack.openservices.log.http.utils.ExceptionFactory;
-import com.dtstack.openservices.log.http.utils.HttpUtil;
 import com.dtstack.openservices.log.http.client.ClientConfiguration;
 
 
@@ -30,25 +25,37 @@ import com.dtstack.openservices.log.http.client.ClientConfiguration;
  */
 public class DefaultServiceClient extends ServiceClient {
 
-    private HttpClient httpClient;
-    
+    private final CloseableHttpClient httpClient;
+
+    private final ConnectionEvictor connectionEvictor;
+
     /**
      * 构造新实例。
      */
     public DefaultServiceClient(ClientConfiguration config) {
         super(config);
-        httpClient = new HttpFactory().createHttpClient(config);
+        HttpFactory httpFactory = new HttpFactory();
+        final PoolingHttpClientConnectionManager connMgr = httpFactory.createConnectionManager(config);
+        httpClient = httpFactory.createHttpClient(config, connMgr);
+        // Idle connections are closed in the background so that they don't
+        // sit around in CLOSE_WAIT, requests never scan the pool themselves.
+        connectionEvictor = ConnectionEvictor.start(new ConnectionEvictor.ConnectionPool() {
+            @Override
+            public void closeExpiredConnections() {
+                connMgr.closeExpiredConnections();
+            }
+
+            @Override
+            public void closeIdleConnections(long idleTime, TimeUnit unit) {
+                connMgr.closeIdleConnections(idleTime, unit);
+            }
+        }, config.getIdleConnectionTime());
     }
 
     @Override
     public ResponseMessage sendRequestCore(Request request, String charset)
             throws IOException{
         assert request != null;
-        
-        // When we release connections, the connection manager leaves them
-        // open so they can be reused.  We want to close out any idle
-        // connections so that they don't sit around in CLOSE_WAIT.
-        httpClient.getConnectionManager().closeIdleConnections(30, TimeUnit.SECONDS);
 
         HttpRequestBase httpRequest = new HttpFactory().createHttpRequest(request, charset);
 
@@ -60,25 +67,16 @@ public class DefaultServiceClient extends ServiceClient {
             throw ExceptionFactory.createNetworkException(ex);
         }
 
-        // Build result
-        ResponseMessage result = new ResponseMessage();
-        result.setUrl(request.getUri());
-        if (response.getStatusLine() != null){
-            result.setStatusCode(response.getStatusLine().getStatusCode());
-        }
-        if (response.getEntity() != null){
-            result.setContent(response.getEntity().getContent());
-        }
-        // fill in headers
-        Header[] headers = response.getAllHeaders();
-        Map<String, String> resultHeaders = new HashMap<String, String>();
-        for(int i = 0; i < headers.length; i++){
-            Header h = headers[i];
-            resultHeaders.put(h.getName(), h.getValue());
-        }
-        HttpUtil.convertHeaderCharsetFromIso88591(resultHeaders);
-        result.setHeaders(resultHeaders);
+        return new HttpFactory().createResponseMessage(request, response);
+    }
 
-        return result;
+    @Override
+    public void shutdown() {
+        connectionEvictor.shutdown();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            // ignore, the pool is being torn down
+        }
     }
 }
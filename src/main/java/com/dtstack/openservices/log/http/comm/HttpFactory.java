@@ -6,7 +6,11 @@
  */
 package com.dtstack.openservices.log.http.comm;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
@@ -14,7 +18,9 @@ import javax.net.ssl.X509TrustManager;
 
 import com.dtstack.openservices.log.http.client.ClientConfiguration;
 import com.dtstack.openservices.log.http.client.HttpMethod;
-import org.apache.http.client.HttpClient;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
@@ -22,15 +28,22 @@ import org.apache.http.client.methods.HttpOptions;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.conn.scheme.Scheme;
-import org.apache.http.conn.ssl.SSLSocketFactory;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
 
 import com.dtstack.openservices.log.http.utils.HttpHeaders;
+import com.dtstack.openservices.log.http.utils.HttpUtil;
 import com.dtstack.openservices.log.http.client.ClientConfiguration;
 import com.dtstack.openservices.log.http.client.HttpMethod;
 
@@ -42,41 +55,87 @@ import com.dtstack.openservices.log.http.client.HttpMethod;
 class HttpFactory {
 
     /**
-     * Creates a HttpClient instance.
+     * Creates a pooling connection manager.
      * @param config
      *          ProtoLogClient configuration.
-     * @return HttpClient instance.
+     * @return PoolingHttpClientConnectionManager instance.
      */
-    public HttpClient createHttpClient(ClientConfiguration config){
-        // Set HTTP params.
-        HttpParams httpParams = new BasicHttpParams();
-        HttpConnectionParams.setConnectionTimeout(httpParams, config.getConnectionTimeout());
-        HttpConnectionParams.setSoTimeout(httpParams, config.getSocketTimeout());
-        HttpConnectionParams.setStaleCheckingEnabled(httpParams, true);
-        HttpConnectionParams.setTcpNoDelay(httpParams, true);
-
-        // Use thread-safe connection manager.
-        ThreadSafeClientConnManager connMgr = createThreadSafeClientConnManager(config);
-        DefaultHttpClient httpClient = new DefaultHttpClient(connMgr, httpParams);
-
+    public PoolingHttpClientConnectionManager createConnectionManager(ClientConfiguration config){
+        RegistryBuilder<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory());
         /*
          * If SSL cert checking for endpoints has been explicitly disabled,
          * register a new scheme for HTTPS that won't cause self-signed certs to
          * error out.
          */
-        if (System.getProperty("com.aliyun.openservices.disableCertChecking") != null) {
-            Scheme sch = new Scheme("https", 443, getSSLSocketFactory());
-            httpClient.getConnectionManager().getSchemeRegistry().register(sch);
+        if (isCertCheckingDisabled()) {
+            registry.register("https", new SSLConnectionSocketFactory(createTrustAllSSLContext(),
+                    NoopHostnameVerifier.INSTANCE));
+        } else {
+            registry.register("https", SSLConnectionSocketFactory.getSocketFactory());
         }
-        return httpClient;
+        PoolingHttpClientConnectionManager connMgr = new PoolingHttpClientConnectionManager(
+                registry.build(), null, null, null, config.getConnectionTTL(), TimeUnit.MILLISECONDS);
+        connMgr.setMaxTotal(config.getMaxConnections());
+        connMgr.setDefaultMaxPerRoute(Math.min(config.getMaxConnectionsPerRoute(), config.getMaxConnections()));
+        connMgr.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        connMgr.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout(config.getSocketTimeout())
+                .setTcpNoDelay(true)
+                .build());
+        return connMgr;
     }
 
-    private ThreadSafeClientConnManager createThreadSafeClientConnManager(
-            ClientConfiguration clientConfig){
-        ThreadSafeClientConnManager connMgr = new ThreadSafeClientConnManager();
-        connMgr.setDefaultMaxPerRoute(clientConfig.getMaxConnections());
-        connMgr.setMaxTotal(clientConfig.getMaxConnections());
-        return connMgr;
+    /**
+     * Creates a HttpClient instance on a connection manager.
+     * @param config
+     *          ProtoLogClient configuration.
+     * @param connMgr
+     *          connection manager, closed together with the client.
+     * @return HttpClient instance.
+     */
+    public CloseableHttpClient createHttpClient(ClientConfiguration config, HttpClientConnectionManager connMgr){
+        return HttpClients.custom()
+                .setConnectionManager(connMgr)
+                .setDefaultRequestConfig(createRequestConfig(config))
+                .setKeepAliveStrategy(createKeepAliveStrategy(config))
+                .disableContentCompression()
+                .build();
+    }
+
+    /**
+     * Creates the request timeouts.
+     * @param config
+     *          ProtoLogClient configuration.
+     * @return RequestConfig instance.
+     */
+    public RequestConfig createRequestConfig(ClientConfiguration config){
+        return RequestConfig.custom()
+                .setConnectTimeout(config.getConnectionTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .build();
+    }
+
+    /**
+     * Creates the keep-alive strategy, the timeout of the Keep-Alive response
+     * header is used when present, otherwise the configured keep-alive time.
+     * @param config
+     *          ProtoLogClient configuration.
+     * @return ConnectionKeepAliveStrategy instance.
+     */
+    public ConnectionKeepAliveStrategy createKeepAliveStrategy(ClientConfiguration config){
+        final long keepAliveTime = config.getKeepAliveTime();
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAliveTime;
+            }
+        };
+    }
+
+    static boolean isCertCheckingDisabled() {
+        return System.getProperty("com.aliyun.openservices.disableCertChecking") != null;
     }
 
     /**
@@ -130,6 +189,38 @@ class HttpFactory {
         return httpRequest;
     }
 
+    /**
+     * Creates a ResponseMessage from the HTTP response.
+     * @param request
+     *          Request message.
+     * @param response
+     *          HTTP response.
+     * @return ResponseMessage instance.
+     * @throws IOException
+     */
+    public ResponseMessage createResponseMessage(ServiceClient.Request request, HttpResponse response)
+            throws IOException {
+        ResponseMessage result = new ResponseMessage();
+        result.setUrl(request.getUri());
+        if (response.getStatusLine() != null){
+            result.setStatusCode(response.getStatusLine().getStatusCode());
+        }
+        if (response.getEntity() != null){
+            result.setContent(response.getEntity().getContent());
+        }
+        // fill in headers
+        Header[] headers = response.getAllHeaders();
+        Map<String, String> resultHeaders = new HashMap<String, String>();
+        for(int i = 0; i < headers.length; i++){
+            Header h = headers[i];
+            resultHeaders.put(h.getName(), h.getValue());
+        }
+        HttpUtil.convertHeaderCharsetFromIso88591(resultHeaders);
+        result.setHeaders(resultHeaders);
+
+        return result;
+    }
+
     private void configureRequestHeaders(ServiceClient.Request request, 
             String charset, HttpRequestBase httpRequest){
         // Copy headers in the request message to the HTTP request
@@ -158,7 +249,7 @@ class HttpFactory {
         }
     }
 
-    private static SSLSocketFactory getSSLSocketFactory() {
+    static SSLContext createTrustAllSSLContext() {
         TrustManager[] trustAllCerts = new TrustManager[] { new X509TrustManager() {
             public java.security.cert.X509Certificate[] getAcceptedIssuers() {
                 return null; 
@@ -176,14 +267,9 @@ class HttpFactory {
         try {
             SSLContext sslcontext = SSLContext.getInstance("SSL");
             sslcontext.init(null, trustAllCerts, null);
-            SSLSocketFactory ssf =
-                    new SSLSocketFactory(sslcontext,
-                            SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
-            return ssf;
-
+            return sslcontext;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 }
-
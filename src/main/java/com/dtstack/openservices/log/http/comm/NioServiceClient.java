@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) Alibaba Cloud Computing
+ * All rights reserved.
+ *
+ * 版权所有 （C）阿里云计算有限公司
+ */
+package com.dtstack.openservices.log.http.comm;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+
+import com.dtstack.openservices.log.http.client.ClientConfiguration;
+import com.dtstack.openservices.log.http.client.ClientException;
+import com.dtstack.openservices.log.http.client.ServiceException;
+import com.dtstack.openservices.log.http.utils.ExceptionFactory;
+import com.dtstack.openservices.log.util.NamedThreadFactory;
+
+/**
+ * <p>
+ *     基于NIO selector的<code>ServiceClient</code>实现，所有连接由
+ *     {@link ClientConfiguration#getIoThreadCount()}个IO线程多路复用，
+ *     {@link #sendRequestAsync(RequestMessage, String)}不占用调用线程，
+ *     线程数不随进行中的请求数增长。响应体在IO线程中读入内存后再交给调用方。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ *
+ */
+public class NioServiceClient extends ServiceClient {
+
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final ConnectionEvictor connectionEvictor;
+
+    /**
+     * 构造新实例。
+     */
+    public NioServiceClient(ClientConfiguration config) {
+        super(config);
+        HttpFactory httpFactory = new HttpFactory();
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(config.getIoThreadCount())
+                .setConnectTimeout(config.getConnectionTimeout())
+                .setSoTimeout(config.getSocketTimeout())
+                .setTcpNoDelay(true)
+                .build();
+        RegistryBuilder<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE);
+        if (HttpFactory.isCertCheckingDisabled()) {
+            registry.register("https", new SSLIOSessionStrategy(HttpFactory.createTrustAllSSLContext(),
+                    NoopHostnameVerifier.INSTANCE));
+        } else {
+            registry.register("https", SSLIOSessionStrategy.getDefaultStrategy());
+        }
+        final PoolingNHttpClientConnectionManager connMgr;
+        try {
+            connMgr = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(ioReactorConfig, new NamedThreadFactory("log-nio")),
+                    null, registry.build(), null, null, config.getConnectionTTL(), TimeUnit.MILLISECONDS);
+        } catch (IOReactorException e) {
+            throw new ClientException("Failed to start the NIO reactor", e);
+        }
+        connMgr.setMaxTotal(config.getMaxConnections());
+        connMgr.setDefaultMaxPerRoute(Math.min(config.getMaxConnectionsPerRoute(), config.getMaxConnections()));
+        httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connMgr)
+                .setDefaultRequestConfig(httpFactory.createRequestConfig(config))
+                .setKeepAliveStrategy(httpFactory.createKeepAliveStrategy(config))
+                .setThreadFactory(new NamedThreadFactory("log-nio-reactor"))
+                .build();
+        httpClient.start();
+        connectionEvictor = ConnectionEvictor.start(new ConnectionEvictor.ConnectionPool() {
+            @Override
+            public void closeExpiredConnections() {
+                connMgr.closeExpiredConnections();
+            }
+
+            @Override
+            public void closeIdleConnections(long idleTime, TimeUnit unit) {
+                connMgr.closeIdleConnections(idleTime, unit);
+            }
+        }, config.getIdleConnectionTime());
+    }
+
+    @Override
+    protected ResponseMessage sendRequestCore(Request request, String charset) throws Exception {
+        try {
+            return sendRequestCoreAsync(request, charset).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ServiceException) {
+                throw (ServiceException) cause;
+            }
+            if (cause instanceof ClientException) {
+                throw (ClientException) cause;
+            }
+            throw new ClientException(cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<ResponseMessage> sendRequestCoreAsync(final Request request, String charset) {
+        final CompletableFuture<ResponseMessage> future = new CompletableFuture<ResponseMessage>();
+        HttpRequestBase httpRequest = new HttpFactory().createHttpRequest(request, charset);
+        httpClient.execute(HttpAsyncMethods.create(httpRequest), HttpAsyncMethods.createConsumer(), null,
+                new FutureCallback<HttpResponse>() {
+                    @Override
+                    public void completed(HttpResponse response) {
+                        try {
+                            future.complete(new HttpFactory().createResponseMessage(request, response));
+                        } catch (IOException e) {
+                            future.completeExceptionally(ExceptionFactory.createNetworkException(e));
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        if (ex instanceof IOException) {
+                            future.completeExceptionally(ExceptionFactory.createNetworkException((IOException) ex));
+                        } else {
+                            future.completeExceptionally(new ClientException(ex.getMessage(), ex));
+                        }
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        future.completeExceptionally(new ClientException("The request was cancelled"));
+                    }
+                });
+        return future;
+    }
+
+    @Override
+    public void shutdown() {
+        connectionEvictor.shutdown();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            // ignore, the reactor is being torn down
+        }
+    }
+}
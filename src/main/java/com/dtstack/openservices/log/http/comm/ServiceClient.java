@@ -12,9 +12,18 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
 import com.dtstack.openservices.log.http.utils.HttpUtil;
+import com.dtstack.openservices.log.http.client.CircuitBreakerConfig;
 import com.dtstack.openservices.log.http.client.ClientConfiguration;
+import com.dtstack.openservices.log.http.client.ClientErrorCode;
 import com.dtstack.openservices.log.http.client.ClientException;
 import com.dtstack.openservices.log.http.client.HttpMethod;
 import com.dtstack.openservices.log.http.client.ServiceException;
@@ -76,9 +85,19 @@ public abstract class ServiceClient {
 
     protected ClientConfiguration config;
 
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers =
+            new ConcurrentHashMap<String, CircuitBreaker>();
+
     protected ServiceClient(ClientConfiguration config){
         this.config = config;
     }
+
+    /**
+     * Returns the circuit breakers by "host:port" of the endpoints requested so far.
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(circuitBreakers);
+    }
     
     /**
      * Returns response from the service.
@@ -92,9 +111,18 @@ public abstract class ServiceClient {
         assertParameterNotNull(request, "request");
         assertParameterNotNull(charset, "charset");
 
+        CircuitBreaker breaker = null;
+        long start = System.nanoTime();
+        boolean failed = true;
         try{
-            return sendRequestImpl(request, charset);
+            breaker = acquireCircuitBreaker(request);
+            ResponseMessage response = sendRequestImpl(request, charset);
+            failed = isServerError(response);
+            return response;
         } finally {
+            if (breaker != null) {
+                breaker.onResult(failed, System.nanoTime() - start);
+            }
             // Close the request stream as well after the request is complete.
             try {
                 request.close();
@@ -102,6 +130,84 @@ public abstract class ServiceClient {
         }
     }
 
+    /**
+     * Sends the request without waiting for the response. The returned future
+     * fails with {@link ServiceException} or {@link ClientException}.
+     * @param request
+     *          Request message.
+     * @param charset
+     *          encode charset.
+     */
+    public CompletableFuture<ResponseMessage> sendRequestAsync(final RequestMessage request, String charset) {
+        assertParameterNotNull(request, "request");
+        assertParameterNotNull(charset, "charset");
+
+        CompletableFuture<ResponseMessage> future;
+        final CircuitBreaker breaker;
+        try {
+            breaker = acquireCircuitBreaker(request);
+        } catch (ClientException ex) {
+            try {
+                request.close();
+            } catch (IOException e) { }
+            future = new CompletableFuture<ResponseMessage>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+        final long start = System.nanoTime();
+        try {
+            future = sendRequestCoreAsync(buildRequest(request, charset), charset);
+        } catch (ClientException ex) {
+            future = new CompletableFuture<ResponseMessage>();
+            future.completeExceptionally(ex);
+        }
+        future.whenComplete(new BiConsumer<ResponseMessage, Throwable>() {
+            @Override
+            public void accept(ResponseMessage response, Throwable error) {
+                if (breaker != null) {
+                    breaker.onResult(error != null || isServerError(response), System.nanoTime() - start);
+                }
+                // Close the request stream as well after the request is complete.
+                try {
+                    request.close();
+                } catch (IOException e) { }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the circuit breaker of the request endpoint, null if circuit
+     * breaking is disabled.
+     * @throws ClientException with {@link ClientErrorCode#CIRCUIT_OPEN} if the
+     *          breaker is open and the request must not be sent.
+     */
+    private CircuitBreaker acquireCircuitBreaker(RequestMessage request) throws ClientException {
+        CircuitBreakerConfig breakerConfig = config.getCircuitBreakerConfig();
+        URI endpoint = request.getEndpoint();
+        if (breakerConfig == null || endpoint == null) {
+            return null;
+        }
+        String key = endpoint.getHost() + ":" + endpoint.getPort();
+        CircuitBreaker breaker = circuitBreakers.get(key);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(breakerConfig);
+            breaker = circuitBreakers.putIfAbsent(key, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        if (!breaker.tryAcquire()) {
+            throw new ClientException(ClientErrorCode.CIRCUIT_OPEN,
+                    "The circuit breaker of " + key + " is open", null);
+        }
+        return breaker;
+    }
+
+    private static boolean isServerError(ResponseMessage response) {
+        return response != null && response.getStatusCode() >= 500;
+    }
+
     private ResponseMessage sendRequestImpl(RequestMessage request,
             String charset) throws ClientException, ServiceException {
         ResponseMessage response = null;
@@ -149,6 +255,34 @@ public abstract class ServiceClient {
     protected abstract ResponseMessage sendRequestCore(Request request, String charset)
             throws Exception;
 
+    /**
+     * Sends the request without waiting for the response. The default
+     * implementation sends it in the calling thread through
+     * {@link #sendRequestCore(Request, String)}.
+     * @param request
+     * @param charset
+     * @return future of the response message
+     */
+    protected CompletableFuture<ResponseMessage> sendRequestCoreAsync(Request request, String charset) {
+        CompletableFuture<ResponseMessage> future = new CompletableFuture<ResponseMessage>();
+        try {
+            future.complete(sendRequestCore(request, charset));
+        } catch (ServiceException ex) {
+            future.completeExceptionally(ex);
+        } catch (ClientException ex) {
+            future.completeExceptionally(ex);
+        } catch (Exception ex) {
+            future.completeExceptionally(new ClientException(ex.getMessage(), ex));
+        }
+        return future;
+    }
+
+    /**
+     * Releases the connections and threads held by this client.
+     */
+    public void shutdown() {
+    }
+
     private Request buildRequest(RequestMessage requestMessage, String charset)
             throws ClientException{
         Request request = new Request();
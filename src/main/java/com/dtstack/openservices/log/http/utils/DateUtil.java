@@ -32,6 +32,23 @@ public class DateUtil {
         return getRfc822DateFormat().format(date);
     }
 
+    private static volatile CachedDate cachedDate;
+
+    /**
+     * Formats the current time to GMT string, the result is cached for the
+     * current second.
+     * @return Rfc822Date
+     */
+    public static String formatCurrentRfc822Date(){
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate cached = cachedDate;
+        if (cached == null || cached.second != second) {
+            cached = new CachedDate(second, formatRfc822Date(new Date(second * 1000)));
+            cachedDate = cached;
+        }
+        return cached.value;
+    }
+
     /**
      * Parses a GMT-format string.
      * @param dateString
@@ -49,4 +66,14 @@ public class DateUtil {
 
         return rfc822DateFormat;
     }
+
+    private static final class CachedDate {
+        private final long second;
+        private final String value;
+
+        private CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
 }
@@ -79,7 +79,8 @@ public class HttpUtil {
         assert (headers != null);
 
         for(Entry<String, String> header : headers.entrySet()) {
-            if (header.getValue() == null) {
+            if (header.getValue() == null || isAscii(header.getValue())) {
+                // ascii is encoded the same way in both charsets
                 continue;
             }
 
@@ -90,4 +91,13 @@ public class HttpUtil {
             }
         }
     }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,261 @@
+package com.dtstack.openservices.log.http.utils;
+
+import com.dtstack.openservices.log.common.Consts;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.UnsupportedEncodingException;
+import java.security.DigestException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * <p>
+ *     请求签名和Content-MD5计算。每个线程持有一个实例，复用Mac、MessageDigest、
+ *     待签名字符串的字节缓冲区以及排序用的数组，Mac只在access key变化时重新初始化，
+ *     hex和base64编码直接写入字符数组，每次签名只产生结果字符串。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public final class RequestSigner {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final char[] BASE64_DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private static final ThreadLocal<RequestSigner> SIGNER = new ThreadLocal<RequestSigner>() {
+        @Override
+        protected RequestSigner initialValue() {
+            return new RequestSigner();
+        }
+    };
+
+    private final Mac mac;
+
+    private final MessageDigest md5;
+
+    private String macKey;
+
+    private byte[] buffer = new byte[1024];
+
+    private int position;
+
+    private String[] keys = new String[32];
+
+    private final byte[] digest = new byte[20];
+
+    private final char[] chars = new char[64];
+
+    private RequestSigner() {
+        try {
+            this.mac = Mac.getInstance(Consts.HMAC_SHA1_JAVA);
+            this.md5 = MessageDigest.getInstance(Consts.CONST_MD5);
+        } catch (NoSuchAlgorithmException e) {
+            // never happen
+            throw new RuntimeException("Not Supported signature method "
+                    + Consts.HMAC_SHA1 + " or " + Consts.CONST_MD5, e);
+        }
+    }
+
+    /**
+     * @return the signer bound to the current thread
+     */
+    public static RequestSigner get() {
+        return SIGNER.get();
+    }
+
+    /**
+     * Calculate the Content-MD5 header value of a request body.
+     *
+     * @param body   body buffer
+     * @param length number of bytes of the body, starting at offset 0
+     * @return upper case hex md5
+     */
+    public String md5Hex(byte[] body, int length) {
+        md5.update(body, 0, length);
+        try {
+            md5.digest(digest, 0, 16);
+        } catch (DigestException e) {
+            throw new RuntimeException("Failed to calculate " + Consts.CONST_MD5, e);
+        }
+        for (int i = 0; i < 16; i++) {
+            chars[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0F];
+        }
+        return new String(chars, 0, 32);
+    }
+
+    /**
+     * Build the Authorization header value, the canonical string is
+     * verb, Content-MD5, Content-Type, Date, the sorted x-log-/x-acs- headers
+     * and the sorted url parameters.
+     *
+     * @param accessKey  access key the request is signed with
+     * @param verb       http method
+     * @param headers    request headers
+     * @param urlParams  url parameters
+     * @return Authorization header value
+     */
+    public String sign(String accessKey, String verb, Map<String, String> headers, Map<String, String> urlParams) {
+        position = 0;
+        appendUtf8(verb);
+        appendByte('\n');
+        appendHeader(headers, Consts.CONST_CONTENT_MD5);
+        appendByte('\n');
+        appendHeader(headers, Consts.CONST_CONTENT_TYPE);
+        appendByte('\n');
+        appendHeader(headers, Consts.CONST_DATE);
+        appendByte('\n');
+
+        int count = 0;
+        for (String key : headers.keySet()) {
+            if (key.startsWith(Consts.CONST_X_SLS_PREFIX) || key.startsWith(Consts.CONST_X_ACS_PREFIX)) {
+                count = addKey(key, count);
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                appendByte('\n');
+            }
+            appendUtf8(keys[i]);
+            appendByte(':');
+            appendUtf8(String.valueOf(headers.get(keys[i])));
+        }
+        Arrays.fill(keys, 0, count, null);
+        appendByte('\n');
+
+        if (!urlParams.isEmpty()) {
+            appendByte('?');
+            count = 0;
+            for (String key : urlParams.keySet()) {
+                count = addKey(key, count);
+            }
+            Arrays.sort(keys, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    appendByte('&');
+                }
+                appendUtf8(keys[i]);
+                appendByte('=');
+                appendUtf8(String.valueOf(urlParams.get(keys[i])));
+            }
+            Arrays.fill(keys, 0, count, null);
+        }
+
+        initMac(accessKey);
+        mac.update(buffer, 0, position);
+        try {
+            mac.doFinal(digest, 0);
+        } catch (ShortBufferException e) {
+            throw new RuntimeException("Failed to calcuate the signature", e);
+        }
+
+        int length = 0;
+        String prefix = Consts.CONST_HEADSIGNATURE_PREFIX;
+        prefix.getChars(0, prefix.length(), chars, 0);
+        length += prefix.length();
+        chars[length++] = ':';
+        length = base64(digest, 20, chars, length);
+        return new String(chars, 0, length);
+    }
+
+    private void initMac(String accessKey) {
+        if (accessKey.equals(macKey)) {
+            return;
+        }
+        try {
+            mac.init(new SecretKeySpec(accessKey.getBytes(Consts.UTF_8_ENCODING), Consts.HMAC_SHA1_JAVA));
+        } catch (UnsupportedEncodingException e) { // actually these exceptions
+            // should never happened
+            throw new RuntimeException("Not Supported encoding method "
+                    + Consts.UTF_8_ENCODING, e);
+        } catch (InvalidKeyException e) {
+            throw new RuntimeException("Failed to calcuate the signature", e);
+        }
+        macKey = accessKey;
+    }
+
+    private int addKey(String key, int count) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[count] = key;
+        return count + 1;
+    }
+
+    private void appendHeader(Map<String, String> headers, String name) {
+        String value = headers.get(name);
+        if (value != null) {
+            appendUtf8(value);
+        }
+    }
+
+    private void appendByte(char c) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void appendUtf8(String value) {
+        int length = value.length();
+        ensureCapacity(length * 3);
+        byte[] buf = buffer;
+        int pos = position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buf[pos++] = (byte) '?';
+                }
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        position = pos;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(position + extra, buffer.length * 2));
+        }
+    }
+
+    private static int base64(byte[] data, int length, char[] out, int offset) {
+        int i = 0;
+        for (; i + 2 < length; i += 3) {
+            int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+            out[offset++] = BASE64_DIGITS[bits >>> 18];
+            out[offset++] = BASE64_DIGITS[(bits >>> 12) & 0x3F];
+            out[offset++] = BASE64_DIGITS[(bits >>> 6) & 0x3F];
+            out[offset++] = BASE64_DIGITS[bits & 0x3F];
+        }
+        if (i < length) {
+            int bits = (data[i] & 0xFF) << 16 | (i + 1 < length ? (data[i + 1] & 0xFF) << 8 : 0);
+            out[offset++] = BASE64_DIGITS[bits >>> 18];
+            out[offset++] = BASE64_DIGITS[(bits >>> 12) & 0x3F];
+            out[offset++] = i + 1 < length ? BASE64_DIGITS[(bits >>> 6) & 0x3F] : '=';
+            out[offset++] = '=';
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,75 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.LogService;
+import com.dtstack.openservices.log.common.Consts;
+import com.dtstack.openservices.log.request.PutLogsRequest;
+import com.dtstack.openservices.log.response.PutLogsResponse;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>
+ *     在IO线程中把关闭的批次转换为PutLogsRequest并通过{@link LogService#putLogsAsync(PutLogsRequest)}发送，
+ *     发送结果回填到批次的Future，结束后归还批次占用的内存预算。
+ *     客户端使用NIO传输时IO线程提交请求后即返回，同时进行中的请求数不受IO线程数限制，
+ *     只受内存预算限制。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class BatchSender implements Runnable {
+
+    private final LogService client;
+
+    private final ProducerBatch batch;
+
+    private final MemoryBudget memoryBudget;
+
+    private final Consts.CompressType compressType;
+
+    private final InFlightRequests inFlight;
+
+    BatchSender(LogService client, ProducerBatch batch, MemoryBudget memoryBudget,
+                Consts.CompressType compressType, InFlightRequests inFlight) {
+        this.client = client;
+        this.batch = batch;
+        this.memoryBudget = memoryBudget;
+        this.compressType = compressType;
+        this.inFlight = inFlight;
+    }
+
+    ProducerBatch getBatch() {
+        return batch;
+    }
+
+    @Override
+    public void run() {
+        inFlight.begin();
+        try {
+            PutLogsRequest request = batch.toRequest();
+            request.SetCompressType(compressType);
+            client.putLogsAsync(request).whenComplete(new BiConsumer<PutLogsResponse, Throwable>() {
+                @Override
+                public void accept(PutLogsResponse response, Throwable error) {
+                    if (error == null) {
+                        batch.getFuture().complete(response);
+                    } else if (error instanceof CompletionException && error.getCause() != null) {
+                        batch.getFuture().completeExceptionally(error.getCause());
+                    } else {
+                        batch.getFuture().completeExceptionally(error);
+                    }
+                    finish();
+                }
+            });
+        } catch (RuntimeException e) {
+            batch.getFuture().completeExceptionally(e);
+            finish();
+        }
+    }
+
+    private void finish() {
+        memoryBudget.release(batch.getMemoryInBytes());
+        inFlight.end();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dtstack.openservices.log.producer;
+
+/**
+ * <p>
+ *     攒批分组键，(logStore, topic, source, routeKey)相同的日志才会合并到同一个PutLogsRequest。
+ *     按shard分组时routeKey是shard的起始hash key。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class GroupKey {
+
+    private final String logStore;
+
+    private final String topic;
+
+    private final String source;
+
+    private final String routeKey;
+
+    private final int hashCode;
+
+    GroupKey(String logStore, String topic, String source, String routeKey) {
+        this.logStore = logStore;
+        this.topic = topic;
+        this.source = source;
+        this.routeKey = routeKey;
+        int h = logStore.hashCode();
+        h = 31 * h + (topic == null ? 0 : topic.hashCode());
+        h = 31 * h + (source == null ? 0 : source.hashCode());
+        h = 31 * h + (routeKey == null ? 0 : routeKey.hashCode());
+        this.hashCode = h;
+    }
+
+    String getLogStore() {
+        return logStore;
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    String getRouteKey() {
+        return routeKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GroupKey)) {
+            return false;
+        }
+        GroupKey other = (GroupKey) o;
+        return hashCode == other.hashCode
+                && logStore.equals(other.logStore)
+                && equalsNullable(topic, other.topic)
+                && equalsNullable(source, other.source)
+                && equalsNullable(routeKey, other.routeKey);
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupKey{logStore=" + logStore + ", topic=" + topic
+                + ", source=" + source + ", routeKey=" + routeKey + "}";
+    }
+}
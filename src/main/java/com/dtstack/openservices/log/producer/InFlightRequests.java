@@ -0,0 +1,72 @@
+package com.dtstack.openservices.log.producer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ *     已经交给客户端异步发送、尚未完成的批次数。
+ *     IO线程提交请求后即返回，关闭producer时通过它等待网络上的请求完成。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class InFlightRequests {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition empty = lock.newCondition();
+
+    private int count;
+
+    void begin() {
+        lock.lock();
+        try {
+            count++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void end() {
+        lock.lock();
+        try {
+            if (--count == 0) {
+                empty.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until all requests complete or the timeout elapses.
+     *
+     * @return true if no request is in flight
+     */
+    boolean awaitEmpty(long timeoutMs) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (count > 0) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = empty.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
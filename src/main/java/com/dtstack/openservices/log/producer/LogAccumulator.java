@@ -0,0 +1,147 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.common.LogItem;
+import com.dtstack.openservices.log.response.PutLogsResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ *     按分组键累积日志，批次达到条数或字节上限、超过停留时间或被强制刷新时关闭，
+ *     并交给{@link BatchHandler}异步发送。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class LogAccumulator {
+
+    /**
+     * Receives batches once they are closed and no longer accept items.
+     */
+    interface BatchHandler {
+        void handle(ProducerBatch batch);
+    }
+
+    private final ProducerConfig config;
+
+    private final BatchHandler handler;
+
+    private final ConcurrentMap<GroupKey, ProducerBatch> batches = new ConcurrentHashMap<GroupKey, ProducerBatch>();
+
+    LogAccumulator(ProducerConfig config, BatchHandler handler) {
+        this.config = config;
+        this.handler = handler;
+    }
+
+    CompletableFuture<PutLogsResponse> append(GroupKey groupKey, LogItem item, int itemSize, int memorySize) {
+        while (true) {
+            ProducerBatch batch = batches.get(groupKey);
+            if (batch == null) {
+                ProducerBatch created = new ProducerBatch(groupKey, System.currentTimeMillis());
+                batch = batches.putIfAbsent(groupKey, created);
+                if (batch == null) {
+                    batch = created;
+                }
+            }
+            ProducerBatch sealed = null;
+            CompletableFuture<PutLogsResponse> future = null;
+            synchronized (batch) {
+                if (batch.isClosed()) {
+                    continue;
+                }
+                if (batch.tryAppend(item, itemSize, memorySize, config)) {
+                    future = batch.getFuture();
+                    if (batch.isFull(config)) {
+                        sealed = seal(batch);
+                    }
+                } else {
+                    sealed = seal(batch);
+                }
+            }
+            if (sealed != null) {
+                handler.handle(sealed);
+            }
+            if (future != null) {
+                return future;
+            }
+        }
+    }
+
+    /**
+     * Close and hand over every batch that has lingered for too long.
+     *
+     * @return the delay in milliseconds until the next batch expires
+     */
+    long expire(long nowMs) {
+        long nextDelayMs = config.getLingerMs();
+        for (ProducerBatch batch : batches.values()) {
+            ProducerBatch sealed = null;
+            synchronized (batch) {
+                if (batch.isClosed()) {
+                    continue;
+                }
+                if (batch.isExpired(nowMs, config)) {
+                    sealed = seal(batch);
+                } else {
+                    nextDelayMs = Math.min(nextDelayMs, batch.remainingLingerMs(nowMs, config));
+                }
+            }
+            if (sealed != null) {
+                handler.handle(sealed);
+            }
+        }
+        return nextDelayMs;
+    }
+
+    /**
+     * Close and hand over every pending batch regardless of its linger time.
+     */
+    void flushAll() {
+        for (ProducerBatch batch : batches.values()) {
+            ProducerBatch sealed = null;
+            synchronized (batch) {
+                if (!batch.isClosed()) {
+                    sealed = seal(batch);
+                }
+            }
+            if (sealed != null) {
+                handler.handle(sealed);
+            }
+        }
+    }
+
+    /**
+     * Close and remove the oldest pending batch without handing it over.
+     *
+     * @return the removed batch, or null if there is no pending batch
+     */
+    ProducerBatch pollOldest() {
+        while (true) {
+            ProducerBatch oldest = null;
+            for (ProducerBatch batch : batches.values()) {
+                if (oldest == null || batch.getCreateTimeMs() < oldest.getCreateTimeMs()) {
+                    oldest = batch;
+                }
+            }
+            if (oldest == null) {
+                return null;
+            }
+            synchronized (oldest) {
+                if (!oldest.isClosed()) {
+                    ProducerBatch sealed = seal(oldest);
+                    if (sealed != null) {
+                        return sealed;
+                    }
+                }
+            }
+        }
+    }
+
+    private ProducerBatch seal(ProducerBatch batch) {
+        batch.close();
+        batches.remove(batch.getGroupKey(), batch);
+        return batch.isEmpty() ? null : batch;
+    }
+}
@@ -0,0 +1,331 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.LogService;
+import com.dtstack.openservices.log.common.Consts;
+import com.dtstack.openservices.log.common.LogItem;
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.http.utils.CodingUtils;
+import com.dtstack.openservices.log.response.PutLogsResponse;
+import com.dtstack.openservices.log.util.NamedThreadFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     异步批量发送日志。调用方线程只负责把LogItem追加到内存批次中并立即返回Future，
+ *     后台IO线程把同一(logStore, topic, source, routeKey)下的日志合并为一个
+ *     PutLogsRequest，通过{@link LogService#putLogs}发送。
+ * </p>
+ *
+ * <p>
+ *     批次在满足以下任一条件时发送：日志条数达到{@link ProducerConfig#getBatchCountThreshold()}，
+ *     字节数达到{@link ProducerConfig#getBatchSizeThresholdInBytes()}，
+ *     或停留时间达到{@link ProducerConfig#getLingerMs()}。
+ *     配置了{@link ProducerConfig#getShardRangeProvider()}时，routeKey按所在shard分组，
+ *     不同route key的日志只要落在同一shard就合并发送。
+ * </p>
+ *
+ * <p>
+ *     所有待发送日志共享{@link ProducerConfig#getTotalSizeInBytes()}大小的内存预算，
+ *     预算耗尽时按{@link ProducerConfig#getOverflowPolicy()}处理，
+ *     阻塞和丢弃情况通过{@link #getMetrics()}查看。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class LogProducer {
+
+    private final LogService client;
+
+    private final ProducerConfig config;
+
+    private final LogAccumulator accumulator;
+
+    private final MemoryBudget memoryBudget;
+
+    private final ProducerMetrics metrics;
+
+    private final ThreadPoolExecutor ioThreadPool;
+
+    private final Thread lingerThread;
+
+    private final ShardRouter shardRouter;
+
+    private final InFlightRequests inFlight = new InFlightRequests();
+
+    private final AtomicInteger appendsInProgress = new AtomicInteger(0);
+
+    private volatile boolean closed = false;
+
+    public LogProducer(LogService client) {
+        this(client, new ProducerConfig());
+    }
+
+    public LogProducer(LogService client, ProducerConfig config) {
+        CodingUtils.assertParameterNotNull(client, "client");
+        CodingUtils.assertParameterNotNull(config, "config");
+        this.client = client;
+        this.config = config;
+        this.memoryBudget = new MemoryBudget(config.getTotalSizeInBytes());
+        this.metrics = new ProducerMetrics(memoryBudget);
+        this.ioThreadPool = new ThreadPoolExecutor(config.getIoThreadCount(), config.getIoThreadCount(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                new NamedThreadFactory("log-producer-io"));
+        this.shardRouter = config.getShardRangeProvider() == null ? null
+                : new ShardRouter(config.getShardRangeProvider(), config.getShardRefreshIntervalMs());
+        this.accumulator = new LogAccumulator(config, new LogAccumulator.BatchHandler() {
+            @Override
+            public void handle(ProducerBatch batch) {
+                dispatch(batch);
+            }
+        });
+        this.lingerThread = new NamedThreadFactory("log-producer-linger").newThread(new Runnable() {
+            @Override
+            public void run() {
+                lingerLoop();
+            }
+        });
+        this.lingerThread.start();
+    }
+
+    /**
+     * Append a log item, it will be sent together with other items of the same
+     * logStore, topic and source.
+     *
+     * @param logStore log store name
+     * @param topic    topic of the log, null is treated as empty
+     * @param source   source of the log, null means the client ip
+     * @param item     log data
+     * @return future of the put response of the batch containing the item
+     * @throws LogException if the producer is closed, the item is too large or
+     *                      the memory budget is exhausted
+     */
+    public Future<PutLogsResponse> send(String logStore, String topic, String source, LogItem item)
+            throws LogException {
+        return send(logStore, topic, source, null, item);
+    }
+
+    /**
+     * Append a log item with a route key. Without a
+     * {@link ProducerConfig#getShardRangeProvider() shard range provider}
+     * items with different route keys are never merged into the same request,
+     * with one the items whose keys fall into the same shard are merged and
+     * sent routed by the begin key of the shard, so the order of the items of
+     * a key is kept while the batches stay large.
+     * <p>
+     * The route key is any string, its utf-8 md5 hex is its position in the
+     * shard hash space on both paths: without a provider the md5 itself is
+     * sent as the hash key, with one the begin key of the shard covering the
+     * md5. A key therefore stays on the same shard when a provider is added
+     * or removed.
+     *
+     * @param logStore log store name
+     * @param topic    topic of the log, null is treated as empty
+     * @param source   source of the log, null means the client ip
+     * @param routeKey shard route key hashed with md5 before routing, null
+     *                 means load balance
+     * @param item     log data
+     * @return future of the put response of the batch containing the item
+     * @throws LogException if the producer is closed, the item is too large or
+     *                      the memory budget is exhausted
+     */
+    public Future<PutLogsResponse> send(String logStore, String topic, String source,
+                                        String routeKey, LogItem item) throws LogException {
+        CodingUtils.assertStringNotNullOrEmpty(logStore, "logStore");
+        CodingUtils.assertParameterNotNull(item, "item");
+
+        int itemSize = LogSizeCalculator.calculate(item);
+        if (itemSize + LogSizeCalculator.groupOverhead(topic, source) > Consts.CONST_MAX_PUT_SIZE) {
+            throw new LogException("InvalidLogSize",
+                    "logItem's size exceeds maximum limitation : "
+                            + String.valueOf(Consts.CONST_MAX_PUT_SIZE) + " bytes", "");
+        }
+        int memorySize = LogSizeCalculator.estimateMemory(item);
+        if (memorySize > memoryBudget.getTotalBytes()) {
+            throw new LogException("InvalidLogSize",
+                    "logItem's size exceeds the producer memory budget : "
+                            + String.valueOf(memoryBudget.getTotalBytes()) + " bytes", "");
+        }
+        String groupRouteKey;
+        if (routeKey == null) {
+            groupRouteKey = null;
+        } else if (shardRouter == null) {
+            groupRouteKey = ShardRouter.hash(routeKey);
+        } else {
+            groupRouteKey = shardRouter.route(logStore, routeKey);
+        }
+        GroupKey groupKey = new GroupKey(logStore, topic == null ? "" : topic, source, groupRouteKey);
+
+        if (closed) {
+            throw new LogException("ProducerClosed", "The log producer has been closed", "");
+        }
+        if (!reserveMemory(memorySize)) {
+            metrics.recordDroppedNewest();
+            CompletableFuture<PutLogsResponse> dropped = new CompletableFuture<PutLogsResponse>();
+            dropped.completeExceptionally(new LogException("LogDropped",
+                    "The log is dropped because the producer memory budget is exhausted", ""));
+            return dropped;
+        }
+        appendsInProgress.incrementAndGet();
+        try {
+            if (closed) {
+                memoryBudget.release(memorySize);
+                throw new LogException("ProducerClosed", "The log producer has been closed", "");
+            }
+            return accumulator.append(groupKey, item, itemSize, memorySize);
+        } finally {
+            appendsInProgress.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reserve memory for a new item according to the overflow policy.
+     *
+     * @return false if the new item should be dropped
+     */
+    private boolean reserveMemory(int memorySize) throws LogException {
+        if (memoryBudget.tryAcquire(memorySize)) {
+            return true;
+        }
+        switch (config.getOverflowPolicy()) {
+            case DROP_NEWEST:
+                return false;
+            case DROP_OLDEST:
+                while (!memoryBudget.tryAcquire(memorySize)) {
+                    if (!dropOldestBatch()) {
+                        return false;
+                    }
+                }
+                return true;
+            case FAIL_FAST:
+                metrics.recordRejected();
+                throw new LogException("MemoryBudgetExceeded",
+                        "The producer memory budget is exhausted : "
+                                + String.valueOf(memoryBudget.getTotalBytes()) + " bytes", "");
+            default:
+                metrics.recordBlocked();
+                boolean acquired;
+                try {
+                    acquired = memoryBudget.acquire(memorySize, config.getMaxBlockMs());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new LogException("MemoryBudgetExceeded",
+                            "Interrupted while waiting for the producer memory budget", e, "");
+                }
+                if (!acquired) {
+                    metrics.recordBlockTimeout();
+                    throw new LogException("MemoryBudgetExceeded",
+                            "Failed to allocate memory within the configured max blocking time "
+                                    + String.valueOf(config.getMaxBlockMs()) + " ms", "");
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Drop the oldest batch that is not being sent yet, batches waiting for an
+     * io thread are older than any batch still open in the accumulator.
+     *
+     * @return false if there is no batch to drop
+     */
+    private boolean dropOldestBatch() {
+        ProducerBatch batch = null;
+        Runnable queued = ioThreadPool.getQueue().poll();
+        if (queued instanceof BatchSender) {
+            batch = ((BatchSender) queued).getBatch();
+        } else {
+            batch = accumulator.pollOldest();
+        }
+        if (batch == null) {
+            return false;
+        }
+        metrics.recordDroppedOldest(batch.getLogCount());
+        memoryBudget.release(batch.getMemoryInBytes());
+        batch.getFuture().completeExceptionally(new LogException("LogDropped",
+                "The log is dropped because the producer memory budget is exhausted", ""));
+        return true;
+    }
+
+    /**
+     * Send all pending batches immediately without waiting for linger time.
+     */
+    public void flush() {
+        accumulator.flushAll();
+    }
+
+    /**
+     * Stop accepting new items, send all pending batches and wait for the
+     * background threads to finish.
+     *
+     * @param timeoutMs max time to wait for in-flight batches
+     * @return true if all batches are sent before timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean close(long timeoutMs) throws InterruptedException {
+        closed = true;
+        lingerThread.interrupt();
+        if (shardRouter != null) {
+            shardRouter.close();
+        }
+        while (appendsInProgress.get() > 0) {
+            Thread.yield();
+        }
+        accumulator.flushAll();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        ioThreadPool.shutdown();
+        if (!ioThreadPool.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        return inFlight.awaitEmpty(Math.max(0, deadline - System.currentTimeMillis()));
+    }
+
+    /**
+     * @return memory budget and overflow counters
+     */
+    public ProducerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return number of batches waiting for an io thread
+     */
+    public int getPendingBatchCount() {
+        return ioThreadPool.getQueue().size();
+    }
+
+    /**
+     * @return number of batches sent and waiting for the response
+     */
+    public int getInFlightBatchCount() {
+        return inFlight.size();
+    }
+
+    private void lingerLoop() {
+        while (!closed) {
+            long delayMs = accumulator.expire(System.currentTimeMillis());
+            try {
+                Thread.sleep(Math.max(1, delayMs));
+            } catch (InterruptedException e) {
+                if (closed) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void dispatch(ProducerBatch batch) {
+        try {
+            ioThreadPool.execute(new BatchSender(client, batch, memoryBudget, config.getCompressType(), inFlight));
+        } catch (RejectedExecutionException e) {
+            memoryBudget.release(batch.getMemoryInBytes());
+            batch.getFuture().completeExceptionally(
+                    new LogException("ProducerClosed", "The log producer has been closed", e, ""));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.common.LogContent;
+import com.dtstack.openservices.log.common.LogItem;
+
+/**
+ * <p>
+ *     在追加时估算LogItem序列化后占用的字节数，用于攒批时判断是否超过批次字节上限。
+ *     按protobuf编码规则计算，字符串按UTF-8长度计算，不产生临时对象。
+ * </p>
+ * <p>
+ *     同时估算LogItem在堆上占用的字节数，用于内存预算计数。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class LogSizeCalculator {
+
+    // object header + fields, aligned to 8 bytes, assuming compressed oops
+    private static final int LOG_ITEM_SHALLOW_SIZE = 24;
+    private static final int ARRAY_LIST_SHALLOW_SIZE = 24;
+    private static final int ARRAY_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 4;
+    private static final int LOG_CONTENT_SHALLOW_SIZE = 24;
+    private static final int STRING_SHALLOW_SIZE = 24;
+
+    // a source left empty is filled with the client ip, at most an ipv6 address
+    private static final int MAX_DEFAULT_SOURCE_LENGTH = 45;
+
+    // the __pack_unique_id__ tag the client may add, a uuid, a dash and a double
+    private static final int PACK_ID_TAG_SIZE = 128;
+
+    private LogSizeCalculator() {
+    }
+
+    /**
+     * Calculate the size of a log item as a repeated field of LogGroup,
+     * including the field tag and the length prefix.
+     *
+     * @param item log item
+     * @return serialized size in bytes
+     */
+    static int calculate(LogItem item) {
+        int logSize = 1 + varintSize(item.mLogTime);
+        for (LogContent content : item.mContents) {
+            int contentSize = stringFieldSize(content.mKey) + stringFieldSize(content.mValue);
+            logSize += 1 + varintSize(contentSize) + contentSize;
+        }
+        return 1 + varintSize(logSize) + logSize;
+    }
+
+    /**
+     * Calculate the bytes a LogGroup takes besides its logs: the topic, the
+     * source and a reserve for the tags the client adds when sending.
+     *
+     * @param topic  topic of the batch
+     * @param source source of the batch, null or empty means the client ip
+     * @return serialized size in bytes
+     */
+    static int groupOverhead(String topic, String source) {
+        int sourceLength = source == null || source.isEmpty() ? MAX_DEFAULT_SOURCE_LENGTH : utf8Length(source);
+        return stringFieldSize(topic) + 1 + varintSize(sourceLength) + sourceLength + PACK_ID_TAG_SIZE;
+    }
+
+    /**
+     * Estimate the heap memory retained by a log item. Strings are counted as
+     * two bytes per char so the estimate holds with and without compact strings.
+     *
+     * @param item log item
+     * @return estimated heap size in bytes
+     */
+    static int estimateMemory(LogItem item) {
+        int size = LOG_ITEM_SHALLOW_SIZE + ARRAY_LIST_SHALLOW_SIZE + ARRAY_HEADER_SIZE;
+        for (LogContent content : item.mContents) {
+            size += REFERENCE_SIZE + LOG_CONTENT_SHALLOW_SIZE
+                    + stringMemory(content.mKey) + stringMemory(content.mValue);
+        }
+        return size;
+    }
+
+    private static int stringMemory(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return STRING_SHALLOW_SIZE + ARRAY_HEADER_SIZE + value.length() * 2;
+    }
+
+    private static int stringFieldSize(String value) {
+        int length = value == null ? 0 : utf8Length(value);
+        return 1 + varintSize(length) + length;
+    }
+
+    static int varintSize(int value) {
+        if (value < 0) {
+            return 10;
+        }
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int utf8Length(String value) {
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    utf8Length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    utf8Length += 2;
+                    i++;
+                } else {
+                    utf8Length += 2;
+                }
+            }
+        }
+        return utf8Length;
+    }
+}
@@ -0,0 +1,89 @@
+package com.dtstack.openservices.log.producer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ *     一个producer下所有待发送批次共享的内存预算，按字节计数。
+ *     日志追加前申请，批次发送结束或被丢弃后归还。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class MemoryBudget {
+
+    private final long totalBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    private long usedBytes;
+
+    MemoryBudget(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    boolean tryAcquire(int bytes) {
+        lock.lock();
+        try {
+            if (usedBytes + bytes > totalBytes) {
+                return false;
+            }
+            usedBytes += bytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the requested bytes are available or the timeout elapses.
+     *
+     * @return true if the bytes are acquired
+     */
+    boolean acquire(int bytes, long timeoutMs) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (usedBytes + bytes > totalBytes) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = available.awaitNanos(remainingNanos);
+            }
+            usedBytes += bytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(int bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
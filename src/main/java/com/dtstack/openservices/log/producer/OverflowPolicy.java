@@ -0,0 +1,31 @@
+package com.dtstack.openservices.log.producer;
+
+/**
+ * <p>
+ *     内存预算耗尽时新追加日志的处理策略。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 阻塞调用线程直到有足够内存，超过{@link ProducerConfig#getMaxBlockMs()}后抛出异常。
+     */
+    BLOCK,
+
+    /**
+     * 丢弃新追加的日志，返回的Future以异常结束。
+     */
+    DROP_NEWEST,
+
+    /**
+     * 丢弃最早等待发送的批次，为新日志腾出内存。
+     */
+    DROP_OLDEST,
+
+    /**
+     * 立即抛出异常。
+     */
+    FAIL_FAST
+}
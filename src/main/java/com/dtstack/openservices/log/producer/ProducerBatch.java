@@ -0,0 +1,113 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.common.LogItem;
+import com.dtstack.openservices.log.request.PutLogsRequest;
+import com.dtstack.openservices.log.response.PutLogsResponse;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     同一分组键下正在攒的一批日志，关闭后交给IO线程转换为一个PutLogsRequest发送。
+ *     批次内所有日志共享同一个发送结果。
+ *     所有方法都需要在持有批次锁的情况下调用。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class ProducerBatch {
+
+    private final GroupKey groupKey;
+
+    private final long createTimeMs;
+
+    private final ArrayList<LogItem> logItems = new ArrayList<LogItem>();
+
+    private final CompletableFuture<PutLogsResponse> future = new CompletableFuture<PutLogsResponse>();
+
+    private int sizeInBytes;
+
+    private int memoryInBytes;
+
+    private boolean closed;
+
+    ProducerBatch(GroupKey groupKey, long createTimeMs) {
+        this.groupKey = groupKey;
+        this.createTimeMs = createTimeMs;
+        // topic, source and tags count against the batch size as well, a full batch must still be accepted
+        this.sizeInBytes = LogSizeCalculator.groupOverhead(groupKey.getTopic(), groupKey.getSource());
+    }
+
+    /**
+     * Append a log item if the batch still has room for it. An empty batch
+     * always accepts the item so that a single large item can be sent alone.
+     *
+     * @return true if the item is appended
+     */
+    boolean tryAppend(LogItem item, int itemSize, int memorySize, ProducerConfig config) {
+        if (!logItems.isEmpty()
+                && (logItems.size() >= config.getBatchCountThreshold()
+                || sizeInBytes + itemSize > config.getBatchSizeThresholdInBytes())) {
+            return false;
+        }
+        logItems.add(item);
+        sizeInBytes += itemSize;
+        memoryInBytes += memorySize;
+        return true;
+    }
+
+    boolean isFull(ProducerConfig config) {
+        return logItems.size() >= config.getBatchCountThreshold()
+                || sizeInBytes >= config.getBatchSizeThresholdInBytes();
+    }
+
+    boolean isExpired(long nowMs, ProducerConfig config) {
+        return nowMs - createTimeMs >= config.getLingerMs();
+    }
+
+    long remainingLingerMs(long nowMs, ProducerConfig config) {
+        return Math.max(0, createTimeMs + config.getLingerMs() - nowMs);
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    boolean isEmpty() {
+        return logItems.isEmpty();
+    }
+
+    GroupKey getGroupKey() {
+        return groupKey;
+    }
+
+    int getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    int getMemoryInBytes() {
+        return memoryInBytes;
+    }
+
+    long getCreateTimeMs() {
+        return createTimeMs;
+    }
+
+    int getLogCount() {
+        return logItems.size();
+    }
+
+    CompletableFuture<PutLogsResponse> getFuture() {
+        return future;
+    }
+
+    PutLogsRequest toRequest() {
+        return new PutLogsRequest(groupKey.getLogStore(), groupKey.getTopic(),
+                groupKey.getSource(), logItems, groupKey.getRouteKey());
+    }
+}
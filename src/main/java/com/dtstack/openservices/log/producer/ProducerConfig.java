@@ -0,0 +1,254 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.common.Consts;
+
+/**
+ * <p>
+ *     异步批量发送配置，用于控制{@link LogProducer}的攒批触发条件和后台IO线程数。
+ *     任一触发条件满足(条数、字节数、停留时间)即将批次交给IO线程发送。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class ProducerConfig {
+
+    public static final int DEFAULT_LINGER_MS = 2000;
+
+    public static final int DEFAULT_BATCH_COUNT_THRESHOLD = 4096;
+
+    public static final int DEFAULT_BATCH_SIZE_THRESHOLD_IN_BYTES = 512 * 1024;
+
+    public static final long DEFAULT_TOTAL_SIZE_IN_BYTES = 100 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_BLOCK_MS = 60 * 1000;
+
+    public static final long DEFAULT_SHARD_REFRESH_INTERVAL_MS = 60 * 1000;
+
+    private int lingerMs = DEFAULT_LINGER_MS;
+
+    private int batchCountThreshold = DEFAULT_BATCH_COUNT_THRESHOLD;
+
+    private int batchSizeThresholdInBytes = DEFAULT_BATCH_SIZE_THRESHOLD_IN_BYTES;
+
+    private int ioThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private long totalSizeInBytes = DEFAULT_TOTAL_SIZE_IN_BYTES;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private long maxBlockMs = DEFAULT_MAX_BLOCK_MS;
+
+    private Consts.CompressType compressType = Consts.CompressType.LZ4;
+
+    private ShardRangeProvider shardRangeProvider;
+
+    private long shardRefreshIntervalMs = DEFAULT_SHARD_REFRESH_INTERVAL_MS;
+
+    /**
+     * 构造新实例。
+     */
+    public ProducerConfig() {
+    }
+
+    /**
+     * 返回批次在内存中的最长停留时间（单位：毫秒）。
+     * @return 批次最长停留时间。
+     */
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    /**
+     * 设置批次在内存中的最长停留时间（单位：毫秒）。
+     * @param lingerMs
+     *          批次最长停留时间，必须大于0。
+     */
+    public void setLingerMs(int lingerMs) {
+        if (lingerMs <= 0) {
+            throw new IllegalArgumentException("lingerMs must be greater than 0, got " + lingerMs);
+        }
+        this.lingerMs = lingerMs;
+    }
+
+    /**
+     * 返回单个批次的日志条数上限。
+     * @return 批次日志条数上限。
+     */
+    public int getBatchCountThreshold() {
+        return batchCountThreshold;
+    }
+
+    /**
+     * 设置单个批次的日志条数上限，不能超过{@link Consts#CONST_MAX_PUT_LINES}。
+     * @param batchCountThreshold
+     *          批次日志条数上限。
+     */
+    public void setBatchCountThreshold(int batchCountThreshold) {
+        if (batchCountThreshold <= 0 || batchCountThreshold > Consts.CONST_MAX_PUT_LINES) {
+            throw new IllegalArgumentException("batchCountThreshold must be between 1 and "
+                    + Consts.CONST_MAX_PUT_LINES + ", got " + batchCountThreshold);
+        }
+        this.batchCountThreshold = batchCountThreshold;
+    }
+
+    /**
+     * 返回单个批次的字节数上限。
+     * @return 批次字节数上限。
+     */
+    public int getBatchSizeThresholdInBytes() {
+        return batchSizeThresholdInBytes;
+    }
+
+    /**
+     * 设置单个批次的字节数上限，不能超过{@link Consts#CONST_MAX_PUT_SIZE}。
+     * 批次字节数包括topic、source和发送时附加的tag，批满后仍不超过服务端的上限。
+     * @param batchSizeThresholdInBytes
+     *          批次字节数上限。
+     */
+    public void setBatchSizeThresholdInBytes(int batchSizeThresholdInBytes) {
+        if (batchSizeThresholdInBytes <= 0 || batchSizeThresholdInBytes > Consts.CONST_MAX_PUT_SIZE) {
+            throw new IllegalArgumentException("batchSizeThresholdInBytes must be between 1 and "
+                    + Consts.CONST_MAX_PUT_SIZE + ", got " + batchSizeThresholdInBytes);
+        }
+        this.batchSizeThresholdInBytes = batchSizeThresholdInBytes;
+    }
+
+    /**
+     * 返回后台发送线程数。
+     * @return 后台发送线程数。
+     */
+    public int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    /**
+     * 设置后台发送线程数。
+     * @param ioThreadCount
+     *          后台发送线程数，必须大于0。
+     */
+    public void setIoThreadCount(int ioThreadCount) {
+        if (ioThreadCount <= 0) {
+            throw new IllegalArgumentException("ioThreadCount must be greater than 0, got " + ioThreadCount);
+        }
+        this.ioThreadCount = ioThreadCount;
+    }
+
+    /**
+     * 返回所有待发送日志可占用的内存上限（单位：字节）。
+     * @return 内存上限。
+     */
+    public long getTotalSizeInBytes() {
+        return totalSizeInBytes;
+    }
+
+    /**
+     * 设置所有待发送日志可占用的内存上限（单位：字节），按追加时估算的日志对象大小计算。
+     * @param totalSizeInBytes
+     *          内存上限，必须大于0。
+     */
+    public void setTotalSizeInBytes(long totalSizeInBytes) {
+        if (totalSizeInBytes <= 0) {
+            throw new IllegalArgumentException("totalSizeInBytes must be greater than 0, got " + totalSizeInBytes);
+        }
+        this.totalSizeInBytes = totalSizeInBytes;
+    }
+
+    /**
+     * 返回内存预算耗尽时的处理策略。
+     * @return 处理策略。
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * 设置内存预算耗尽时的处理策略。
+     * @param overflowPolicy
+     *          处理策略。
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("overflowPolicy must not be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * 返回{@link OverflowPolicy#BLOCK}策略下调用线程等待内存的最长时间（单位：毫秒）。
+     * @return 最长等待时间。
+     */
+    public long getMaxBlockMs() {
+        return maxBlockMs;
+    }
+
+    /**
+     * 设置{@link OverflowPolicy#BLOCK}策略下调用线程等待内存的最长时间（单位：毫秒）。
+     * @param maxBlockMs
+     *          最长等待时间，不能小于0。
+     */
+    public void setMaxBlockMs(long maxBlockMs) {
+        if (maxBlockMs < 0) {
+            throw new IllegalArgumentException("maxBlockMs must not be less than 0, got " + maxBlockMs);
+        }
+        this.maxBlockMs = maxBlockMs;
+    }
+
+    /**
+     * 返回批次发送时使用的压缩方式。
+     * @return 压缩方式。
+     */
+    public Consts.CompressType getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * 设置批次发送时使用的压缩方式，{@link Consts.CompressType#AUTO}按批次自动选择。
+     * @param compressType
+     *          压缩方式。
+     */
+    public void setCompressType(Consts.CompressType compressType) {
+        if (compressType == null) {
+            throw new IllegalArgumentException("compressType must not be null");
+        }
+        this.compressType = compressType;
+    }
+
+    /**
+     * 返回shard范围的提供者，为null时按route key原值分组。
+     * @return shard范围提供者。
+     */
+    public ShardRangeProvider getShardRangeProvider() {
+        return shardRangeProvider;
+    }
+
+    /**
+     * 设置shard范围的提供者。设置后route key按md5所在的shard分组，同一shard的日志合并为一个请求，
+     * 请求以shard的起始hash key路由。
+     * @param shardRangeProvider
+     *          shard范围提供者，null表示不按shard分组。
+     */
+    public void setShardRangeProvider(ShardRangeProvider shardRangeProvider) {
+        this.shardRangeProvider = shardRangeProvider;
+    }
+
+    /**
+     * 返回后台刷新shard范围的间隔（单位：毫秒）。
+     * @return 刷新间隔。
+     */
+    public long getShardRefreshIntervalMs() {
+        return shardRefreshIntervalMs;
+    }
+
+    /**
+     * 设置后台刷新shard范围的间隔（单位：毫秒）。
+     * @param shardRefreshIntervalMs
+     *          刷新间隔，必须大于0。
+     */
+    public void setShardRefreshIntervalMs(long shardRefreshIntervalMs) {
+        if (shardRefreshIntervalMs <= 0) {
+            throw new IllegalArgumentException("shardRefreshIntervalMs must be greater than 0, got "
+                    + shardRefreshIntervalMs);
+        }
+        this.shardRefreshIntervalMs = shardRefreshIntervalMs;
+    }
+}
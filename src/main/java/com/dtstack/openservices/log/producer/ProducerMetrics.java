@@ -0,0 +1,98 @@
+package com.dtstack.openservices.log.producer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ *     producer内存预算相关的计数器，按日志条数统计。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class ProducerMetrics {
+
+    private final AtomicLong blockedLogs = new AtomicLong();
+
+    private final AtomicLong blockTimeoutLogs = new AtomicLong();
+
+    private final AtomicLong droppedNewestLogs = new AtomicLong();
+
+    private final AtomicLong droppedOldestLogs = new AtomicLong();
+
+    private final AtomicLong rejectedLogs = new AtomicLong();
+
+    private final MemoryBudget memoryBudget;
+
+    ProducerMetrics(MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return 因内存不足而等待过的日志条数
+     */
+    public long getBlockedLogs() {
+        return blockedLogs.get();
+    }
+
+    /**
+     * @return 等待内存超时而失败的日志条数
+     */
+    public long getBlockTimeoutLogs() {
+        return blockTimeoutLogs.get();
+    }
+
+    /**
+     * @return 按DROP_NEWEST策略丢弃的日志条数
+     */
+    public long getDroppedNewestLogs() {
+        return droppedNewestLogs.get();
+    }
+
+    /**
+     * @return 按DROP_OLDEST策略丢弃的日志条数
+     */
+    public long getDroppedOldestLogs() {
+        return droppedOldestLogs.get();
+    }
+
+    /**
+     * @return 按FAIL_FAST策略拒绝的日志条数
+     */
+    public long getRejectedLogs() {
+        return rejectedLogs.get();
+    }
+
+    /**
+     * @return 内存预算总字节数
+     */
+    public long getTotalMemoryInBytes() {
+        return memoryBudget.getTotalBytes();
+    }
+
+    /**
+     * @return 当前待发送日志占用的字节数
+     */
+    public long getUsedMemoryInBytes() {
+        return memoryBudget.getUsedBytes();
+    }
+
+    void recordBlocked() {
+        blockedLogs.incrementAndGet();
+    }
+
+    void recordBlockTimeout() {
+        blockTimeoutLogs.incrementAndGet();
+    }
+
+    void recordDroppedNewest() {
+        droppedNewestLogs.incrementAndGet();
+    }
+
+    void recordDroppedOldest(int logCount) {
+        droppedOldestLogs.addAndGet(logCount);
+    }
+
+    void recordRejected() {
+        rejectedLogs.incrementAndGet();
+    }
+}
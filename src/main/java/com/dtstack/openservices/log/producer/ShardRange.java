@@ -0,0 +1,103 @@
+package com.dtstack.openservices.log.producer;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ *     一个shard负责的hash范围[beginKey, endKey)，key为32位十六进制的128位md5值。
+ *     route key的md5落在该范围内的日志都写入这个shard。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class ShardRange {
+
+    private static final BigInteger HASH_SPACE = BigInteger.ONE.shiftLeft(128);
+
+    private final int shardId;
+
+    private final String beginKey;
+
+    private final String endKey;
+
+    /**
+     * @param shardId  shard id
+     * @param beginKey inclusive begin of the range, 32 hex digits
+     * @param endKey   exclusive end of the range, 32 hex digits
+     */
+    public ShardRange(int shardId, String beginKey, String endKey) {
+        this.shardId = shardId;
+        this.beginKey = normalize(beginKey, "beginKey");
+        this.endKey = normalize(endKey, "endKey");
+    }
+
+    /**
+     * Split the whole hash space evenly, for log stores whose shards were
+     * created with the default even split.
+     *
+     * @param shardCount number of shards, must be greater than 0
+     * @return ranges ordered by begin key, shard ids start at 0
+     */
+    public static List<ShardRange> split(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be greater than 0, got " + shardCount);
+        }
+        List<ShardRange> ranges = new ArrayList<ShardRange>(shardCount);
+        BigInteger count = BigInteger.valueOf(shardCount);
+        String begin = toKey(BigInteger.ZERO);
+        for (int i = 0; i < shardCount; i++) {
+            BigInteger end = HASH_SPACE.multiply(BigInteger.valueOf(i + 1)).divide(count);
+            // 2^128 does not fit in 32 hex digits, the last range ends at "FF..FF"
+            String endKey = i == shardCount - 1 ? toKey(HASH_SPACE.subtract(BigInteger.ONE)) : toKey(end);
+            ranges.add(new ShardRange(i, begin, endKey));
+            begin = endKey;
+        }
+        return ranges;
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    /**
+     * @return inclusive begin of the range, 32 upper case hex digits
+     */
+    public String getBeginKey() {
+        return beginKey;
+    }
+
+    /**
+     * @return exclusive end of the range, 32 upper case hex digits
+     */
+    public String getEndKey() {
+        return endKey;
+    }
+
+    private static String toKey(BigInteger value) {
+        String hex = value.toString(16).toUpperCase();
+        StringBuilder key = new StringBuilder(32);
+        for (int i = hex.length(); i < 32; i++) {
+            key.append('0');
+        }
+        return key.append(hex).toString();
+    }
+
+    private static String normalize(String key, String name) {
+        if (key == null || key.length() != 32) {
+            throw new IllegalArgumentException(name + " must be 32 hex digits, got " + key);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.digit(key.charAt(i), 16) < 0) {
+                throw new IllegalArgumentException(name + " must be 32 hex digits, got " + key);
+            }
+        }
+        return key.toUpperCase();
+    }
+
+    @Override
+    public String toString() {
+        return "ShardRange{shardId=" + shardId + ", beginKey=" + beginKey + ", endKey=" + endKey + "}";
+    }
+}
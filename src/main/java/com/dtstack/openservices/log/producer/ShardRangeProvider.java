@@ -0,0 +1,25 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.exception.LogException;
+
+import java.util.List;
+
+/**
+ * <p>
+ *     提供logStore当前的shard hash范围，{@link LogProducer}据此把route key相同shard的日志合并到同一个批次。
+ *     结果被缓存，并按{@link ProducerConfig#getShardRefreshIntervalMs()}在后台刷新。
+ *     消费组{@link com.dtstack.openservices.log.consumer.LogConsumer}也通过它获取要分配的shard列表。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public interface ShardRangeProvider {
+
+    /**
+     * @param logStore log store name
+     * @return ranges of the writable shards, together covering the hash space
+     * @throws LogException if the shards can not be listed, the cached ranges
+     *                      are kept in that case
+     */
+    List<ShardRange> listShards(String logStore) throws LogException;
+}
@@ -0,0 +1,129 @@
+package com.dtstack.openservices.log.producer;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.http.utils.RequestSigner;
+import com.dtstack.openservices.log.util.NamedThreadFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     把route key映射到所属shard的起始hash key。route key先按utf-8计算md5得到hash key，
+ *     与不配置{@link ShardRangeProvider}时发送的hash key一致，所以开启后同一个key仍落在同一shard。
+ *     每个logStore的shard范围在第一次发送时由后台线程异步加载，加载完成前按hash key本身路由，
+ *     之后由后台线程定期刷新，发送线程不会等待远程调用。同一shard的日志使用相同的分组键，从而合并为一个路由请求。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class ShardRouter {
+
+    private static final String[] NO_SHARDS = new String[0];
+
+    private final ShardRangeProvider provider;
+
+    private final ConcurrentMap<String, String[]> beginKeys = new ConcurrentHashMap<String, String[]>();
+
+    private final ScheduledExecutorService scheduler;
+
+    ShardRouter(ShardRangeProvider provider, long refreshIntervalMs) {
+        this.provider = provider;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("log-producer-shard-refresh"));
+        this.scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refreshAll();
+            }
+        }, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param logStore log store name
+     * @param routeKey route key given by the caller, may be null
+     * @return the begin key of the shard the route key belongs to, the md5
+     *         of the route key itself while the shards are unknown, or null
+     *         if there is no route key
+     */
+    String route(String logStore, String routeKey) {
+        if (routeKey == null) {
+            return null;
+        }
+        String hashKey = hash(routeKey);
+        String[] shards = beginKeys.get(logStore);
+        if (shards == null) {
+            // load in the background, the md5 lands on the same shard meanwhile
+            shards = beginKeys.putIfAbsent(logStore, NO_SHARDS);
+            if (shards == null) {
+                shards = NO_SHARDS;
+                scheduleLoad(logStore);
+            }
+        }
+        // the last shard whose begin key is not greater than the hash key
+        int index = Arrays.binarySearch(shards, hashKey);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? hashKey : shards[index];
+    }
+
+    private void scheduleLoad(final String logStore) {
+        try {
+            scheduler.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refresh(logStore);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed, the log store keeps being routed by the hash key
+        }
+    }
+
+    void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void refreshAll() {
+        for (String logStore : beginKeys.keySet()) {
+            refresh(logStore);
+        }
+    }
+
+    /**
+     * Load the shards of a log store, the cached shards are kept if listing
+     * fails, a log store that never loaded is routed by the hash of the key.
+     */
+    private void refresh(String logStore) {
+        String[] shards;
+        try {
+            List<ShardRange> ranges = provider.listShards(logStore);
+            shards = new String[ranges.size()];
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = ranges.get(i).getBeginKey();
+            }
+            Arrays.sort(shards);
+        } catch (LogException e) {
+            return;
+        } catch (RuntimeException e) {
+            return;
+        }
+        beginKeys.put(logStore, shards);
+    }
+
+    /**
+     * @return the md5 hex of the utf-8 route key, the position of the key in
+     *         the shard hash space
+     */
+    static String hash(String routeKey) {
+        byte[] bytes = routeKey.getBytes(StandardCharsets.UTF_8);
+        return RequestSigner.get().md5Hex(bytes, bytes.length);
+    }
+}
@@ -0,0 +1,139 @@
+package com.dtstack.openservices.log.query;
+
+/**
+ * <p>
+ *     分片并行查询的配置：时间片长度、同时查询的时间片数，以及结果为Incomplete时的重试次数和间隔。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class ParallelQueryConfig {
+
+    public static final int DEFAULT_SLICE_SECONDS = 30 * 60;
+
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    public static final int DEFAULT_MAX_INCOMPLETE_RETRIES = 20;
+
+    public static final long DEFAULT_INCOMPLETE_RETRY_DELAY_MS = 500;
+
+    private int sliceSeconds = DEFAULT_SLICE_SECONDS;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    private int maxIncompleteRetries = DEFAULT_MAX_INCOMPLETE_RETRIES;
+
+    private long incompleteRetryDelayMs = DEFAULT_INCOMPLETE_RETRY_DELAY_MS;
+
+    /**
+     * 构造新实例。
+     */
+    public ParallelQueryConfig() {
+    }
+
+    /**
+     * 返回每个时间片的长度（单位：秒）。
+     * @return 时间片长度。
+     */
+    public int getSliceSeconds() {
+        return sliceSeconds;
+    }
+
+    /**
+     * 设置每个时间片的长度（单位：秒）。
+     * @param sliceSeconds
+     *          时间片长度，必须大于0。
+     */
+    public void setSliceSeconds(int sliceSeconds) {
+        if (sliceSeconds <= 0) {
+            throw new IllegalArgumentException("sliceSeconds must be greater than 0, got " + sliceSeconds);
+        }
+        this.sliceSeconds = sliceSeconds;
+    }
+
+    /**
+     * 返回同时查询的时间片数。
+     * @return 并发数。
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 设置同时查询的时间片数。
+     * @param parallelism
+     *          并发数，必须大于0。
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be greater than 0, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 返回请求未指定line时每页的日志条数。
+     * @return 每页条数。
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 设置请求未指定line时每页的日志条数。
+     * @param pageSize
+     *          每页条数，必须大于0。
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than 0, got " + pageSize);
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * 返回一页结果为Incomplete时重新查询的最多次数。
+     * @return 最多重试次数。
+     */
+    public int getMaxIncompleteRetries() {
+        return maxIncompleteRetries;
+    }
+
+    /**
+     * 设置一页结果为Incomplete时重新查询的最多次数，用完后查询失败。
+     * @param maxIncompleteRetries
+     *          最多重试次数，不能小于0。
+     */
+    public void setMaxIncompleteRetries(int maxIncompleteRetries) {
+        if (maxIncompleteRetries < 0) {
+            throw new IllegalArgumentException("maxIncompleteRetries must not be less than 0, got "
+                    + maxIncompleteRetries);
+        }
+        this.maxIncompleteRetries = maxIncompleteRetries;
+    }
+
+    /**
+     * 返回重新查询Incomplete结果前等待的时间（单位：毫秒）。
+     * @return 重试间隔。
+     */
+    public long getIncompleteRetryDelayMs() {
+        return incompleteRetryDelayMs;
+    }
+
+    /**
+     * 设置重新查询Incomplete结果前等待的时间（单位：毫秒）。
+     * @param incompleteRetryDelayMs
+     *          重试间隔，不能小于0。
+     */
+    public void setIncompleteRetryDelayMs(long incompleteRetryDelayMs) {
+        if (incompleteRetryDelayMs < 0) {
+            throw new IllegalArgumentException("incompleteRetryDelayMs must not be less than 0, got "
+                    + incompleteRetryDelayMs);
+        }
+        this.incompleteRetryDelayMs = incompleteRetryDelayMs;
+    }
+}
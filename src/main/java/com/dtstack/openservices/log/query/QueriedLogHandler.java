@@ -0,0 +1,20 @@
+package com.dtstack.openservices.log.query;
+
+import com.dtstack.openservices.log.common.QueriedLog;
+import com.dtstack.openservices.log.exception.LogException;
+
+/**
+ * <p>
+ *     逐条接收查询结果的回调，日志在解析出来后立即交给回调，不在内存中累积整页结果。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public interface QueriedLogHandler {
+
+    /**
+     * @param log the next log of the response
+     * @throws LogException to stop reading the response
+     */
+    void handle(QueriedLog log) throws LogException;
+}
@@ -0,0 +1,278 @@
+package com.dtstack.openservices.log.query;
+
+import com.dtstack.openservices.log.LogService;
+import com.dtstack.openservices.log.common.QueriedLog;
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.request.QueryLogsRequest;
+import com.dtstack.openservices.log.response.QueryLogsResponse;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     按offset/line分页遍历一次查询的全部结果。后台任务在调用方消费当前页的同时拉取后续页面，
+ *     已拉取未消费的页面数不超过预取深度。队列满时后台任务结束并归还线程，
+ *     调用方取走页面后再提交新的拉取任务，所以消费慢的遍历不会占住查询线程。
+ * </p>
+ *
+ * <p>
+ *     服务端返回Incomplete且不满一页时重新查询同一页，最多{@link #MAX_INCOMPLETE_RETRIES}次，
+ *     仍不完整时以QueryIncomplete结束遍历，不返回部分结果。
+ *     用完后需调用{@link #close()}，提前关闭会停止后台拉取。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class QueryLogsIterator implements AutoCloseable {
+
+    /**
+     * 不满一页的Incomplete结果重新查询的最多次数。
+     */
+    public static final int MAX_INCOMPLETE_RETRIES = 3;
+
+    private static final long INCOMPLETE_RETRY_DELAY_MS = 200;
+
+    private static final long POLL_MS = 100;
+
+    private final LogService client;
+
+    private final QueryLogsRequest request;
+
+    private final int pageSize;
+
+    private final BlockingQueue<Page> pages;
+
+    private final Executor executor;
+
+    private final Runnable fetchTask = new Runnable() {
+        @Override
+        public void run() {
+            fetch();
+        }
+    };
+
+    /**
+     * Guards nextOffset, fetching and done.
+     */
+    private final Object lock = new Object();
+
+    private int nextOffset;
+
+    /**
+     * True while a fetch task is submitted or running, at most one is.
+     */
+    private boolean fetching;
+
+    /**
+     * True once the last page or an error is queued.
+     */
+    private boolean done;
+
+    private volatile boolean closed;
+
+    private Iterator<QueriedLog> current = Collections.<QueriedLog>emptyList().iterator();
+
+    private boolean finished;
+
+    private int fetchedPages;
+
+    /**
+     * @param client        client the pages are queried with
+     * @param request       query, its offset is where the iteration starts
+     *                      and its line the page size when set
+     * @param pageSize      page size used when the request has no line
+     * @param prefetchPages max pages fetched and not consumed yet, at least 1
+     * @param executor      runs the background fetch tasks, a task only
+     *                      holds a thread while pages are being queried
+     */
+    public QueryLogsIterator(LogService client, QueryLogsRequest request, int pageSize, int prefetchPages,
+                             Executor executor) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be greater than 0, got " + pageSize);
+        }
+        if (prefetchPages <= 0) {
+            throw new IllegalArgumentException("prefetchPages must be greater than 0, got " + prefetchPages);
+        }
+        this.client = client;
+        this.request = request;
+        this.pageSize = request.GetLine() > 0 ? request.GetLine() : pageSize;
+        this.pages = new ArrayBlockingQueue<Page>(prefetchPages);
+        this.executor = executor;
+        this.nextOffset = request.GetOffset();
+        this.fetching = true;
+        submitFetch();
+    }
+
+    /**
+     * @return true if there are more logs, waits for the next page if the
+     *         current one is consumed
+     * @throws LogException if a page can not be queried or the background
+     *                      fetch was interrupted or rejected
+     */
+    public boolean hasNext() throws LogException {
+        while (!current.hasNext()) {
+            if (finished || closed) {
+                return false;
+            }
+            Page page;
+            try {
+                page = pages.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LogException("QueryInterrupted", "Interrupted while waiting for the next page", e, "");
+            }
+            if (page == null) {
+                continue;
+            }
+            // the page made room in the queue
+            resumeFetch();
+            if (page.error != null) {
+                finished = true;
+                throw page.error;
+            }
+            if (!page.logs.isEmpty()) {
+                fetchedPages++;
+            }
+            current = page.logs.iterator();
+            finished = page.last;
+        }
+        return true;
+    }
+
+    /**
+     * @return the next log
+     * @throws LogException if there is no more log or a page can not be queried
+     */
+    public QueriedLog next() throws LogException {
+        if (!hasNext()) {
+            throw new LogException("NoMoreLogs", "The query has no more logs", "");
+        }
+        return current.next();
+    }
+
+    /**
+     * @return number of pages consumed so far
+     */
+    public int getPageCount() {
+        return fetchedPages;
+    }
+
+    /**
+     * Stop the background fetch and drop the pages not consumed yet, a page
+     * being queried is dropped once its response arrives.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pages.clear();
+    }
+
+    /**
+     * Query pages while the queue has room. The fetch task is the only
+     * producer and the room is checked before each query, so queueing the
+     * page never waits.
+     */
+    private void fetch() {
+        while (true) {
+            int offset;
+            synchronized (lock) {
+                if (closed || pages.remainingCapacity() == 0) {
+                    // the consumer submits the next fetch once it takes a page
+                    fetching = false;
+                    return;
+                }
+                offset = nextOffset;
+            }
+            Page page;
+            try {
+                QueryLogsResponse response = fetchPage(offset);
+                List<QueriedLog> logs = response.GetLogs();
+                page = new Page(logs, null, logs.size() < pageSize);
+            } catch (LogException e) {
+                page = new Page(null, e, true);
+            } catch (RuntimeException e) {
+                page = new Page(null, new LogException("RequestError", "Failed to query logs: "
+                        + e.getMessage(), e, ""), true);
+            } catch (InterruptedException e) {
+                // the client is shutting down
+                Thread.currentThread().interrupt();
+                page = new Page(null, new LogException("QueryInterrupted",
+                        "The background query was interrupted", e, ""), true);
+            }
+            synchronized (lock) {
+                if (closed) {
+                    fetching = false;
+                    return;
+                }
+                pages.offer(page);
+                if (page.last) {
+                    done = true;
+                    fetching = false;
+                    return;
+                }
+                nextOffset = offset + page.logs.size();
+            }
+        }
+    }
+
+    private void resumeFetch() {
+        synchronized (lock) {
+            if (fetching || done || closed) {
+                return;
+            }
+            fetching = true;
+        }
+        submitFetch();
+    }
+
+    private void submitFetch() {
+        try {
+            executor.execute(fetchTask);
+        } catch (RejectedExecutionException e) {
+            synchronized (lock) {
+                // no fetch task runs and the consumer has just made room, the page fits
+                pages.offer(new Page(null, new LogException("QueryRejected",
+                        "The query executor rejected the page query", e, ""), true));
+                done = true;
+                fetching = false;
+            }
+        }
+    }
+
+    private QueryLogsResponse fetchPage(int offset) throws LogException, InterruptedException {
+        QueryLogsRequest page = QueryRequests.page(request, request.GetFromTime(), request.GetToTime(),
+                offset, pageSize);
+        QueryLogsResponse response = client.queryLogs(page);
+        for (int retry = 0; retry < MAX_INCOMPLETE_RETRIES && !response.IsCompleted()
+                && response.GetCount() < pageSize && !closed; retry++) {
+            Thread.sleep(INCOMPLETE_RETRY_DELAY_MS);
+            response = client.queryLogs(page);
+        }
+        if (!response.IsCompleted() && response.GetCount() < pageSize && !closed) {
+            // a short incomplete page would otherwise end the iteration with partial results
+            throw new LogException("QueryIncomplete", "The query at offset " + offset
+                    + " is still incomplete after " + MAX_INCOMPLETE_RETRIES + " retries",
+                    response.getRequestId());
+        }
+        return response;
+    }
+
+    private static final class Page {
+        private final List<QueriedLog> logs;
+        private final LogException error;
+        private final boolean last;
+
+        private Page(List<QueriedLog> logs, LogException error, boolean last) {
+            this.logs = logs;
+            this.error = error;
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.dtstack.openservices.log.query;
+
+import com.dtstack.openservices.log.common.Consts;
+import com.dtstack.openservices.log.common.LogItem;
+import com.dtstack.openservices.log.common.QueriedLog;
+import com.dtstack.openservices.log.exception.LogException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ *     流式解析查询结果。响应体是日志对象组成的JSON数组，解析器直接从输入流按字节读取，
+ *     每次调用{@link #next()}只解析一条日志，不缓存整个响应体，也不构建中间的JSON对象。
+ * </p>
+ *
+ * <p>
+ *     字段值为字符串时返回反转义后的内容，null返回null，
+ *     数字、布尔值以及嵌套的对象和数组返回其JSON文本。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class QueryLogsParser {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+
+    private final String requestId;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    private char[] chars = new char[256];
+
+    private int length;
+
+    private boolean started;
+
+    private boolean finished;
+
+    /**
+     * @param in        the response body, not closed by the parser
+     * @param requestId request id used in the parse errors
+     */
+    public QueryLogsParser(InputStream in, String requestId) {
+        this.in = in;
+        this.requestId = requestId;
+    }
+
+    /**
+     * @return the next log, null once the array ends
+     * @throws LogException if the body is not a json array of objects or can
+     *                      not be read
+     */
+    public QueriedLog next() throws LogException {
+        try {
+            if (finished) {
+                return null;
+            }
+            if (!started) {
+                started = true;
+                expect('[');
+                if (peekToken() == ']') {
+                    position++;
+                    finished = true;
+                    return null;
+                }
+            } else {
+                int c = readToken();
+                if (c == ']') {
+                    finished = true;
+                    return null;
+                }
+                if (c != ',') {
+                    throw unexpected(c, "',' or ']'");
+                }
+            }
+            return readLog();
+        } catch (IOException e) {
+            throw new LogException("BadResponse",
+                    "Io exception happened when parse the response data : ", e, requestId);
+        }
+    }
+
+    private QueriedLog readLog() throws IOException, LogException {
+        expect('{');
+        String source = "";
+        LogItem logItem = new LogItem();
+        if (peekToken() == '}') {
+            position++;
+            return new QueriedLog(source, logItem);
+        }
+        while (true) {
+            expect('"');
+            String key = readString();
+            expect(':');
+            String value = readValue();
+            if (key.equals(Consts.CONST_RESULT_SOURCE)) {
+                source = value;
+            } else if (key.equals(Consts.CONST_RESULT_TIME)) {
+                try {
+                    logItem.mLogTime = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new LogException("BadResponse", "The log time is not a valid integer : " + value,
+                            e, requestId);
+                }
+            } else {
+                logItem.PushBack(key, value);
+            }
+            int c = readToken();
+            if (c == '}') {
+                return new QueriedLog(source, logItem);
+            }
+            if (c != ',') {
+                throw unexpected(c, "',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Read a value, strings are returned unquoted, null as null and any
+     * other value as its json text.
+     */
+    private String readValue() throws IOException, LogException {
+        int c = readToken();
+        if (c == '"') {
+            return readString();
+        }
+        length = 0;
+        if (c == '{' || c == '[') {
+            copyNested(c);
+        } else {
+            copyLiteral(c);
+            if (length == 4 && chars[0] == 'n' && chars[1] == 'u' && chars[2] == 'l' && chars[3] == 'l') {
+                return null;
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Copy a number, true or false whose first byte is already read.
+     */
+    private void copyLiteral(int first) throws IOException, LogException {
+        int c = first;
+        while (c == '-' || c == '+' || c == '.' || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')) {
+            append((char) c);
+            if (position == limit && !fill()) {
+                break;
+            }
+            c = buffer[position];
+            if (c == '-' || c == '+' || c == '.' || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z')
+                    || (c >= 'A' && c <= 'Z')) {
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (length == 0) {
+            throw unexpected(first, "a value");
+        }
+    }
+
+    /**
+     * Copy a nested object or array as compact json text, strings are copied
+     * with their escapes.
+     */
+    private void copyNested(int open) throws IOException, LogException {
+        append((char) open);
+        int depth = 1;
+        while (depth > 0) {
+            int c = readToken();
+            if (c == '"') {
+                append('"');
+                copyRawString();
+                append('"');
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+            if (c < 0x80) {
+                append((char) c);
+            } else {
+                appendUtf8(c);
+            }
+        }
+    }
+
+    /**
+     * Copy the rest of a string without unescaping it.
+     */
+    private void copyRawString() throws IOException, LogException {
+        while (true) {
+            int c = readByte();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                append('\\');
+                append((char) readByte());
+            } else if (c < 0x80) {
+                append((char) c);
+            } else {
+                appendUtf8(c);
+            }
+        }
+    }
+
+    /**
+     * Read the rest of a string whose opening quote is already read.
+     */
+    private String readString() throws IOException, LogException {
+        length = 0;
+        while (true) {
+            // fast path for plain ascii
+            while (position < limit) {
+                int c = buffer[position] & 0xFF;
+                if (c == '"' || c == '\\' || c < 0x20 || c >= 0x80) {
+                    break;
+                }
+                position++;
+                append((char) c);
+            }
+            int c = readByte();
+            if (c == '"') {
+                return new String(chars, 0, length);
+            }
+            if (c == '\\') {
+                readEscape();
+            } else if (c >= 0x80) {
+                appendUtf8(c);
+            } else {
+                // control characters are not valid json but kept as they are
+                append((char) c);
+            }
+        }
+    }
+
+    private void readEscape() throws IOException, LogException {
+        int c = readByte();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                append((char) c);
+                break;
+            case 'b':
+                append('\b');
+                break;
+            case 'f':
+                append('\f');
+                break;
+            case 'n':
+                append('\n');
+                break;
+            case 'r':
+                append('\r');
+                break;
+            case 't':
+                append('\t');
+                break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(readByte(), 16);
+                    if (digit < 0) {
+                        throw new LogException("BadResponse", "The response contains an invalid unicode escape",
+                                requestId);
+                    }
+                    code = (code << 4) | digit;
+                }
+                append((char) code);
+                break;
+            default:
+                throw unexpected(c, "an escape character");
+        }
+    }
+
+    /**
+     * Decode a multi-byte utf-8 sequence whose unsigned lead byte is already read,
+     * malformed sequences become U+FFFD.
+     */
+    private void appendUtf8(int lead) throws IOException, LogException {
+        int b = lead;
+        int count;
+        int code;
+        if (b >= 0xF0 && b < 0xF8) {
+            count = 3;
+            code = b & 0x07;
+        } else if (b >= 0xE0) {
+            count = 2;
+            code = b & 0x0F;
+        } else if (b >= 0xC0) {
+            count = 1;
+            code = b & 0x1F;
+        } else {
+            append('\uFFFD');
+            return;
+        }
+        if (b >= 0xF8) {
+            append('\uFFFD');
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (position == limit && !fill()) {
+                throw new LogException("BadResponse", "The response ends in the middle of a string", requestId);
+            }
+            int next = buffer[position] & 0xFF;
+            if ((next & 0xC0) != 0x80) {
+                append('\uFFFD');
+                return;
+            }
+            position++;
+            code = (code << 6) | (next & 0x3F);
+        }
+        if (code >= 0x10000) {
+            append(Character.highSurrogate(code));
+            append(Character.lowSurrogate(code));
+        } else {
+            append((char) code);
+        }
+    }
+
+    private void append(char c) {
+        if (length == chars.length) {
+            char[] grown = new char[chars.length * 2];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+        chars[length++] = c;
+    }
+
+    private void expect(int expected) throws IOException, LogException {
+        int c = readToken();
+        if (c != expected) {
+            throw unexpected(c, "'" + (char) expected + "'");
+        }
+    }
+
+    /**
+     * @return the next byte that is not white space, without consuming it
+     */
+    private int peekToken() throws IOException, LogException {
+        int c = readToken();
+        position--;
+        return c;
+    }
+
+    /**
+     * @return the next byte that is not white space
+     */
+    private int readToken() throws IOException, LogException {
+        while (true) {
+            int c = readByte();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * @return the next byte as an unsigned value
+     */
+    private int readByte() throws IOException, LogException {
+        if (position == limit && !fill()) {
+            throw new LogException("BadResponse", "The response ends before the json array is closed",
+                    requestId);
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = in.read(buffer, 0, buffer.length);
+        }
+        if (read < 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private LogException unexpected(int c, String expected) {
+        String found = c >= 0x20 && c < 0x7F ? "'" + (char) c + "'" : "byte " + (c & 0xFF);
+        return new LogException("BadResponse", "The response is not a valid json array of logs, expected "
+                + expected + " but found " + found, requestId);
+    }
+}
@@ -0,0 +1,31 @@
+package com.dtstack.openservices.log.query;
+
+import com.dtstack.openservices.log.request.QueryLogsRequest;
+
+import java.util.Map;
+
+/**
+ * <p>
+ *     复制查询请求并替换时间范围和分页参数，原请求上的其他参数原样保留。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class QueryRequests {
+
+    private QueryRequests() {
+    }
+
+    static QueryLogsRequest page(QueryLogsRequest request, int from, int to, int offset, int line) {
+        QueryLogsRequest page = new QueryLogsRequest(null, request.GetLogStore(), from, to,
+                request.GetTopic(), request.GetQuery());
+        for (Map.Entry<String, String> param : request.GetAllParams().entrySet()) {
+            page.SetParam(param.getKey(), param.getValue());
+        }
+        page.SetFromTime(from);
+        page.SetToTime(to);
+        page.SetOffset(offset);
+        page.SetLine(line);
+        return page;
+    }
+}
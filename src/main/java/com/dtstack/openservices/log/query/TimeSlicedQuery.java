@@ -0,0 +1,242 @@
+package com.dtstack.openservices.log.query;
+
+import com.dtstack.openservices.log.LogService;
+import com.dtstack.openservices.log.common.Consts;
+import com.dtstack.openservices.log.common.QueriedLog;
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.request.QueryLogsRequest;
+import com.dtstack.openservices.log.response.QueryLogsResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ *     把一次查询的[from, to)时间范围切成{@link ParallelQueryConfig#getSliceSeconds()}长的时间片，
+ *     最多{@link ParallelQueryConfig#getParallelism()}个时间片同时查询。每个时间片分页拉取全部结果，
+ *     结果为Incomplete的页面重新查询直到完成，最后按__time__多路归并，
+ *     请求设置reverse时按时间倒序。
+ * </p>
+ *
+ * <p>
+ *     适用于检索语句，带有SQL分析的查询各时间片的结果无法按时间合并。
+ *     请求的offset被忽略，line作为每页条数。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class TimeSlicedQuery {
+
+    private final LogService client;
+
+    private final ParallelQueryConfig config;
+
+    private final Executor executor;
+
+    /**
+     * @param client   client the slices are queried with
+     * @param config   slicing and retry settings
+     * @param executor runs the slice queries, at most parallelism tasks are
+     *                 submitted per query
+     */
+    public TimeSlicedQuery(LogService client, ParallelQueryConfig config, Executor executor) {
+        this.client = client;
+        this.config = config;
+        this.executor = executor;
+    }
+
+    /**
+     * Query all slices of the request and merge them.
+     *
+     * @param request the query
+     * @return every log of the time range, ordered by time
+     * @throws LogException if a slice fails or stays incomplete, the other
+     *                      slices are abandoned
+     */
+    public QueryLogsResponse execute(final QueryLogsRequest request) throws LogException {
+        final int from = request.GetFromTime();
+        final int to = request.GetToTime();
+        final int line = request.GetLine() > 0 ? request.GetLine() : config.getPageSize();
+        final int sliceCount = to > from ? (int) ((to - (long) from + config.getSliceSeconds() - 1)
+                / config.getSliceSeconds()) : 1;
+        final List<List<QueriedLog>> results = new ArrayList<List<QueriedLog>>(
+                Collections.<List<QueriedLog>>nCopies(sliceCount, null));
+        final AtomicInteger nextSlice = new AtomicInteger(0);
+        final AtomicReference<LogException> failure = new AtomicReference<LogException>();
+        final AtomicLong processedRows = new AtomicLong(0);
+        final AtomicLong elapsedMs = new AtomicLong(0);
+        int workers = Math.min(config.getParallelism(), sliceCount);
+        final CountDownLatch done = new CountDownLatch(workers);
+
+        for (int i = 0; i < workers; i++) {
+            Runnable worker = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int slice;
+                        while (failure.get() == null && (slice = nextSlice.getAndIncrement()) < sliceCount) {
+                            int sliceFrom = sliceCount == 1 ? from
+                                    : (int) (from + (long) slice * config.getSliceSeconds());
+                            int sliceTo = sliceCount == 1 ? to
+                                    : (int) Math.min(to, sliceFrom + (long) config.getSliceSeconds());
+                            List<QueriedLog> logs = querySlice(request, sliceFrom, sliceTo, line, failure,
+                                    processedRows, elapsedMs);
+                            synchronized (results) {
+                                results.set(slice, logs);
+                            }
+                        }
+                    } catch (LogException e) {
+                        failure.compareAndSet(null, e);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, new LogException("RequestError", "Failed to query logs: "
+                                + e.getMessage(), e, ""));
+                    } catch (InterruptedException e) {
+                        failure.compareAndSet(null, new LogException("QueryInterrupted",
+                                "Interrupted while querying a time slice", e, ""));
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                failure.compareAndSet(null, new LogException("QueryRejected",
+                        "The query executor rejected the slice query", e, ""));
+                for (; i < workers; i++) {
+                    done.countDown();
+                }
+            }
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, new LogException("QueryInterrupted",
+                    "Interrupted while waiting for the time slices", e, ""));
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put(Consts.CONST_X_SLS_PROCESS, Consts.CONST_RESULT_COMPLETE);
+        QueryLogsResponse response = new QueryLogsResponse(headers);
+        synchronized (results) {
+            response.SetLogs(merge(results, request.GetReverse()));
+        }
+        response.setProcessedRow(processedRows.get());
+        response.setElapsedMilliSecond(elapsedMs.get());
+        return response;
+    }
+
+    /**
+     * Query all pages of one slice, sorted by time in the output order.
+     */
+    private List<QueriedLog> querySlice(QueryLogsRequest request, int from, int to, int line,
+                                        AtomicReference<LogException> failure, AtomicLong processedRows,
+                                        AtomicLong elapsedMs) throws LogException, InterruptedException {
+        List<QueriedLog> logs = new ArrayList<QueriedLog>();
+        int offset = 0;
+        while (failure.get() == null) {
+            QueryLogsRequest page = QueryRequests.page(request, from, to, offset, line);
+            QueryLogsResponse response = client.queryLogs(page);
+            for (int retry = 0; !response.IsCompleted(); retry++) {
+                if (retry >= config.getMaxIncompleteRetries()) {
+                    throw new LogException("QueryIncomplete", "The query of [" + from + ", " + to
+                            + ") at offset " + offset + " is still incomplete after "
+                            + config.getMaxIncompleteRetries() + " retries", response.getRequestId());
+                }
+                if (failure.get() != null) {
+                    return logs;
+                }
+                Thread.sleep(config.getIncompleteRetryDelayMs());
+                response = client.queryLogs(page);
+            }
+            processedRows.addAndGet(response.getProcessedRow());
+            elapsedMs.addAndGet(response.getElapsedMilliSecond());
+            logs.addAll(response.GetLogs());
+            if (response.GetCount() < line) {
+                break;
+            }
+            offset += response.GetCount();
+        }
+        // stable, the server order is kept for logs of the same second
+        Collections.sort(logs, timeOrder(request.GetReverse()));
+        return logs;
+    }
+
+    /**
+     * K-way merge of the sorted slices, logs of the same second keep the
+     * order of their slices.
+     */
+    private static List<QueriedLog> merge(List<List<QueriedLog>> slices, final boolean reverse) {
+        int total = 0;
+        for (List<QueriedLog> slice : slices) {
+            total += slice.size();
+        }
+        final Comparator<QueriedLog> order = timeOrder(reverse);
+        PriorityQueue<SliceCursor> heap = new PriorityQueue<SliceCursor>(Math.max(1, slices.size()),
+                new Comparator<SliceCursor>() {
+                    @Override
+                    public int compare(SliceCursor a, SliceCursor b) {
+                        int c = order.compare(a.current(), b.current());
+                        if (c != 0) {
+                            return c;
+                        }
+                        return reverse ? Integer.compare(b.slice, a.slice) : Integer.compare(a.slice, b.slice);
+                    }
+                });
+        for (int i = 0; i < slices.size(); i++) {
+            if (!slices.get(i).isEmpty()) {
+                heap.add(new SliceCursor(i, slices.get(i)));
+            }
+        }
+        List<QueriedLog> merged = new ArrayList<QueriedLog>(total);
+        while (!heap.isEmpty()) {
+            SliceCursor cursor = heap.poll();
+            merged.add(cursor.current());
+            if (++cursor.position < cursor.logs.size()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static Comparator<QueriedLog> timeOrder(final boolean reverse) {
+        return new Comparator<QueriedLog>() {
+            @Override
+            public int compare(QueriedLog a, QueriedLog b) {
+                int c = Integer.compare(a.GetLogItem().GetTime(), b.GetLogItem().GetTime());
+                return reverse ? -c : c;
+            }
+        };
+    }
+
+    private static final class SliceCursor {
+        private final int slice;
+        private final List<QueriedLog> logs;
+        private int position;
+
+        private SliceCursor(int slice, List<QueriedLog> logs) {
+            this.slice = slice;
+            this.logs = logs;
+        }
+
+        private QueriedLog current() {
+            return logs.get(position);
+        }
+    }
+}
@@ -64,7 +64,7 @@ public class PutLogsRequest extends Request {
 	 * @param logItems
 	 *            log data
 	 * @param hashKey
-	 * 			  hashKey
+	 * 			  route key sent as the "key" url parameter, null means load balance
 	 */
 	public PutLogsRequest(String logStore, String topic,
 			String source, List<LogItem> logItems,String hashKey) {
@@ -72,7 +72,9 @@ public class PutLogsRequest extends Request {
 		mTopic = topic;
 		mSource = source;
 		mlogItems = new ArrayList<LogItem>(logItems);
-		mHashKey = hashKey;
+		if (hashKey != null && !hashKey.isEmpty()) {
+			SetRouteKey(hashKey);
+		}
 	}
 	/**
 	 * Construct a put log request
@@ -227,6 +229,7 @@ public class PutLogsRequest extends Request {
 	
 	public void SetRouteKey(String hashKey)
 	{
+		mHashKey = hashKey;
 		SetParam(Consts.CONST_ROUTE_KEY,hashKey);
 	}
 	public String GetRouteKey()
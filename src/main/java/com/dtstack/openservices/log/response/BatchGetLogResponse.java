@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) Alibaba Cloud Computing All rights reserved.
+ */
+package com.dtstack.openservices.log.response;
+
+import java.util.List;
+import java.util.Map;
+
+import com.dtstack.openservices.log.common.Consts;
+import com.dtstack.openservices.log.common.FastLogGroup;
+import com.dtstack.openservices.log.common.FastLogGroupList;
+import com.dtstack.openservices.log.exception.LogException;
+
+/**
+ * <p>
+ *     批量拉取日志的响应。响应体为解压后的LogGroupList protobuf数据，
+ *     日志组以{@link FastLogGroupList}视图的形式直接引用响应体，不生成protobuf对象
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ *
+ */
+public class BatchGetLogResponse extends Response {
+	private static final long serialVersionUID = 2471926413262637816L;
+	private final byte[] mRawData;
+	private final String mNextCursor;
+	private transient FastLogGroupList mLogGroups = null;
+
+	/**
+	 * Construct the response with http headers and the decompressed body
+	 *
+	 * @param headers
+	 *            http headers
+	 * @param rawData
+	 *            the decompressed LogGroupList bytes
+	 */
+	public BatchGetLogResponse(Map<String, String> headers, byte[] rawData) {
+		super(headers);
+		mRawData = rawData;
+		mNextCursor = getHeader(Consts.CONST_X_SLS_CURSOR);
+	}
+
+	/**
+	 * @return the cursor to pull the next batch from
+	 */
+	public String GetNextCursor() {
+		return mNextCursor;
+	}
+
+	/**
+	 * @return the number of log groups in the response
+	 * @throws LogException if the body is not a valid LogGroupList
+	 */
+	public int GetCount() throws LogException {
+		return GetLogGroups().size();
+	}
+
+	/**
+	 * @return the decompressed LogGroupList bytes
+	 */
+	public byte[] GetRawData() {
+		return mRawData;
+	}
+
+	/**
+	 * @return the size of the decompressed body
+	 */
+	public int GetRawSize() {
+		return mRawData.length;
+	}
+
+	/**
+	 * Get the log groups as views over the response body, the envelope is
+	 * scanned on the first call and each view is created on its first access
+	 *
+	 * @return log groups in the order of the response
+	 * @throws LogException if the body is not a valid LogGroupList
+	 */
+	public List<FastLogGroup> GetLogGroups() throws LogException {
+		return GetLogGroupList();
+	}
+
+	/**
+	 * @return the log group list over the response body
+	 * @throws LogException if the body is not a valid LogGroupList
+	 */
+	public FastLogGroupList GetLogGroupList() throws LogException {
+		if (mLogGroups == null) {
+			FastLogGroupList logGroups = new FastLogGroupList(mRawData);
+			if (!logGroups.isValid()) {
+				throw new LogException("BadResponse", "The response is not a valid LogGroupList", getRequestId());
+			}
+			mLogGroups = logGroups;
+		}
+		return mLogGroups;
+	}
+}
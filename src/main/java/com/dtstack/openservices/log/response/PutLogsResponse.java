@@ -12,6 +12,7 @@ import java.util.Map;
  */
 public class PutLogsResponse extends Response {
 	private static final long serialVersionUID = -4660644764028977169L;
+	private boolean mSpooled = false;
 
 	/**
 	 * Construct the response with http headers
@@ -20,4 +21,17 @@ public class PutLogsResponse extends Response {
 	public PutLogsResponse(Map<String, String> headers) {
 		super(headers);
 	}
+
+	/**
+	 * Check if the logs are written to the local spool instead of the server,
+	 * they will be sent again once the server is reachable
+	 * @return true if the logs are spooled
+	 */
+	public boolean IsSpooled() {
+		return mSpooled;
+	}
+
+	public void SetSpooled(boolean spooled) {
+		this.mSpooled = spooled;
+	}
 }
@@ -140,7 +140,7 @@ public class QueryLogsResponse extends Response {
 	 *            process status(Complete/InComplete only)
 	 */
 	public void SetProcessStatus(String processStatus) {
-		if (processStatus.equals(Consts.CONST_RESULT_COMPLETE)) {
+		if (Consts.CONST_RESULT_COMPLETE.equals(processStatus)) {
 			mIsCompleted = true;
 		} else {
 			mIsCompleted = false;
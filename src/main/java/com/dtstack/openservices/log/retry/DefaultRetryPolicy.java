@@ -0,0 +1,130 @@
+package com.dtstack.openservices.log.retry;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.http.utils.CodingUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ *     默认的重试策略：限流、服务端错误和网络错误最多尝试{@link #getMaxAttempts()}次，
+ *     等待时间按decorrelated jitter指数增长（在基础等待时间和上次等待时间的3倍之间随机取值，
+ *     第一次重试时上次等待时间按基础等待时间计算），
+ *     限流使用更长的基础等待时间，所有重试受{@link RetryBudget}限制。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class DefaultRetryPolicy implements RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    public static final long DEFAULT_BASE_DELAY_MS = 100;
+
+    public static final long DEFAULT_THROTTLING_BASE_DELAY_MS = 1000;
+
+    public static final long DEFAULT_MAX_DELAY_MS = 10 * 1000;
+
+    private final RetryBudget retryBudget;
+
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private volatile long baseDelayMs = DEFAULT_BASE_DELAY_MS;
+
+    private volatile long throttlingBaseDelayMs = DEFAULT_THROTTLING_BASE_DELAY_MS;
+
+    private volatile long maxDelayMs = DEFAULT_MAX_DELAY_MS;
+
+    public DefaultRetryPolicy() {
+        this(new RetryBudget());
+    }
+
+    /**
+     * @param retryBudget budget shared by all requests using this policy
+     */
+    public DefaultRetryPolicy(RetryBudget retryBudget) {
+        CodingUtils.assertParameterNotNull(retryBudget, "retryBudget");
+        this.retryBudget = retryBudget;
+    }
+
+    @Override
+    public long nextDelayMs(LogException error, int attempts, long lastDelayMs) {
+        ErrorType type = ErrorType.classify(error);
+        if (!type.isRetryable() || attempts >= maxAttempts || !retryBudget.tryAcquire()) {
+            return NO_RETRY;
+        }
+        long base = type == ErrorType.THROTTLING ? throttlingBaseDelayMs : baseDelayMs;
+        // the first retry is seeded with the base delay, so it is drawn from [base, 3 * base]
+        // too instead of every client waiting exactly the base delay in lockstep
+        long previous = Math.max(base, lastDelayMs);
+        long upper = previous * 3;
+        long delay = base + ThreadLocalRandom.current().nextLong(upper - base + 1);
+        return Math.min(maxDelayMs, delay);
+    }
+
+    @Override
+    public void onSuccess() {
+        retryBudget.deposit();
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param maxAttempts attempts per request including the first one, 1 disables retries
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be greater than 0, got " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelayMs() {
+        return baseDelayMs;
+    }
+
+    /**
+     * @param baseDelayMs min delay before retrying server and network errors
+     */
+    public void setBaseDelayMs(long baseDelayMs) {
+        if (baseDelayMs < 0) {
+            throw new IllegalArgumentException("baseDelayMs must not be less than 0, got " + baseDelayMs);
+        }
+        this.baseDelayMs = baseDelayMs;
+    }
+
+    public long getThrottlingBaseDelayMs() {
+        return throttlingBaseDelayMs;
+    }
+
+    /**
+     * @param throttlingBaseDelayMs min delay before retrying a throttled request
+     */
+    public void setThrottlingBaseDelayMs(long throttlingBaseDelayMs) {
+        if (throttlingBaseDelayMs < 0) {
+            throw new IllegalArgumentException("throttlingBaseDelayMs must not be less than 0, got "
+                    + throttlingBaseDelayMs);
+        }
+        this.throttlingBaseDelayMs = throttlingBaseDelayMs;
+    }
+
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    /**
+     * @param maxDelayMs max delay before any retry
+     */
+    public void setMaxDelayMs(long maxDelayMs) {
+        if (maxDelayMs < 0) {
+            throw new IllegalArgumentException("maxDelayMs must not be less than 0, got " + maxDelayMs);
+        }
+        this.maxDelayMs = maxDelayMs;
+    }
+}
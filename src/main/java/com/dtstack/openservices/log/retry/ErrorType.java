@@ -0,0 +1,87 @@
+package com.dtstack.openservices.log.retry;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.http.client.ClientErrorCode;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>
+ *     按错误码和HTTP状态码对发送失败分类，只有前三类值得重试，熔断时不重试但数据可以写入spool。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public enum ErrorType {
+
+    /**
+     * 服务端限流，HTTP 429或配额类错误码，需要较长的退避。
+     */
+    THROTTLING,
+
+    /**
+     * 服务端错误，HTTP 5xx或服务端繁忙类错误码。
+     */
+    SERVER_ERROR,
+
+    /**
+     * 未收到服务端响应的网络错误。
+     */
+    NETWORK,
+
+    /**
+     * 服务端地址的熔断器打开，请求没有发送。
+     */
+    CIRCUIT_OPEN,
+
+    /**
+     * 参数、鉴权等重试也不会成功的错误。
+     */
+    NON_RETRYABLE;
+
+    private static final Set<String> THROTTLING_CODES = new HashSet<String>(Arrays.asList(
+            "WriteQuotaExceed", "ReadQuotaExceed", "ShardWriteQuotaExceed", "ShardReadQuotaExceed",
+            "ExceedQPSLimit", "QuotaExceed"));
+
+    private static final Set<String> SERVER_ERROR_CODES = new HashSet<String>(Arrays.asList(
+            "InternalServerError", "ServerBusy", "RequestTimeout"));
+
+    private static final Set<String> NETWORK_CODES = new HashSet<String>(Arrays.asList(
+            "RequestError", "BadResponse"));
+
+    /**
+     * @return true for the types a request may be retried on
+     */
+    public boolean isRetryable() {
+        return this == THROTTLING || this == SERVER_ERROR || this == NETWORK;
+    }
+
+    /**
+     * @return true if the service is temporarily unavailable and the logs can
+     *         be kept to send later
+     */
+    public boolean isTransient() {
+        return this != NON_RETRYABLE;
+    }
+
+    public static ErrorType classify(LogException error) {
+        String code = error.GetErrorCode();
+        int httpCode = error.GetHttpCode();
+        if (ClientErrorCode.CIRCUIT_OPEN.equals(code)) {
+            return CIRCUIT_OPEN;
+        }
+        if (httpCode == 429 || THROTTLING_CODES.contains(code)) {
+            return THROTTLING;
+        }
+        if (httpCode >= 500 || SERVER_ERROR_CODES.contains(code)) {
+            return SERVER_ERROR;
+        }
+        String requestId = error.GetRequestId();
+        if (httpCode < 0 && (requestId == null || requestId.isEmpty()) && NETWORK_CODES.contains(code)) {
+            return NETWORK;
+        }
+        return NON_RETRYABLE;
+    }
+}
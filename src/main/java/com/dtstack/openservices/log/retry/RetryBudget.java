@@ -0,0 +1,114 @@
+package com.dtstack.openservices.log.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ *     限制重试占请求的比例，防止服务端故障时重试放大流量。每个成功的请求存入
+ *     retryRatio个令牌，每次重试取出一个令牌，另外按minRetriesPerSecond随时间补充，
+ *     服务端完全不可用时重试速率不超过该值。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class RetryBudget {
+
+    public static final double DEFAULT_RETRY_RATIO = 0.1;
+
+    public static final double DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+
+    public static final int DEFAULT_MAX_RETRY_TOKENS = 100;
+
+    private static final long SCALE = 1000;
+
+    private final long depositPerSuccess;
+
+    private final double minRetriesPerSecond;
+
+    private final long maxBalance;
+
+    private final AtomicLong balance;
+
+    private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+
+    public RetryBudget() {
+        this(DEFAULT_RETRY_RATIO, DEFAULT_MIN_RETRIES_PER_SECOND, DEFAULT_MAX_RETRY_TOKENS);
+    }
+
+    /**
+     * @param retryRatio          retries allowed per successful request, in [0, 1]
+     * @param minRetriesPerSecond retries allowed per second regardless of successes
+     * @param maxRetryTokens      max retries that can be saved up, must be greater than 0
+     */
+    public RetryBudget(double retryRatio, double minRetriesPerSecond, int maxRetryTokens) {
+        if (!(retryRatio >= 0 && retryRatio <= 1)) {
+            throw new IllegalArgumentException("retryRatio must be in [0, 1], got " + retryRatio);
+        }
+        if (!(minRetriesPerSecond >= 0)) {
+            throw new IllegalArgumentException("minRetriesPerSecond must not be less than 0, got "
+                    + minRetriesPerSecond);
+        }
+        if (maxRetryTokens <= 0) {
+            throw new IllegalArgumentException("maxRetryTokens must be greater than 0, got " + maxRetryTokens);
+        }
+        this.depositPerSuccess = (long) (retryRatio * SCALE);
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.maxBalance = maxRetryTokens * SCALE;
+        this.balance = new AtomicLong(this.maxBalance);
+    }
+
+    /**
+     * Record a successful request.
+     */
+    public void deposit() {
+        add(depositPerSuccess);
+    }
+
+    /**
+     * Take the token of one retry.
+     *
+     * @return false if the budget is exhausted and the request must not be retried
+     */
+    public boolean tryAcquire() {
+        refill();
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return number of retries currently allowed
+     */
+    public long getAvailableRetries() {
+        refill();
+        return balance.get() / SCALE;
+    }
+
+    private void refill() {
+        if (minRetriesPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastRefillNanos.get();
+        long amount = (long) ((now - last) / 1e9 * minRetriesPerSecond * SCALE);
+        if (amount > 0 && lastRefillNanos.compareAndSet(last, now)) {
+            add(amount);
+        }
+    }
+
+    private void add(long amount) {
+        while (true) {
+            long current = balance.get();
+            long updated = Math.min(maxBalance, current + amount);
+            if (updated == current || balance.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+}
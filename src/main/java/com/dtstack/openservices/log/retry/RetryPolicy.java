@@ -0,0 +1,34 @@
+package com.dtstack.openservices.log.retry;
+
+import com.dtstack.openservices.log.exception.LogException;
+
+/**
+ * <p>
+ *     发送失败后是否重试以及重试前等待多久。一个客户端的所有请求共用一个实例，实现需要线程安全。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public interface RetryPolicy {
+
+    /**
+     * {@link #nextDelayMs(LogException, int, long)}返回该值表示不再重试。
+     */
+    long NO_RETRY = -1;
+
+    /**
+     * Decide whether a failed request is retried.
+     *
+     * @param error       failure of the last attempt
+     * @param attempts    number of attempts made so far, starting at 1
+     * @param lastDelayMs delay before the last attempt, 0 after the first one
+     * @return milliseconds to wait before the next attempt, {@link #NO_RETRY}
+     *         if the failure is final
+     */
+    long nextDelayMs(LogException error, int attempts, long lastDelayMs);
+
+    /**
+     * Called after every successful request.
+     */
+    void onSuccess();
+}
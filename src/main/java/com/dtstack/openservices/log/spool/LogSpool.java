@@ -0,0 +1,302 @@
+package com.dtstack.openservices.log.spool;
+
+import com.dtstack.openservices.log.exception.LogException;
+import com.dtstack.openservices.log.http.utils.CodingUtils;
+import com.dtstack.openservices.log.retry.ErrorType;
+import com.dtstack.openservices.log.util.NamedThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ *     发送失败日志的本地预写spool。记录按到达顺序追加到内存映射的分段文件中，
+ *     独立的后台线程按{@link SpoolConfig#getFsyncIntervalMs()}批量刷盘，不会被重新发送阻塞；
+ *     另一个线程按{@link SpoolConfig#getDrainIntervalMs()}通过{@link Replayer}按顺序重新发送，
+ *     限流、服务端错误等暂时性失败时等待下个周期再试，不可重试的错误则丢弃该记录，
+ *     分段中的记录全部处理完后删除该分段。
+ * </p>
+ * <p>
+ *     分段总大小超过{@link SpoolConfig#getMaxTotalSizeInBytes()}时淘汰最早的分段，
+ *     淘汰的记录数通过{@link #getEvictedRecords()}查看。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class LogSpool {
+
+    /**
+     * Sends a spooled record to the log service, meant to make a single
+     * attempt since a transient failure is retried in the next drain round.
+     */
+    public interface Replayer {
+
+        /**
+         * @param record spooled record
+         * @throws LogException if the record can not be delivered
+         */
+        void replay(SpoolRecord record) throws LogException;
+    }
+
+    private final SpoolConfig config;
+
+    private final File directory;
+
+    private final LinkedList<SpoolSegment> segments = new LinkedList<SpoolSegment>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ScheduledExecutorService fsyncScheduler;
+
+    private final AtomicLong spooledRecords = new AtomicLong();
+
+    private final AtomicLong replayedRecords = new AtomicLong();
+
+    private final AtomicLong evictedRecords = new AtomicLong();
+
+    private final AtomicLong discardedRecords = new AtomicLong();
+
+    private SpoolSegment active;
+
+    private long nextSequence;
+
+    private long totalSizeInBytes;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Open the spool directory and load the segments left by a previous process.
+     *
+     * @param config spool config
+     * @throws LogException if the directory can not be used
+     */
+    public LogSpool(SpoolConfig config) throws LogException {
+        CodingUtils.assertParameterNotNull(config, "config");
+        this.config = config;
+        this.directory = new File(config.getDirectory());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new LogException("SpoolError", "Failed to create spool directory : "
+                    + directory.getAbsolutePath(), "");
+        }
+        File[] files = directory.listFiles();
+        List<File> segmentFiles = new ArrayList<File>();
+        if (files != null) {
+            for (File file : files) {
+                if (SpoolSegment.isSegmentFile(file)) {
+                    segmentFiles.add(file);
+                }
+            }
+        }
+        File[] sorted = segmentFiles.toArray(new File[segmentFiles.size()]);
+        Arrays.sort(sorted, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        for (File file : sorted) {
+            try {
+                SpoolSegment segment = SpoolSegment.open(file);
+                if (segment.isDrained()) {
+                    segment.delete();
+                    continue;
+                }
+                segments.add(segment);
+                totalSizeInBytes += segment.getCapacity();
+                nextSequence = segment.getSequence() + 1;
+            } catch (IOException e) {
+                throw new LogException("SpoolError", "Failed to open spool segment : "
+                        + file.getAbsolutePath(), e, "");
+            }
+        }
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("log-spool"));
+        this.fsyncScheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("log-spool-fsync"));
+    }
+
+    /**
+     * Start the background fsync and drain tasks. They run on separate
+     * threads, a drain round waiting on an unreachable server does not delay
+     * the fsync of records appended meanwhile.
+     *
+     * @param replayer sends spooled records to the log service
+     */
+    public void start(final Replayer replayer) {
+        CodingUtils.assertParameterNotNull(replayer, "replayer");
+        fsyncScheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, config.getFsyncIntervalMs(), config.getFsyncIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                drain(replayer);
+            }
+        }, config.getDrainIntervalMs(), config.getDrainIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append a record, it becomes durable at the next batched fsync.
+     *
+     * @param record the record to spool
+     * @throws LogException if the record can not be written
+     */
+    public synchronized void append(SpoolRecord record) throws LogException {
+        if (closed) {
+            throw new LogException("SpoolError", "The log spool has been closed", "");
+        }
+        int recordSize = SpoolSegment.recordSize(record);
+        if (active == null || !active.hasRoom(recordSize)) {
+            if (active != null) {
+                active.seal();
+            }
+            int capacity = Math.max(config.getSegmentSizeInBytes(), recordSize);
+            try {
+                active = SpoolSegment.create(directory, nextSequence++, capacity);
+            } catch (IOException e) {
+                throw new LogException("SpoolError", "Failed to create spool segment in "
+                        + directory.getAbsolutePath(), e, "");
+            }
+            segments.add(active);
+            totalSizeInBytes += capacity;
+            evict();
+        }
+        active.append(record);
+        spooledRecords.incrementAndGet();
+    }
+
+    private void evict() {
+        while (totalSizeInBytes > config.getMaxTotalSizeInBytes() && segments.size() > 1) {
+            SpoolSegment oldest = segments.removeFirst();
+            evictedRecords.addAndGet(oldest.getPendingRecords());
+            removeSegment(oldest);
+        }
+    }
+
+    private void removeSegment(SpoolSegment segment) {
+        totalSizeInBytes -= segment.getCapacity();
+        segment.delete();
+    }
+
+    /**
+     * Force all written records to disk. The fsync runs outside the spool
+     * lock, appends on other threads are not blocked by it.
+     */
+    public void flush() {
+        SpoolSegment[] snapshot;
+        synchronized (this) {
+            snapshot = segments.toArray(new SpoolSegment[segments.size()]);
+        }
+        for (SpoolSegment segment : snapshot) {
+            // a segment deleted meanwhile is skipped by force
+            segment.force();
+        }
+    }
+
+    void drain(Replayer replayer) {
+        while (!closed) {
+            SpoolSegment segment;
+            SpoolRecord record;
+            synchronized (this) {
+                segment = segments.peekFirst();
+                if (segment == null) {
+                    return;
+                }
+                record = segment.readNext();
+                if (record == null) {
+                    if (segment == active) {
+                        return;
+                    }
+                    segments.removeFirst();
+                    removeSegment(segment);
+                    continue;
+                }
+            }
+            try {
+                replayer.replay(record);
+                replayedRecords.incrementAndGet();
+            } catch (LogException e) {
+                if (ErrorType.classify(e).isTransient()) {
+                    // throttled, unavailable or unreachable, the same errors the record was
+                    // spooled for, keep it and retry in the next round
+                    return;
+                }
+                // rejected by the server, replaying it again would never succeed
+                discardedRecords.incrementAndGet();
+            } catch (RuntimeException e) {
+                discardedRecords.incrementAndGet();
+            }
+            synchronized (this) {
+                if (segments.contains(segment)) {
+                    segment.markConsumed(record);
+                    if (segment.isDrained()) {
+                        segments.remove(segment);
+                        removeSegment(segment);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the background tasks and force all written records to disk.
+     */
+    public void close() {
+        closed = true;
+        scheduler.shutdown();
+        fsyncScheduler.shutdown();
+        try {
+            scheduler.awaitTermination(config.getDrainIntervalMs(), TimeUnit.MILLISECONDS);
+            fsyncScheduler.awaitTermination(config.getFsyncIntervalMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @return number of records written to the spool
+     */
+    public long getSpooledRecords() {
+        return spooledRecords.get();
+    }
+
+    /**
+     * @return number of records delivered by the drainer
+     */
+    public long getReplayedRecords() {
+        return replayedRecords.get();
+    }
+
+    /**
+     * @return number of undelivered records lost to the size cap
+     */
+    public long getEvictedRecords() {
+        return evictedRecords.get();
+    }
+
+    /**
+     * @return number of records dropped because replaying them failed with a
+     *         non retryable error
+     */
+    public long getDiscardedRecords() {
+        return discardedRecords.get();
+    }
+
+    /**
+     * @return total size of the segment files
+     */
+    public synchronized long getSizeInBytes() {
+        return totalSizeInBytes;
+    }
+}
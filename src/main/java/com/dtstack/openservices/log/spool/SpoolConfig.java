@@ -0,0 +1,135 @@
+package com.dtstack.openservices.log.spool;
+
+import com.dtstack.openservices.log.common.Consts;
+
+/**
+ * <p>
+ *     本地落盘配置。发送失败的日志写入spool目录下的分段文件，
+ *     后台线程在服务端恢复后重新发送，总大小超过上限时淘汰最早的分段。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class SpoolConfig {
+
+    public static final int DEFAULT_SEGMENT_SIZE_IN_BYTES = 64 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_TOTAL_SIZE_IN_BYTES = 1024L * 1024 * 1024;
+
+    public static final long DEFAULT_FSYNC_INTERVAL_MS = 1000;
+
+    public static final long DEFAULT_DRAIN_INTERVAL_MS = 5000;
+
+    private final String directory;
+
+    private int segmentSizeInBytes = DEFAULT_SEGMENT_SIZE_IN_BYTES;
+
+    private long maxTotalSizeInBytes = DEFAULT_MAX_TOTAL_SIZE_IN_BYTES;
+
+    private long fsyncIntervalMs = DEFAULT_FSYNC_INTERVAL_MS;
+
+    private long drainIntervalMs = DEFAULT_DRAIN_INTERVAL_MS;
+
+    /**
+     * 构造新实例。
+     * @param directory
+     *          spool目录，不存在时自动创建。
+     */
+    public SpoolConfig(String directory) {
+        if (directory == null || directory.isEmpty()) {
+            throw new IllegalArgumentException("directory is empty");
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * 返回spool目录。
+     * @return spool目录。
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 返回单个分段文件的大小（单位：字节）。
+     * @return 分段文件大小。
+     */
+    public int getSegmentSizeInBytes() {
+        return segmentSizeInBytes;
+    }
+
+    /**
+     * 设置单个分段文件的大小（单位：字节），分段创建时按此大小映射到内存。
+     * 超过此大小的单条记录独占一个分段。
+     * @param segmentSizeInBytes
+     *          分段文件大小，不能小于1MB。
+     */
+    public void setSegmentSizeInBytes(int segmentSizeInBytes) {
+        if (segmentSizeInBytes < 1024 * 1024) {
+            throw new IllegalArgumentException("segmentSizeInBytes must not be less than 1MB, got "
+                    + segmentSizeInBytes);
+        }
+        this.segmentSizeInBytes = segmentSizeInBytes;
+    }
+
+    /**
+     * 返回所有分段文件的总大小上限（单位：字节）。
+     * @return 总大小上限。
+     */
+    public long getMaxTotalSizeInBytes() {
+        return maxTotalSizeInBytes;
+    }
+
+    /**
+     * 设置所有分段文件的总大小上限（单位：字节），超过后淘汰最早的分段。
+     * @param maxTotalSizeInBytes
+     *          总大小上限，不能小于单次上传的大小上限。
+     */
+    public void setMaxTotalSizeInBytes(long maxTotalSizeInBytes) {
+        if (maxTotalSizeInBytes < Consts.CONST_MAX_PUT_SIZE) {
+            throw new IllegalArgumentException("maxTotalSizeInBytes must not be less than "
+                    + Consts.CONST_MAX_PUT_SIZE + ", got " + maxTotalSizeInBytes);
+        }
+        this.maxTotalSizeInBytes = maxTotalSizeInBytes;
+    }
+
+    /**
+     * 返回批量刷盘的间隔（单位：毫秒）。
+     * @return 刷盘间隔。
+     */
+    public long getFsyncIntervalMs() {
+        return fsyncIntervalMs;
+    }
+
+    /**
+     * 设置批量刷盘的间隔（单位：毫秒），间隔内写入的记录一次性fsync。
+     * @param fsyncIntervalMs
+     *          刷盘间隔，必须大于0。
+     */
+    public void setFsyncIntervalMs(long fsyncIntervalMs) {
+        if (fsyncIntervalMs <= 0) {
+            throw new IllegalArgumentException("fsyncIntervalMs must be greater than 0, got " + fsyncIntervalMs);
+        }
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    /**
+     * 返回后台重新发送的检查间隔（单位：毫秒）。
+     * @return 检查间隔。
+     */
+    public long getDrainIntervalMs() {
+        return drainIntervalMs;
+    }
+
+    /**
+     * 设置后台重新发送的检查间隔（单位：毫秒）。
+     * @param drainIntervalMs
+     *          检查间隔，必须大于0。
+     */
+    public void setDrainIntervalMs(long drainIntervalMs) {
+        if (drainIntervalMs <= 0) {
+            throw new IllegalArgumentException("drainIntervalMs must be greater than 0, got " + drainIntervalMs);
+        }
+        this.drainIntervalMs = drainIntervalMs;
+    }
+}
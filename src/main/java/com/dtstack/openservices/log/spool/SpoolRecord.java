@@ -0,0 +1,81 @@
+package com.dtstack.openservices.log.spool;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ *     spool中的一条记录，对应一次发送失败的putLogs调用。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public class SpoolRecord {
+
+    private final String project;
+
+    private final String logStore;
+
+    private final String compressType;
+
+    private final Map<String, String> urlParameters;
+
+    private final byte[] logGroupBytes;
+
+    // position of the record in its segment, -1 before it is written
+    int position = -1;
+
+    public SpoolRecord(String project, String logStore, String compressType, byte[] logGroupBytes) {
+        this(project, logStore, compressType, null, logGroupBytes);
+    }
+
+    /**
+     * @param urlParameters url parameters of the failed request such as the
+     *                      route key, sent again with the record
+     */
+    public SpoolRecord(String project, String logStore, String compressType, Map<String, String> urlParameters,
+                       byte[] logGroupBytes) {
+        this.project = project == null ? "" : project;
+        this.logStore = logStore;
+        this.compressType = compressType == null ? "" : compressType;
+        if (urlParameters == null || urlParameters.isEmpty()) {
+            this.urlParameters = Collections.emptyMap();
+        } else {
+            this.urlParameters = Collections.unmodifiableMap(new LinkedHashMap<String, String>(urlParameters));
+        }
+        this.logGroupBytes = logGroupBytes;
+    }
+
+    /**
+     * @return project name, empty if the failed request carried none
+     */
+    public String getProject() {
+        return project;
+    }
+
+    public String getLogStore() {
+        return logStore;
+    }
+
+    /**
+     * @return compress type string accepted by ProtoLogClient.putLogs
+     */
+    public String getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * @return url parameters of the failed request, empty if there were none
+     */
+    public Map<String, String> getUrlParameters() {
+        return urlParameters;
+    }
+
+    /**
+     * @return protobuf serialized LogGroup
+     */
+    public byte[] getLogGroupBytes() {
+        return logGroupBytes;
+    }
+}
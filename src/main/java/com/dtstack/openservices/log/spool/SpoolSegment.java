@@ -0,0 +1,382 @@
+package com.dtstack.openservices.log.spool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ *     spool中的一个只追加分段文件，创建时按固定大小映射到内存。
+ *     每条记录格式为[int 长度][int CRC32][数据]，长度为0表示文件有效数据结束，
+ *     记录重新发送成功后把长度改为负数标记为已消费，重启后跳过已消费的记录。
+ * </p>
+ * <p>
+ *     数据部分依次为project、logStore、compressType(均为short长度加UTF-8字节)、
+ *     url参数(short个数加每个参数的key和value，编码同上)和LogGroup字节。
+ *     除{@link #force()}外所有方法都由{@link LogSpool}在持有锁的情况下调用；
+ *     force在spool锁之外执行，与{@link #delete()}通过分段自身的锁互斥，避免刷盘时映射被释放。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+final class SpoolSegment {
+
+    static final String SUFFIX = ".seg";
+
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Object UNSAFE;
+
+    private static final Method UNMAPPER;
+
+    private static final Method CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method unmapper = null;
+        Method cleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            unmapper = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        } catch (Exception e) {
+            unmapper = null;
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            } catch (Exception ignored) {
+                cleaner = null;
+            }
+        }
+        UNSAFE = unsafe;
+        UNMAPPER = unmapper;
+        CLEANER = cleaner;
+    }
+
+    private final long sequence;
+
+    private final File file;
+
+    private final int capacity;
+
+    private MappedByteBuffer buffer;
+
+    private int writePosition;
+
+    private int readPosition;
+
+    private int pendingRecords;
+
+    private boolean sealed;
+
+    // set under the spool lock, cleared by force outside of it
+    private volatile boolean dirty;
+
+    private SpoolSegment(long sequence, File file, MappedByteBuffer buffer, int capacity) {
+        this.sequence = sequence;
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    static SpoolSegment create(File directory, long sequence, int capacity) throws IOException {
+        File file = new File(directory, fileName(sequence));
+        return new SpoolSegment(sequence, file, map(file, capacity), capacity);
+    }
+
+    /**
+     * Open a segment left by a previous process. Reopened segments are only
+     * drained, new records always go to a new segment.
+     */
+    static SpoolSegment open(File file) throws IOException {
+        String name = file.getName();
+        long sequence = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        int capacity = (int) Math.min(file.length(), Integer.MAX_VALUE);
+        SpoolSegment segment = new SpoolSegment(sequence, file, map(file, capacity), capacity);
+        segment.recover();
+        return segment;
+    }
+
+    static boolean isSegmentFile(File file) {
+        String name = file.getName();
+        if (!file.isFile() || !name.endsWith(SUFFIX) || name.length() == SUFFIX.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length() - SUFFIX.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int recordSize(SpoolRecord record) {
+        return RECORD_HEADER_SIZE + encodedSize(encodeFields(record)) + record.getLogGroupBytes().length;
+    }
+
+    /**
+     * @return project, logStore, compressType and then the key and value of
+     *         each url parameter
+     */
+    private static byte[][] encodeFields(SpoolRecord record) {
+        Map<String, String> parameters = record.getUrlParameters();
+        byte[][] fields = new byte[3 + parameters.size() * 2][];
+        fields[0] = record.getProject().getBytes(UTF_8);
+        fields[1] = record.getLogStore().getBytes(UTF_8);
+        fields[2] = record.getCompressType().getBytes(UTF_8);
+        int i = 3;
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            fields[i++] = entry.getKey().getBytes(UTF_8);
+            fields[i++] = entry.getValue().getBytes(UTF_8);
+        }
+        return fields;
+    }
+
+    private static int encodedSize(byte[][] fields) {
+        // a short length before each field and a short parameter count
+        int size = 2 + fields.length * 2;
+        for (byte[] field : fields) {
+            size += field.length;
+        }
+        return size;
+    }
+
+    private static String fileName(long sequence) {
+        return String.format("%020d%s", sequence, SUFFIX);
+    }
+
+    private static MappedByteBuffer map(File file, int capacity) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // the mapping stays valid after the channel is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void recover() {
+        int pos = 0;
+        while (pos + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(pos);
+            if (length == 0 || length == Integer.MIN_VALUE) {
+                break;
+            }
+            int payloadLength = Math.abs(length);
+            if (pos + RECORD_HEADER_SIZE + payloadLength > capacity) {
+                break;
+            }
+            if (length > 0) {
+                pendingRecords++;
+            }
+            pos += RECORD_HEADER_SIZE + payloadLength;
+        }
+        writePosition = pos;
+        sealed = true;
+    }
+
+    boolean hasRoom(int recordSize) {
+        return !sealed && writePosition + recordSize <= capacity;
+    }
+
+    void append(SpoolRecord record) {
+        byte[][] fields = encodeFields(record);
+        byte[] data = record.getLogGroupBytes();
+        int payloadLength = encodedSize(fields) + data.length;
+
+        int pos = writePosition + RECORD_HEADER_SIZE;
+        pos = putBytes(pos, fields[0]);
+        pos = putBytes(pos, fields[1]);
+        pos = putBytes(pos, fields[2]);
+        buffer.putShort(pos, (short) ((fields.length - 3) / 2));
+        pos += 2;
+        for (int i = 3; i < fields.length; i++) {
+            pos = putBytes(pos, fields[i]);
+        }
+        view(pos, data.length).put(data);
+
+        int crc = crc32(writePosition + RECORD_HEADER_SIZE, payloadLength);
+        buffer.putInt(writePosition + 4, crc);
+        // the length is written last so a torn record reads as the end of data
+        buffer.putInt(writePosition, payloadLength);
+
+        record.position = writePosition;
+        writePosition += RECORD_HEADER_SIZE + payloadLength;
+        pendingRecords++;
+        dirty = true;
+    }
+
+    private int putBytes(int pos, byte[] bytes) {
+        buffer.putShort(pos, (short) bytes.length);
+        view(pos + 2, bytes.length).put(bytes);
+        return pos + 2 + bytes.length;
+    }
+
+    private ByteBuffer view(int pos, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(pos + length);
+        view.position(pos);
+        return view;
+    }
+
+    private int crc32(int pos, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(view(pos, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Read the oldest record that is not consumed yet, a record that fails the
+     * CRC check ends the segment.
+     *
+     * @return the record, or null if there is none
+     */
+    SpoolRecord readNext() {
+        while (readPosition + RECORD_HEADER_SIZE <= writePosition) {
+            int length = buffer.getInt(readPosition);
+            if (length < 0) {
+                readPosition += RECORD_HEADER_SIZE - length;
+                continue;
+            }
+            int payloadStart = readPosition + RECORD_HEADER_SIZE;
+            if (crc32(payloadStart, length) != buffer.getInt(readPosition + 4)) {
+                readPosition = writePosition;
+                pendingRecords = 0;
+                return null;
+            }
+            int pos = payloadStart;
+            String project = getString(pos);
+            pos += 2 + fieldLength(pos);
+            String logStore = getString(pos);
+            pos += 2 + fieldLength(pos);
+            String compressType = getString(pos);
+            pos += 2 + fieldLength(pos);
+            int parameterCount = fieldLength(pos);
+            pos += 2;
+            Map<String, String> urlParameters = new LinkedHashMap<String, String>();
+            for (int i = 0; i < parameterCount; i++) {
+                String key = getString(pos);
+                pos += 2 + fieldLength(pos);
+                urlParameters.put(key, getString(pos));
+                pos += 2 + fieldLength(pos);
+            }
+            byte[] data = new byte[payloadStart + length - pos];
+            view(pos, data.length).get(data);
+            SpoolRecord record = new SpoolRecord(project, logStore, compressType, urlParameters, data);
+            record.position = readPosition;
+            return record;
+        }
+        return null;
+    }
+
+    private int fieldLength(int pos) {
+        return buffer.getShort(pos) & 0xFFFF;
+    }
+
+    /**
+     * @param pos position of the short length before the string
+     */
+    private String getString(int pos) {
+        int length = fieldLength(pos);
+        byte[] bytes = new byte[length];
+        view(pos + 2, length).get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    void markConsumed(SpoolRecord record) {
+        int length = buffer.getInt(record.position);
+        if (length <= 0) {
+            return;
+        }
+        buffer.putInt(record.position, -length);
+        if (readPosition == record.position) {
+            readPosition += RECORD_HEADER_SIZE + length;
+        }
+        pendingRecords--;
+        dirty = true;
+    }
+
+    /**
+     * Force written records to disk, called without the spool lock so
+     * appends are not blocked by the fsync.
+     */
+    synchronized void force() {
+        if (dirty && buffer != null) {
+            // cleared first, a record appended during the fsync keeps the segment dirty
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    /**
+     * Stop appending, the records are forced by the next flush.
+     */
+    void seal() {
+        sealed = true;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    boolean isDrained() {
+        return sealed && pendingRecords == 0;
+    }
+
+    int getPendingRecords() {
+        return pendingRecords;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    synchronized void delete() {
+        if (buffer != null) {
+            unmap(buffer);
+            buffer = null;
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Release the mapping now instead of when the buffer is collected, a
+     * mapped file holds address space and can not be deleted on Windows.
+     * The buffer must not be used afterwards. If the JDK offers no way to
+     * unmap, the mapping is left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (UNMAPPER != null) {
+                // java 9 and later: Unsafe.invokeCleaner(ByteBuffer)
+                UNMAPPER.invoke(UNSAFE, buffer);
+            } else if (CLEANER != null) {
+                // java 8: ((DirectBuffer) buffer).cleaner().clean()
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            // left to the garbage collector
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.dtstack.openservices.log.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     基于游标的protobuf读取器，与{@link ProtoReader}相同，但数据来自{@link ByteBuffer}，
+ *     堆内和堆外的buffer都可以使用。只使用绝对位置的get，不修改buffer的position和limit，
+ *     偏移量都是buffer中的绝对下标。当前位置和最近一次解析出的tag、varint、长度都保存在字段中，
+ *     解码过程不分配对象，一个实例可以通过{@link #reset(ByteBuffer, int, int)}反复使用。
+ *     varint按64位解码，最多10个字节。
+ * </p>
+ *
+ * <p>
+ *     读取方法返回false表示数据被截断或格式错误，此时位置不再有意义。不是线程安全的。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public final class ByteBufferProtoReader {
+
+    public static final int WIRETYPE_VARINT = ProtoReader.WIRETYPE_VARINT;
+
+    public static final int WIRETYPE_FIXED64 = ProtoReader.WIRETYPE_FIXED64;
+
+    public static final int WIRETYPE_LENGTH_DELIMITED = ProtoReader.WIRETYPE_LENGTH_DELIMITED;
+
+    public static final int WIRETYPE_FIXED32 = ProtoReader.WIRETYPE_FIXED32;
+
+    private static final int MAX_VARINT_SIZE = 10;
+
+    private ByteBuffer buffer;
+    // backing array of a writable heap buffer, read directly to skip the checks of ByteBuffer.get
+    private byte[] array;
+    private int arrayOffset;
+    // [position, limit)
+    private int position;
+    private int limit;
+    private int tag;
+    private long varint;
+    private int offset;
+    private int length;
+
+    public ByteBufferProtoReader() {
+    }
+
+    public ByteBufferProtoReader(ByteBuffer buffer, int offset, int length) {
+        reset(buffer, offset, length);
+    }
+
+    /**
+     * Start reading another range, the previous state is dropped.
+     *
+     * @param offset absolute index in the buffer
+     * @return this reader
+     * @throws IndexOutOfBoundsException if the range is not within the limit
+     *                                   of the buffer
+     */
+    public ByteBufferProtoReader reset(ByteBuffer buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > buffer.limit() - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", limit " + buffer.limit());
+        }
+        this.buffer = buffer;
+        if (buffer.hasArray()) {
+            this.array = buffer.array();
+            this.arrayOffset = buffer.arrayOffset();
+        } else {
+            this.array = null;
+            this.arrayOffset = 0;
+        }
+        this.position = offset;
+        this.limit = offset + length;
+        this.tag = 0;
+        this.varint = 0;
+        this.offset = -1;
+        this.length = -1;
+        return this;
+    }
+
+    public ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    public int getPosition() {
+        return this.position;
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public boolean isAtEnd() {
+        return this.position >= this.limit;
+    }
+
+    /**
+     * Read a field tag, see {@link #getFieldNumber()} and
+     * {@link #getWireType()}.
+     *
+     * @return false if the tag is truncated
+     */
+    public boolean readTag() {
+        if (!readVarint()) {
+            return false;
+        }
+        this.tag = (int) this.varint;
+        return true;
+    }
+
+    /**
+     * Read a varint of up to 64 bits, see {@link #getVarint()}.
+     *
+     * @return false if the varint is truncated or longer than 10 bytes
+     */
+    public boolean readVarint() {
+        int pos = this.position;
+        if (pos >= this.limit) {
+            return false;
+        }
+        int first = byteAt(pos);
+        if (first >= 0) {
+            // tags and most lengths of log data fit in one byte
+            this.varint = first;
+            this.position = pos + 1;
+            return true;
+        }
+        return readVarintSlow(pos);
+    }
+
+    private boolean readVarintSlow(int pos) {
+        int end = Math.min(this.limit, pos + MAX_VARINT_SIZE);
+        long result = 0;
+        int shift = 0;
+        while (pos < end) {
+            int b = byteAt(pos++);
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                this.varint = result;
+                this.position = pos;
+                return true;
+            }
+            shift += 7;
+        }
+        return false;
+    }
+
+    private byte byteAt(int index) {
+        byte[] bytes = this.array;
+        if (bytes != null) {
+            return bytes[this.arrayOffset + index];
+        }
+        return this.buffer.get(index);
+    }
+
+    /**
+     * Read the length of a length delimited field and step over its bytes,
+     * see {@link #getOffset()} and {@link #getLength()}.
+     *
+     * @return false if the length is truncated or runs past the limit
+     */
+    public boolean readLengthDelimited() {
+        if (!readVarint()) {
+            return false;
+        }
+        long size = this.varint;
+        if (size < 0 || size > this.limit - this.position) {
+            return false;
+        }
+        this.offset = this.position;
+        this.length = (int) size;
+        this.position += this.length;
+        return true;
+    }
+
+    /**
+     * Step over the value of the field whose tag was read last, a length
+     * delimited value is recorded as by {@link #readLengthDelimited()}.
+     *
+     * @return false if the value is truncated or the wire type is unknown
+     */
+    public boolean skipField() {
+        switch (getWireType()) {
+            case WIRETYPE_VARINT:
+                return readVarint();
+            case WIRETYPE_FIXED64:
+                return skip(8);
+            case WIRETYPE_LENGTH_DELIMITED:
+                return readLengthDelimited();
+            case WIRETYPE_FIXED32:
+                return skip(4);
+            default:
+                return false;
+        }
+    }
+
+    private boolean skip(int size) {
+        if (size > this.limit - this.position) {
+            return false;
+        }
+        this.position += size;
+        return true;
+    }
+
+    /**
+     * @return the last tag read
+     */
+    public int getTag() {
+        return this.tag;
+    }
+
+    public int getFieldNumber() {
+        return this.tag >>> 3;
+    }
+
+    public int getWireType() {
+        return this.tag & 0x7;
+    }
+
+    /**
+     * @return the last varint read
+     */
+    public long getVarint() {
+        return this.varint;
+    }
+
+    /**
+     * @return the offset of the last length delimited value
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * @return the length of the last length delimited value
+     */
+    public int getLength() {
+        return this.length;
+    }
+}
@@ -0,0 +1,213 @@
+package com.dtstack.openservices.log.util;
+
+/**
+ * <p>
+ *     基于游标的protobuf读取器。当前位置和最近一次解析出的tag、varint、长度都保存在字段中，
+ *     解码过程不分配对象，一个实例可以通过{@link #reset(byte[], int, int)}反复使用。
+ *     varint按64位解码，最多10个字节。
+ * </p>
+ *
+ * <p>
+ *     读取方法返回false表示数据被截断或格式错误，此时位置不再有意义。不是线程安全的。
+ * </p>
+ *
+ * @author qingya@dtstack.com
+ */
+public final class ProtoReader {
+
+    public static final int WIRETYPE_VARINT = 0;
+
+    public static final int WIRETYPE_FIXED64 = 1;
+
+    public static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    public static final int WIRETYPE_FIXED32 = 5;
+
+    private static final int MAX_VARINT_SIZE = 10;
+
+    private byte[] buffer;
+    // [position, limit)
+    private int position;
+    private int limit;
+    private int tag;
+    private long varint;
+    private int offset;
+    private int length;
+
+    public ProtoReader() {
+    }
+
+    public ProtoReader(byte[] buffer, int offset, int length) {
+        reset(buffer, offset, length);
+    }
+
+    /**
+     * Start reading another range, the previous state is dropped.
+     *
+     * @return this reader
+     */
+    public ProtoReader reset(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+        this.tag = 0;
+        this.varint = 0;
+        this.offset = -1;
+        this.length = -1;
+        return this;
+    }
+
+    public byte[] getBuffer() {
+        return this.buffer;
+    }
+
+    public int getPosition() {
+        return this.position;
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public boolean isAtEnd() {
+        return this.position >= this.limit;
+    }
+
+    /**
+     * Read a field tag, see {@link #getFieldNumber()} and
+     * {@link #getWireType()}.
+     *
+     * @return false if the tag is truncated
+     */
+    public boolean readTag() {
+        if (!readVarint()) {
+            return false;
+        }
+        this.tag = (int) this.varint;
+        return true;
+    }
+
+    /**
+     * Read a varint of up to 64 bits, see {@link #getVarint()}.
+     *
+     * @return false if the varint is truncated or longer than 10 bytes
+     */
+    public boolean readVarint() {
+        int pos = this.position;
+        if (pos >= this.limit) {
+            return false;
+        }
+        byte[] bytes = this.buffer;
+        int first = bytes[pos];
+        if (first >= 0) {
+            // tags and most lengths of log data fit in one byte
+            this.varint = first;
+            this.position = pos + 1;
+            return true;
+        }
+        return readVarintSlow(pos);
+    }
+
+    private boolean readVarintSlow(int pos) {
+        int end = Math.min(this.limit, pos + MAX_VARINT_SIZE);
+        byte[] bytes = this.buffer;
+        long result = 0;
+        int shift = 0;
+        while (pos < end) {
+            int b = bytes[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                this.varint = result;
+                this.position = pos;
+                return true;
+            }
+            shift += 7;
+        }
+        return false;
+    }
+
+    /**
+     * Read the length of a length delimited field and step over its bytes,
+     * see {@link #getOffset()} and {@link #getLength()}.
+     *
+     * @return false if the length is truncated or runs past the limit
+     */
+    public boolean readLengthDelimited() {
+        if (!readVarint()) {
+            return false;
+        }
+        long size = this.varint;
+        if (size < 0 || size > this.limit - this.position) {
+            return false;
+        }
+        this.offset = this.position;
+        this.length = (int) size;
+        this.position += this.length;
+        return true;
+    }
+
+    /**
+     * Step over the value of the field whose tag was read last, a length
+     * delimited value is recorded as by {@link #readLengthDelimited()}.
+     *
+     * @return false if the value is truncated or the wire type is unknown
+     */
+    public boolean skipField() {
+        switch (getWireType()) {
+            case WIRETYPE_VARINT:
+                return readVarint();
+            case WIRETYPE_FIXED64:
+                return skip(8);
+            case WIRETYPE_LENGTH_DELIMITED:
+                return readLengthDelimited();
+            case WIRETYPE_FIXED32:
+                return skip(4);
+            default:
+                return false;
+        }
+    }
+
+    private boolean skip(int size) {
+        if (size > this.limit - this.position) {
+            return false;
+        }
+        this.position += size;
+        return true;
+    }
+
+    /**
+     * @return the last tag read
+     */
+    public int getTag() {
+        return this.tag;
+    }
+
+    public int getFieldNumber() {
+        return this.tag >>> 3;
+    }
+
+    public int getWireType() {
+        return this.tag & 0x7;
+    }
+
+    /**
+     * @return the last varint read
+     */
+    public long getVarint() {
+        return this.varint;
+    }
+
+    /**
+     * @return the offset of the last length delimited value
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * @return the length of the last length delimited value
+     */
+    public int getLength() {
+        return this.length;
+    }
+}
@@ -1,5 +1,10 @@
 package com.dtstack.openservices.log.util;
 
+/**
+ * @deprecated allocates the result of every decode and only supports 32 bit
+ *             varints, use {@link ProtoReader} instead
+ */
+@Deprecated
 public class VarintUtil {
 
     public static int[] DecodeVarInt32(byte[] dataBytes, int pos, int maxPos) {